@@ -0,0 +1,95 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark settings, read from system properties so a run is fully
+ * described by its command line:
+ *
+ *   bench.mode           "run" to run the benchmarks (default), "routing"
+ *                        to check read/write routing against bench.url as
+ *                        primary and bench.replicaUrl as replica
+ *   bench.url            JDBC URL (default: in-memory H2 in MySQL mode)
+ *   bench.replicaUrl     replica JDBC URL for bench.mode=routing (default:
+ *                        a second in-memory H2 database)
+ *   bench.user           database user, bench.password its password
+ *   bench.mysql          true when bench.url points at MySQL; runs the
+ *                        schema script unmodified
+ *   bench.schema         path to simple_company.sql
+ *   bench.customers      seeded customers (default 10000)
+ *   bench.products       seeded products (default 1000)
+ *   bench.purchases      purchases per customer (default 10)
+ *   bench.seed           random seed for seeding and for each thread
+ *   bench.threads        comma separated thread counts (default 1,8)
+ *   bench.poolSize       connections in the pool (default: max threads)
+ *   bench.warmup         warmup seconds per benchmark (default 5)
+ *   bench.measure        measured seconds per benchmark (default 10)
+ *   bench.include        regex of benchmark names to run (default all)
+ *   bench.out            optional CSV file the results are appended to
+ */
+class BenchConfig
+{
+	final String mode = System.getProperty("bench.mode", "run");
+	final String url = System.getProperty("bench.url", "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1");
+	final String replicaUrl = System.getProperty("bench.replicaUrl", "jdbc:h2:mem:bench-replica;MODE=MySQL;DB_CLOSE_DELAY=-1");
+	final String user = System.getProperty("bench.user");
+	final String password = System.getProperty("bench.password");
+	final boolean mysql = Boolean.getBoolean("bench.mysql");
+	final Path schema = Paths.get(System.getProperty("bench.schema", "simple_company.sql"));
+
+	final int customers = Integer.getInteger("bench.customers", 10000);
+	final int products = Integer.getInteger("bench.products", 1000);
+	final int purchasesPerCustomer = Integer.getInteger("bench.purchases", 10);
+	final long seed = Long.getLong("bench.seed", 4347L);
+
+	final int[] threads = parseThreads(System.getProperty("bench.threads", "1,8"));
+	final int poolSize = Integer.getInteger("bench.poolSize", max(threads));
+	final int warmupSeconds = Integer.getInteger("bench.warmup", 5);
+	final int measureSeconds = Integer.getInteger("bench.measure", 10);
+	final Pattern include = Pattern.compile(System.getProperty("bench.include", ".*"));
+	final String out = System.getProperty("bench.out");
+
+	private static int[] parseThreads(String value)
+	{
+		String[] parts = value.split(",");
+		int[] result = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			result[i] = Integer.parseInt(parts[i].trim());
+			if (result[i] < 1) {
+				throw new IllegalArgumentException("bench.threads must be positive: " + value);
+			}
+		}
+		return result;
+	}
+
+	private static int max(int[] values)
+	{
+		int max = 1;
+		for (int value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "url=" + url + ", customers=" + customers + ", products=" + products
+				+ ", purchases/customer=" + purchasesPerCustomer + ", seed=" + seed
+				+ ", poolSize=" + poolSize + ", warmup=" + warmupSeconds + "s, measure=" + measureSeconds + "s";
+	}
+}
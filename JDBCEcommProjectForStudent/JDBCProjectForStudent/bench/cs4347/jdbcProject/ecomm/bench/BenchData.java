@@ -0,0 +1,210 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.ProductDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.ProductDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.entity.Address;
+import cs4347.jdbcProject.ecomm.entity.CreditCard;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.entity.Product;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.services.CustomerBatchResult;
+import cs4347.jdbcProject.ecomm.services.impl.CustomerPersistenceServiceImpl;
+import cs4347.jdbcProject.ecomm.services.impl.PurchaseRollupRebuildJob;
+import cs4347.jdbcProject.ecomm.services.impl.PurchaseSummaryRebuildJob;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * The seeded data set and the generators the benchmarks draw from. Seeding
+ * is driven by a fixed random seed so two runs with the same settings load
+ * identical rows, which keeps before/after comparisons meaningful.
+ */
+class BenchData
+{
+	static final int ZIP_CODES = 100;
+	static final int CATEGORIES = 20;
+	private static final long FIRST_DOB = Date.valueOf("1950-01-01").getTime();
+	private static final long DOB_SPAN_DAYS = 50L * 365;
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+	final long[] customerIDs;
+	final long[] productIDs;
+	final long[] purchaseIDs;
+
+	private BenchData(long[] customerIDs, long[] productIDs, long[] purchaseIDs)
+	{
+		this.customerIDs = customerIDs;
+		this.productIDs = productIDs;
+		this.purchaseIDs = purchaseIDs;
+	}
+
+	static BenchData seed(DataSource dataSource, BenchConfig config) throws SQLException, DAOException
+	{
+		Random random = new Random(config.seed);
+
+		List<Customer> customers = new ArrayList<>(config.customers);
+		for (int i = 0; i < config.customers; i++) {
+			customers.add(newCustomer(random));
+		}
+		CustomerBatchResult created = new CustomerPersistenceServiceImpl(dataSource).createAll(customers);
+		if (created.hasFailures()) {
+			throw new DAOException("Seeding customers failed", created.failedChunks.get(0).cause);
+		}
+		long[] customerIDs = new long[customers.size()];
+		for (int i = 0; i < customerIDs.length; i++) {
+			customerIDs[i] = customers.get(i).getId();
+		}
+
+		ProductDAO productDAO = new ProductDaoImpl();
+		PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+		long[] productIDs = new long[config.products];
+		long[] purchaseIDs = new long[config.customers * config.purchasesPerCustomer];
+		Connection connection = dataSource.getConnection();
+		try {
+			connection.setAutoCommit(false);
+			for (int i = 0; i < productIDs.length; i++) {
+				productIDs[i] = productDAO.create(connection, newProduct(random, i)).getId();
+			}
+			connection.commit();
+
+			int n = 0;
+			for (long customerID : customerIDs) {
+				for (int j = 0; j < config.purchasesPerCustomer; j++) {
+					long productID = productIDs[random.nextInt(productIDs.length)];
+					purchaseIDs[n++] = purchaseDAO.create(connection, newPurchase(random, customerID, productID)).getId();
+					if (n % 1000 == 0) {
+						connection.commit();
+					}
+				}
+			}
+			connection.commit();
+		}
+		catch (Exception ex) {
+			connection.rollback();
+			throw ex;
+		}
+		finally {
+			connection.setAutoCommit(true);
+			connection.close();
+		}
+
+		new PurchaseSummaryRebuildJob(dataSource, 4, 1000).run();
+		new PurchaseRollupRebuildJob(dataSource, 4, 1000).run();
+		return new BenchData(customerIDs, productIDs, purchaseIDs);
+	}
+
+	long customerID(Random random)
+	{
+		return customerIDs[random.nextInt(customerIDs.length)];
+	}
+
+	long productID(Random random)
+	{
+		return productIDs[random.nextInt(productIDs.length)];
+	}
+
+	long purchaseID(Random random)
+	{
+		return purchaseIDs[random.nextInt(purchaseIDs.length)];
+	}
+
+	static String zipCode(Random random)
+	{
+		return String.format("%05d", 75000 + random.nextInt(ZIP_CODES));
+	}
+
+	static int category(Random random)
+	{
+		return random.nextInt(CATEGORIES);
+	}
+
+	static String upc(long productIndex)
+	{
+		return String.format("%012d", productIndex);
+	}
+
+	/**
+	 * A random 30-day date-of-birth window.
+	 */
+	static Date[] dobRange(Random random)
+	{
+		long start = FIRST_DOB + (long) random.nextInt((int) DOB_SPAN_DAYS) * DAY_MILLIS;
+		return new Date[] { new Date(start), new Date(start + 30 * DAY_MILLIS) };
+	}
+
+	/**
+	 * A random purchase-date window of the given length.
+	 */
+	static Date[] purchaseRange(Random random, int days)
+	{
+		long start = FIRST_DOB + (long) random.nextInt(25000) * DAY_MILLIS;
+		return new Date[] { new Date(start), new Date(start + days * DAY_MILLIS) };
+	}
+
+	static Customer newCustomer(Random random)
+	{
+		Customer customer = new Customer();
+		customer.setFirstName("First" + random.nextInt(10000));
+		customer.setLastName("Last" + random.nextInt(10000));
+		customer.setGender(random.nextBoolean() ? 'M' : 'F');
+		customer.setDob(new Date(FIRST_DOB + (long) random.nextInt((int) DOB_SPAN_DAYS) * DAY_MILLIS));
+		customer.setEmail("user" + random.nextInt(1000000) + "@example.com");
+
+		Address address = new Address();
+		address.setAddress1(random.nextInt(9999) + " Main St");
+		address.setCity("Dallas");
+		address.setState("TX");
+		address.setZipcode(zipCode(random));
+		customer.setAddress(address);
+
+		CreditCard creditCard = new CreditCard();
+		creditCard.setName(customer.getFirstName() + " " + customer.getLastName());
+		creditCard.setCcNumber(String.format("4%015d", Math.abs(random.nextLong() % 1000000000000000L)));
+		creditCard.setExpDate(String.format("%02d/%02d", 1 + random.nextInt(12), 20 + random.nextInt(10)));
+		creditCard.setSecurityCode(String.format("%03d", random.nextInt(1000)));
+		customer.setCreditCard(creditCard);
+		return customer;
+	}
+
+	static Product newProduct(Random random, long index)
+	{
+		Product product = new Product();
+		product.setProdName("Product " + index);
+		product.setProdDescription("Description of product " + index);
+		product.setProdCategory(category(random));
+		product.setProdUPC(upc(index));
+		return product;
+	}
+
+	static Purchase newPurchase(Random random, long customerID, long productID)
+	{
+		Purchase purchase = new Purchase();
+		purchase.setCustomerID(customerID);
+		purchase.setProductID(productID);
+		purchase.setPurchaseDate(new Date(FIRST_DOB + (long) random.nextInt(25000) * DAY_MILLIS));
+		purchase.setPurchaseCents(1 + random.nextInt(99999));
+		return purchase;
+	}
+}
@@ -0,0 +1,63 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+/**
+ * Per-thread benchmark state. DAO benchmarks share one pooled connection
+ * for the whole run, kept in a transaction that is rolled back after every
+ * operation so writes never change the seeded data set.
+ */
+class BenchThread
+{
+	final Random random;
+	private final DataSource dataSource;
+	private Connection connection;
+
+	BenchThread(DataSource dataSource, long seed)
+	{
+		this.dataSource = dataSource;
+		this.random = new Random(seed);
+	}
+
+	Connection connection() throws SQLException
+	{
+		if (connection == null) {
+			connection = dataSource.getConnection();
+			connection.setAutoCommit(false);
+		}
+		return connection;
+	}
+
+	void endOperation() throws SQLException
+	{
+		if (connection != null) {
+			connection.rollback();
+		}
+	}
+
+	void close() throws SQLException
+	{
+		if (connection != null) {
+			connection.rollback();
+			connection.setAutoCommit(true);
+			connection.close();
+			connection = null;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+/**
+ * One named benchmark: a single DAO or service call with randomised
+ * arguments drawn from the seeded data.
+ */
+class Benchmark
+{
+	interface Operation
+	{
+		void run(BenchThread thread) throws Exception;
+	}
+
+	final String name;
+	final boolean dao;
+	private final Operation operation;
+
+	Benchmark(String name, boolean dao, Operation operation)
+	{
+		this.name = name;
+		this.dao = dao;
+		this.operation = operation;
+	}
+
+	void run(BenchThread thread) throws Exception
+	{
+		try {
+			operation.run(thread);
+		}
+		finally {
+			if (dao) {
+				thread.endOperation();
+			}
+		}
+	}
+}
@@ -0,0 +1,236 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cs4347.jdbcProject.ecomm.datasource.PooledDataSource;
+import cs4347.jdbcProject.ecomm.util.LatencyHistogram;
+
+/**
+ * Boots the schema, seeds the data set and runs every selected benchmark
+ * at each configured thread count. Each run is a timed warmup followed by
+ * a timed measurement; the report gives throughput, latency percentiles,
+ * bytes allocated per operation (HotSpot thread allocation counters) and
+ * GC activity during the measurement, one line per benchmark and thread
+ * count. The first exception of each run is printed to stderr; the rest
+ * are only counted in the errors column. See BenchConfig for the settings
+ * and bench/run-bench.sh for the one-line invocation.
+ */
+public class BenchmarkRunner
+{
+	private static final String HEADER = "benchmark,threads,ops,ops_per_sec,p50_us,p99_us,p999_us,max_us,"
+			+ "alloc_bytes_per_op,gc_count,gc_ms,errors";
+
+	public static void main(String[] args) throws Exception
+	{
+		BenchConfig config = new BenchConfig();
+		System.out.println("# " + config);
+		if (config.mode.equals("routing")) {
+			if (!new RoutingCheck(config).run()) {
+				System.exit(1);
+			}
+			return;
+		}
+		if (!config.mode.equals("run")) {
+			throw new IllegalArgumentException("Unknown bench.mode: " + config.mode);
+		}
+
+		try (PooledDataSource dataSource = new PooledDataSource(
+				new DriverManagerDataSource(config.url, config.user, config.password), config.poolSize)) {
+			Connection connection = dataSource.getConnection();
+			try {
+				new SchemaLoader(config.schema, config.mysql).load(connection);
+			}
+			finally {
+				connection.close();
+			}
+
+			long start = System.nanoTime();
+			BenchData data = BenchData.seed(dataSource, config);
+			System.out.printf("# seeded %d customers, %d products, %d purchases in %d ms%n",
+					data.customerIDs.length, data.productIDs.length, data.purchaseIDs.length,
+					(System.nanoTime() - start) / 1000000);
+
+			PrintWriter csv = config.out == null ? null : new PrintWriter(new FileWriter(config.out, true));
+			try {
+				System.out.println(HEADER);
+				if (csv != null) {
+					csv.println(HEADER);
+				}
+				for (Benchmark benchmark : Benchmarks.all(data, dataSource)) {
+					if (!config.include.matcher(benchmark.name).matches()) {
+						continue;
+					}
+					for (int threads : config.threads) {
+						String line = run(benchmark, threads, dataSource, config);
+						System.out.println(line);
+						if (csv != null) {
+							csv.println(line);
+							csv.flush();
+						}
+					}
+				}
+			}
+			finally {
+				if (csv != null) {
+					csv.close();
+				}
+			}
+			System.out.println("# " + dataSource.getStats());
+		}
+	}
+
+	private static String run(Benchmark benchmark, int threads, PooledDataSource dataSource, BenchConfig config)
+			throws InterruptedException, IOException
+	{
+		LatencyHistogram latency = new LatencyHistogram();
+		AtomicLong allocated = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		AtomicReference<Exception> firstError = new AtomicReference<>();
+		Phase phase = new Phase();
+		CountDownLatch done = new CountDownLatch(threads);
+
+		for (int i = 0; i < threads; i++) {
+			BenchThread state = new BenchThread(dataSource, config.seed + i);
+			Thread thread = new Thread(() -> {
+				try {
+					loop(benchmark, state, phase, latency, allocated, errors, firstError);
+				}
+				finally {
+					try {
+						state.close();
+					}
+					catch (Exception ex) {
+						errors.incrementAndGet();
+					}
+					done.countDown();
+				}
+			}, "bench-" + benchmark.name + "-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		Thread.sleep(config.warmupSeconds * 1000L);
+		long gcCount = gcCount();
+		long gcMillis = gcMillis();
+		long start = System.nanoTime();
+		phase.state = Phase.MEASURE;
+		Thread.sleep(config.measureSeconds * 1000L);
+		phase.state = Phase.DONE;
+		long elapsed = System.nanoTime() - start;
+		gcCount = gcCount() - gcCount;
+		gcMillis = gcMillis() - gcMillis;
+		done.await();
+		if (firstError.get() != null) {
+			System.err.println("# " + benchmark.name + " (" + threads + " threads) failed; first error:");
+			firstError.get().printStackTrace();
+		}
+
+		LatencyHistogram.Snapshot s = latency.snapshot();
+		long ops = s.getCount();
+		return String.format("%s,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%s,%d,%d,%d",
+				benchmark.name, threads, ops, ops * 1e9 / elapsed,
+				s.getValueAtPercentile(50) / 1000.0, s.getValueAtPercentile(99) / 1000.0,
+				s.getValueAtPercentile(99.9) / 1000.0, s.getMax() / 1000.0,
+				allocated.get() < 0 || ops == 0 ? "n/a" : String.valueOf(allocated.get() / ops),
+				gcCount, gcMillis, errors.get());
+	}
+
+	private static void loop(Benchmark benchmark, BenchThread state, Phase phase,
+			LatencyHistogram latency, AtomicLong allocated, AtomicLong errors, AtomicReference<Exception> firstError)
+	{
+		long threadID = Thread.currentThread().getId();
+		boolean measuring = false;
+		long allocatedAtStart = 0;
+		while (phase.state != Phase.DONE) {
+			if (!measuring && phase.state == Phase.MEASURE) {
+				measuring = true;
+				allocatedAtStart = allocatedBytes(threadID);
+			}
+			long t0 = System.nanoTime();
+			try {
+				benchmark.run(state);
+			}
+			catch (Exception ex) {
+				firstError.compareAndSet(null, ex);    // reported once per run, warmup included
+				if (measuring) {
+					errors.incrementAndGet();
+				}
+				continue;
+			}
+			if (measuring) {
+				latency.record(System.nanoTime() - t0);
+			}
+		}
+		if (measuring) {
+			long bytes = allocatedBytes(threadID);
+			if (bytes < 0 || allocatedAtStart < 0) {
+				allocated.set(Long.MIN_VALUE);
+			}
+			else {
+				allocated.addAndGet(bytes - allocatedAtStart);
+			}
+		}
+	}
+
+	/**
+	 * Bytes allocated by the thread so far, or -1 when the JVM does not
+	 * expose per-thread allocation counters.
+	 */
+	private static long allocatedBytes(long threadID)
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(threadID);
+		}
+		return -1;
+	}
+
+	private static long gcCount()
+	{
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionCount());
+		}
+		return total;
+	}
+
+	private static long gcMillis()
+	{
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return total;
+	}
+
+	private static class Phase
+	{
+		static final int WARMUP = 0;
+		static final int MEASURE = 1;
+		static final int DONE = 2;
+
+		volatile int state = WARMUP;
+	}
+}
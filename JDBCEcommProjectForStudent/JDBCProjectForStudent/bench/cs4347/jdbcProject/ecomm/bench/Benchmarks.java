@@ -0,0 +1,328 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.AddressDAO;
+import cs4347.jdbcProject.ecomm.dao.CreditCardDAO;
+import cs4347.jdbcProject.ecomm.dao.CustomerDAO;
+import cs4347.jdbcProject.ecomm.dao.CustomerGraphDAO;
+import cs4347.jdbcProject.ecomm.dao.ProductDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseSummaryDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.AddressDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.CreditCardDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.CustomerDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.CustomerGraphDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.ProductDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseSummaryDaoImpl;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.entity.Product;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.services.CustomerPersistenceService;
+import cs4347.jdbcProject.ecomm.services.ProductPersistenceService;
+import cs4347.jdbcProject.ecomm.services.ProductRankingOrder;
+import cs4347.jdbcProject.ecomm.services.PurchasePersistenceService;
+import cs4347.jdbcProject.ecomm.services.impl.CustomerPersistenceServiceImpl;
+import cs4347.jdbcProject.ecomm.services.impl.ProductCache;
+import cs4347.jdbcProject.ecomm.services.impl.ProductPersistenceServiceImpl;
+import cs4347.jdbcProject.ecomm.services.impl.PurchaseGroupCommitter;
+import cs4347.jdbcProject.ecomm.services.impl.PurchasePersistenceServiceImpl;
+
+/**
+ * The benchmark catalogue: every DAO and service method. DAO benchmarks
+ * ("dao.*") run on a per-thread connection and are rolled back after each
+ * call. Service benchmarks ("service.*") go through the pool like
+ * production code; their writes are paired (create then delete) or
+ * rewrite rows with values from the seeding distribution, so the data set
+ * keeps its shape for the whole run.
+ */
+class Benchmarks
+{
+	private static final int BATCH = 100;
+	private static final int PAGE = 20;
+
+	static List<Benchmark> all(BenchData data, DataSource dataSource)
+	{
+		List<Benchmark> list = new ArrayList<>();
+		AtomicLong upcs = new AtomicLong(1000000);
+
+		CustomerDAO customerDAO = new CustomerDaoImpl();
+		CustomerGraphDAO graphDAO = new CustomerGraphDaoImpl();
+		AddressDAO addressDAO = new AddressDaoImpl();
+		CreditCardDAO creditCardDAO = new CreditCardDaoImpl();
+		ProductDAO productDAO = new ProductDaoImpl();
+		PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+		PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
+
+		// Customer DAOs
+		dao(list, "dao.customer.create", t -> customerDAO.create(t.connection(), BenchData.newCustomer(t.random)));
+		dao(list, "dao.customer.createAll." + BATCH, t -> customerDAO.createAll(t.connection(), customers(t.random, BATCH)));
+		dao(list, "dao.customer.retrieve", t -> customerDAO.retrieve(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.customer.retrieveAll." + BATCH, t -> customerDAO.retrieveAll(t.connection(), customerIDs(data, t.random, BATCH)));
+		dao(list, "dao.customer.update", t -> customerDAO.update(t.connection(), existingCustomer(data, t.random)));
+		dao(list, "dao.customer.delete", t -> customerDAO.delete(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.customer.retrieveByZipCode", t -> customerDAO.retrieveByZipCode(t.connection(), BenchData.zipCode(t.random)));
+		dao(list, "dao.customer.retrieveByDOB", t -> {
+			Date[] range = BenchData.dobRange(t.random);
+			customerDAO.retrieveByDOB(t.connection(), range[0], range[1]);
+		});
+		dao(list, "dao.customer.retrieveByDOBPage." + PAGE, t -> {
+			Date[] range = BenchData.dobRange(t.random);
+			customerDAO.retrieveByDOBPage(t.connection(), range[0], range[1], null, PAGE);
+		});
+		dao(list, "dao.customerGraph.retrieve", t -> graphDAO.retrieve(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.customerGraph.retrieveAll." + BATCH, t -> graphDAO.retrieveAll(t.connection(), customerIDs(data, t.random, BATCH)));
+		dao(list, "dao.customerGraph.retrieveByZipCode", t -> graphDAO.retrieveByZipCode(t.connection(), BenchData.zipCode(t.random)));
+		dao(list, "dao.customerGraph.retrieveByDOB", t -> {
+			Date[] range = BenchData.dobRange(t.random);
+			graphDAO.retrieveByDOB(t.connection(), range[0], range[1]);
+		});
+		dao(list, "dao.customerGraph.retrieveByDOBPage." + PAGE, t -> {
+			Date[] range = BenchData.dobRange(t.random);
+			graphDAO.retrieveByDOBPage(t.connection(), range[0], range[1], null, PAGE);
+		});
+		dao(list, "dao.address.create", t -> {
+			Customer customer = BenchData.newCustomer(t.random);
+			addressDAO.create(t.connection(), customer.getAddress(), data.customerID(t.random));
+		});
+		dao(list, "dao.address.createAll." + BATCH, t -> addressDAO.createAll(t.connection(), existingCustomers(data, t.random, BATCH)));
+		dao(list, "dao.address.retrieveForCustomerID", t -> addressDAO.retrieveForCustomerID(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.address.deleteForCustomerID", t -> addressDAO.deleteForCustomerID(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.creditCard.create", t -> {
+			Customer customer = BenchData.newCustomer(t.random);
+			creditCardDAO.create(t.connection(), customer.getCreditCard(), data.customerID(t.random));
+		});
+		dao(list, "dao.creditCard.createAll." + BATCH, t -> creditCardDAO.createAll(t.connection(), existingCustomers(data, t.random, BATCH)));
+		dao(list, "dao.creditCard.retrieveForCustomerID", t -> creditCardDAO.retrieveForCustomerID(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.creditCard.deleteForCustomerID", t -> creditCardDAO.deleteForCustomerID(t.connection(), data.customerID(t.random)));
+
+		// Product DAO
+		dao(list, "dao.product.create", t -> productDAO.create(t.connection(), BenchData.newProduct(t.random, upcs.incrementAndGet())));
+		dao(list, "dao.product.retrieve", t -> productDAO.retrieve(t.connection(), data.productID(t.random)));
+		dao(list, "dao.product.retrieveAll." + BATCH, t -> productDAO.retrieveAll(t.connection(), productIDs(data, t.random, BATCH)));
+		dao(list, "dao.product.update", t -> productDAO.update(t.connection(), existingProduct(data, t.random)));
+		dao(list, "dao.product.delete", t -> productDAO.delete(t.connection(), data.productID(t.random)));
+		dao(list, "dao.product.retrieveByCategory", t -> productDAO.retrieveByCategory(t.connection(), BenchData.category(t.random)));
+		dao(list, "dao.product.retrieveByCategoryPage." + PAGE, t -> productDAO.retrieveByCategoryPage(t.connection(), BenchData.category(t.random), null, PAGE));
+		dao(list, "dao.product.retrieveByUPC", t -> productDAO.retrieveByUPC(t.connection(), BenchData.upc(t.random.nextInt(data.productIDs.length))));
+
+		// Purchase and summary DAOs
+		dao(list, "dao.purchase.create", t -> purchaseDAO.create(t.connection(), newPurchase(data, t.random)));
+		dao(list, "dao.purchase.retrieve", t -> purchaseDAO.retrieve(t.connection(), data.purchaseID(t.random)));
+		dao(list, "dao.purchase.retrieveAll." + BATCH, t -> purchaseDAO.retrieveAll(t.connection(), purchaseIDs(data, t.random, BATCH)));
+		dao(list, "dao.purchase.update", t -> purchaseDAO.update(t.connection(), existingPurchase(data, t.random, t.connection(), purchaseDAO)));
+		dao(list, "dao.purchase.delete", t -> purchaseDAO.delete(t.connection(), data.purchaseID(t.random)));
+		dao(list, "dao.purchase.retrieveForCustomerID", t -> purchaseDAO.retrieveForCustomerID(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.purchase.retrieveForProductID", t -> purchaseDAO.retrieveForProductID(t.connection(), data.productID(t.random)));
+		dao(list, "dao.purchase.retrieveCustomerIDsForProductID", t -> purchaseDAO.retrieveCustomerIDsForProductID(t.connection(), data.productID(t.random)));
+		dao(list, "dao.purchase.visitForCustomerID", t -> purchaseDAO.visitForCustomerID(t.connection(), data.customerID(t.random), 1000, p -> true));
+		dao(list, "dao.purchase.visitForProductID", t -> purchaseDAO.visitForProductID(t.connection(), data.productID(t.random), 1000, p -> true));
+		dao(list, "dao.purchase.retrieveColumnsForCustomerID", t -> purchaseDAO.retrieveColumnsForCustomerID(t.connection(), data.customerID(t.random), 1000));
+		dao(list, "dao.purchase.retrieveColumnsForProductID", t -> purchaseDAO.retrieveColumnsForProductID(t.connection(), data.productID(t.random), 1000));
+		dao(list, "dao.purchase.retrievePurchaseSummary", t -> purchaseDAO.retrievePurchaseSummary(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.purchase.retrievePurchaseSummaries." + BATCH, t -> purchaseDAO.retrievePurchaseSummaries(t.connection(), customerIDs(data, t.random, BATCH)));
+		dao(list, "dao.purchase.retrieveTopProducts.10", t -> purchaseDAO.retrieveTopProducts(t.connection(), ProductRankingOrder.REVENUE, BenchData.category(t.random), null, null, 10));
+		dao(list, "dao.purchaseSummary.applyPurchase", t -> summaryDAO.applyPurchase(t.connection(), data.customerID(t.random), 1234));
+		dao(list, "dao.purchaseSummary.refresh." + BATCH, t -> summaryDAO.refresh(t.connection(), customerIDs(data, t.random, BATCH)));
+		dao(list, "dao.purchaseSummary.retrieve", t -> summaryDAO.retrieve(t.connection(), data.customerID(t.random)));
+		dao(list, "dao.purchaseSummary.rebuildRange." + BATCH, t -> {
+			long first = data.customerID(t.random);
+			summaryDAO.rebuildRange(t.connection(), first, first + BATCH - 1);
+		});
+
+		// Customer service
+		CustomerPersistenceService customers = new CustomerPersistenceServiceImpl(dataSource);
+		service(list, "service.customer.create+delete", t -> {
+			Customer customer = customers.create(BenchData.newCustomer(t.random));
+			customers.delete(customer.getId());
+		});
+		service(list, "service.customer.createAll." + BATCH + "+delete", t -> {
+			for (Customer customer : customers.createAll(customers(t.random, BATCH)).created) {
+				customers.delete(customer.getId());
+			}
+		});
+		service(list, "service.customer.retrieve", t -> customers.retrieve(data.customerID(t.random)));
+		service(list, "service.customer.retrieveAll." + BATCH, t -> customers.retrieveAll(customerIDs(data, t.random, BATCH)));
+		service(list, "service.customer.update", t -> customers.update(existingCustomer(data, t.random)));
+		service(list, "service.customer.retrieveByZipCode", t -> customers.retrieveByZipCode(BenchData.zipCode(t.random)));
+		service(list, "service.customer.retrieveByDOB", t -> {
+			Date[] range = BenchData.dobRange(t.random);
+			customers.retrieveByDOB(range[0], range[1]);
+		});
+		service(list, "service.customer.retrieveByDOBPage." + PAGE + ".all", t -> {
+			// Walks every page of the range; compare per-page cost with retrieveByDOB
+			Date[] range = BenchData.dobRange(t.random);
+			String token = null;
+			do {
+				token = customers.retrieveByDOBPage(range[0], range[1], token, PAGE).nextPageToken;
+			} while (token != null);
+		});
+
+		// Product service, with and without the near-cache
+		ProductPersistenceService products = new ProductPersistenceServiceImpl(dataSource);
+		ProductPersistenceService cachedProducts = new ProductPersistenceServiceImpl(dataSource, new ProductCache(data.productIDs.length));
+		service(list, "service.product.create+delete", t -> {
+			Product product = products.create(BenchData.newProduct(t.random, upcs.incrementAndGet()));
+			products.delete(product.getId());
+		});
+		service(list, "service.product.update", t -> products.update(existingProduct(data, t.random)));
+		for (ProductPersistenceService service : new ProductPersistenceService[] { products, cachedProducts }) {
+			String prefix = service == products ? "service.product." : "service.product.cached.";
+			service(list, prefix + "retrieve", t -> service.retrieve(data.productID(t.random)));
+			service(list, prefix + "retrieveAll." + BATCH, t -> service.retrieveAll(productIDs(data, t.random, BATCH)));
+			service(list, prefix + "retrieveByUPC", t -> service.retrieveByUPC(BenchData.upc(t.random.nextInt(data.productIDs.length))));
+			service(list, prefix + "retrieveByCategory", t -> service.retrieveByCategory(BenchData.category(t.random)));
+			service(list, prefix + "retrieveByCategoryPage." + PAGE + ".all", t -> {
+				int category = BenchData.category(t.random);
+				String token = null;
+				do {
+					token = service.retrieveByCategoryPage(category, token, PAGE).nextPageToken;
+				} while (token != null);
+			});
+		}
+
+		// Purchase service
+		PurchasePersistenceService purchases = new PurchasePersistenceServiceImpl(dataSource);
+		service(list, "service.purchase.create+delete", t -> {
+			Purchase purchase = purchases.create(newPurchase(data, t.random));
+			purchases.delete(purchase.getId());
+		});
+		PurchasePersistenceServiceImpl groupPurchases = new PurchasePersistenceServiceImpl(dataSource);
+		groupPurchases.setGroupCommitter(new PurchaseGroupCommitter(dataSource, BATCH, 2, TimeUnit.MILLISECONDS));
+		service(list, "service.purchase.create+delete.groupCommit", t -> {
+			Purchase purchase = groupPurchases.create(newPurchase(data, t.random));
+			groupPurchases.delete(purchase.getId());
+		});
+		service(list, "service.purchase.retrieve", t -> purchases.retrieve(data.purchaseID(t.random)));
+		service(list, "service.purchase.retrieveAll." + BATCH, t -> purchases.retrieveAll(purchaseIDs(data, t.random, BATCH)));
+		service(list, "service.purchase.update", t -> {
+			Purchase purchase = purchases.retrieve(data.purchaseID(t.random));
+			purchase.setPurchaseCents(1 + t.random.nextInt(99999));
+			purchases.update(purchase);
+		});
+		service(list, "service.purchase.retrieveForCustomerID", t -> purchases.retrieveForCustomerID(data.customerID(t.random)));
+		service(list, "service.purchase.retrieveForProductID", t -> purchases.retrieveForProductID(data.productID(t.random)));
+		service(list, "service.purchase.visitForCustomerID", t -> purchases.visitForCustomerID(data.customerID(t.random), p -> true));
+		service(list, "service.purchase.visitForProductID", t -> purchases.visitForProductID(data.productID(t.random), p -> true));
+		service(list, "service.purchase.retrieveColumnsForProductID.total", t -> purchases.retrieveColumnsForProductID(data.productID(t.random)).totalCents());
+		service(list, "service.purchase.retrievePurchaseSummary", t -> purchases.retrievePurchaseSummary(data.customerID(t.random)));
+		service(list, "service.purchase.retrievePurchaseSummaries." + BATCH, t -> purchases.retrievePurchaseSummaries(customerIDs(data, t.random, BATCH)));
+		service(list, "service.purchase.retrieveTopProducts.10.cached", t -> purchases.retrieveTopProducts(ProductRankingOrder.REVENUE, BenchData.category(t.random), null, null, 10));
+		service(list, "service.purchase.retrieveDailyRevenue.90d", t -> {
+			Date[] range = BenchData.purchaseRange(t.random, 90);
+			purchases.retrieveDailyRevenue(data.productID(t.random), range[0], range[1]);
+		});
+		service(list, "service.purchase.retrieveMonthlyRevenue.5y", t -> {
+			Date[] range = BenchData.purchaseRange(t.random, 5 * 365);
+			purchases.retrieveMonthlyRevenue(data.productID(t.random), range[0], range[1]);
+		});
+		return list;
+	}
+
+	private static void dao(List<Benchmark> list, String name, Benchmark.Operation operation)
+	{
+		list.add(new Benchmark(name, true, operation));
+	}
+
+	private static void service(List<Benchmark> list, String name, Benchmark.Operation operation)
+	{
+		list.add(new Benchmark(name, false, operation));
+	}
+
+	private static List<Customer> customers(Random random, int count)
+	{
+		List<Customer> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			list.add(BenchData.newCustomer(random));
+		}
+		return list;
+	}
+
+	/**
+	 * New address and credit card values attached to existing customer ids.
+	 */
+	private static List<Customer> existingCustomers(BenchData data, Random random, int count)
+	{
+		List<Customer> list = customers(random, count);
+		for (Customer customer : list) {
+			customer.setId(data.customerID(random));
+		}
+		return list;
+	}
+
+	private static List<Long> customerIDs(BenchData data, Random random, int count)
+	{
+		List<Long> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(data.customerID(random));
+		}
+		return ids;
+	}
+
+	private static List<Long> productIDs(BenchData data, Random random, int count)
+	{
+		List<Long> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(data.productID(random));
+		}
+		return ids;
+	}
+
+	private static List<Long> purchaseIDs(BenchData data, Random random, int count)
+	{
+		List<Long> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(data.purchaseID(random));
+		}
+		return ids;
+	}
+
+	private static Customer existingCustomer(BenchData data, Random random)
+	{
+		Customer customer = BenchData.newCustomer(random);
+		customer.setId(data.customerID(random));
+		return customer;
+	}
+
+	private static Product existingProduct(BenchData data, Random random)
+	{
+		int index = random.nextInt(data.productIDs.length);
+		Product product = BenchData.newProduct(random, index);
+		product.setId(data.productIDs[index]);
+		return product;
+	}
+
+	private static Purchase existingPurchase(BenchData data, Random random, Connection connection, PurchaseDAO purchaseDAO)
+			throws Exception
+	{
+		Purchase purchase = purchaseDAO.retrieve(connection, data.purchaseID(random));
+		purchase.setPurchaseCents(1 + random.nextInt(99999));
+		return purchase;
+	}
+
+	private static Purchase newPurchase(BenchData data, Random random)
+	{
+		return BenchData.newPurchase(random, data.customerID(random), data.productID(random));
+	}
+}
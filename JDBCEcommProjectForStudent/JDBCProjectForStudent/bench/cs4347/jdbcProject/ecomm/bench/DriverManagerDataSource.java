@@ -0,0 +1,100 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Minimal DataSource over DriverManager so the benchmarks can run against
+ * any JDBC URL without a vendor DataSource class. It is wrapped in a
+ * PooledDataSource, so every getConnection() here opens a physical connection.
+ */
+class DriverManagerDataSource implements DataSource
+{
+	private final String url;
+	private final String user;
+	private final String password;
+
+	DriverManagerDataSource(String url, String user, String password)
+	{
+		this.url = url;
+		this.user = user;
+		this.password = password;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		return getConnection(user, password);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		return username == null
+				? DriverManager.getConnection(url)
+				: DriverManager.getConnection(url, username, password);
+	}
+
+	@Override
+	public PrintWriter getLogWriter()
+	{
+		return DriverManager.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out)
+	{
+		DriverManager.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds)
+	{
+		DriverManager.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout()
+	{
+		return DriverManager.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException
+	{
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException
+	{
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface)
+	{
+		return iface.isInstance(this);
+	}
+}
@@ -0,0 +1,176 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.datasource.ReadWriteRoutingDataSource;
+import cs4347.jdbcProject.ecomm.datasource.TracingDataSource;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.entity.Product;
+import cs4347.jdbcProject.ecomm.services.AsyncCustomerPersistenceService;
+import cs4347.jdbcProject.ecomm.services.CustomerPersistenceService;
+import cs4347.jdbcProject.ecomm.services.ProductPersistenceService;
+import cs4347.jdbcProject.ecomm.services.impl.AsyncCustomerPersistenceServiceImpl;
+import cs4347.jdbcProject.ecomm.services.impl.CustomerPersistenceServiceImpl;
+import cs4347.jdbcProject.ecomm.services.impl.DatabaseExecutor;
+import cs4347.jdbcProject.ecomm.services.impl.ProductCache;
+import cs4347.jdbcProject.ecomm.services.impl.ProductPersistenceServiceImpl;
+
+/**
+ * bench.mode=routing: checks ReadWriteRoutingDataSource against two real
+ * databases, bench.url as the primary and bench.replicaUrl as the replica.
+ * Both get the schema, but nothing replicates the primary's writes, so
+ * the replica behaves like one with unbounded lag: a read routed there
+ * misses a row the caller has just written. Prints one line per
+ * check; the process exits with status 1 if any check fails.
+ */
+class RoutingCheck
+{
+	private final BenchConfig config;
+	private int failures;
+
+	RoutingCheck(BenchConfig config)
+	{
+		this.config = config;
+	}
+
+	/**
+	 * @return true if every check passed
+	 */
+	boolean run() throws Exception
+	{
+		DataSource primary = new DriverManagerDataSource(config.url, config.user, config.password);
+		DataSource replica = new DriverManagerDataSource(config.replicaUrl, config.user, config.password);
+		load(primary);
+		load(replica);
+
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica);
+		CustomerPersistenceService customers = new CustomerPersistenceServiceImpl(routing);
+		Random random = new Random(config.seed);
+
+		Customer written = customers.create(BenchData.newCustomer(random));
+		check("read after a write on the same thread goes to the primary",
+				customers.retrieve(written.getId()) != null);
+
+		newCaller();
+		long replicaReads = routing.getReplicaConnectionCount();
+		check("read without a recent write goes to the replica",
+				customers.retrieve(written.getId()) == null && routing.getReplicaConnectionCount() > replicaReads);
+
+		newCaller();
+		try (DatabaseExecutor executor = new DatabaseExecutor(2)) {
+			AsyncCustomerPersistenceService async = new AsyncCustomerPersistenceServiceImpl(customers, executor);
+			Customer asyncWritten = async.create(BenchData.newCustomer(random)).get();
+			check("async read after an async write of the same caller goes to the primary",
+					async.retrieve(asyncWritten.getId()).get() != null);
+			check("read on the caller's thread after an async write goes to the primary",
+					customers.retrieve(asyncWritten.getId()) != null);
+		}
+
+		newCaller();
+		routing.setStickinessWindowMillis(50);
+		Customer expiring = customers.create(BenchData.newCustomer(random));
+		Thread.sleep(100);
+		check("read after the stickiness window goes to the replica",
+				customers.retrieve(expiring.getId()) == null);
+
+		newCaller();
+		routing.setStickinessWindowMillis(200);
+		ProductPersistenceService products = new ProductPersistenceServiceImpl(routing, new ProductCache(100));
+		Product product = products.create(BenchData.newProduct(random, 1));
+		replicate(replica, product);
+		product.setProdName("Renamed");
+		products.update(product);
+		newCaller();
+		products.retrieve(product.getId());    // old row, from the lagging replica
+		replicate(replica, product);
+		Thread.sleep(300);
+		check("product cache does not keep a row read from a lagging replica",
+				"Renamed".equals(products.retrieve(product.getId()).getProdName()));
+
+		newCaller();
+		ProductPersistenceService traced = new ProductPersistenceServiceImpl(new TracingDataSource(routing), new ProductCache(100));
+		Product tracedProduct = traced.create(BenchData.newProduct(random, 1));
+		replicate(replica, tracedProduct);
+		tracedProduct.setProdName("Renamed");
+		traced.update(tracedProduct);
+		newCaller();
+		traced.retrieve(tracedProduct.getId());    // old row, from the lagging replica
+		replicate(replica, tracedProduct);
+		Thread.sleep(300);
+		check("product cache behind a TracingDataSource does not keep a row read from a lagging replica",
+				"Renamed".equals(traced.retrieve(tracedProduct.getId()).getProdName()));
+
+		DataSource down = new DriverManagerDataSource(config.replicaUrl, config.user, config.password) {
+			@Override
+			public Connection getConnection() throws SQLException
+			{
+				throw new SQLException("replica down");
+			}
+		};
+		ReadWriteRoutingDataSource fallback = new ReadWriteRoutingDataSource(primary, down);
+		newCaller();
+		check("read falls back to the primary when the replica is down",
+				new CustomerPersistenceServiceImpl(fallback).retrieve(written.getId()) != null
+						&& fallback.getReplicaFailureCount() > 0);
+
+		System.out.printf("# routing: %d primary, %d replica, %d sticky connections%n",
+				routing.getPrimaryConnectionCount(), routing.getReplicaConnectionCount(), routing.getStickyReadCount());
+		return failures == 0;
+	}
+
+	private void load(DataSource dataSource) throws Exception
+	{
+		try (Connection connection = dataSource.getConnection()) {
+			new SchemaLoader(config.schema, config.mysql).load(connection);
+		}
+	}
+
+	/** Applies the product's current state to the replica, as replication would */
+	private static void replicate(DataSource replica, Product product) throws SQLException
+	{
+		try (Connection connection = replica.getConnection();
+				PreparedStatement delete = connection.prepareStatement("DELETE FROM product WHERE id = ?");
+				PreparedStatement insert = connection.prepareStatement(
+						"INSERT INTO product (id, prod_name, prod_desc, prod_category, prod_upc) VALUES (?, ?, ?, ?, ?)")) {
+			delete.setLong(1, product.getId());
+			delete.executeUpdate();
+			insert.setLong(1, product.getId());
+			insert.setString(2, product.getProdName());
+			insert.setString(3, product.getProdDescription());
+			insert.setInt(4, product.getProdCategory());
+			insert.setString(5, product.getProdUPC());
+			insert.executeUpdate();
+		}
+	}
+
+	/** Starts a caller with no recent writes on this thread */
+	private static void newCaller()
+	{
+		ReadWriteRoutingDataSource.bindSession(new ReadWriteRoutingDataSource.Session());
+	}
+
+	private void check(String name, boolean passed)
+	{
+		System.out.println((passed ? "ok      " : "FAILED  ") + name);
+		if (!passed) {
+			failures++;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs simple_company.sql against the benchmark database and empties its
+ * tables, then puts back the script's seed rows (the ID_BLOCK sequences)
+ * so id allocation restarts from the beginning. The script is MySQL
+ * Workbench output; for an embedded database (H2 in MySQL mode) the
+ * session SET statements, the schema qualifier and the MySQL-only table
+ * options are stripped first.
+ */
+class SchemaLoader
+{
+	// Children first so the deletes never trip a foreign key
+	private static final String[] TABLES = {
+		"id_block", "purchase_daily_rollup", "purchase_monthly_rollup",
+		"purchase_summary", "purchase", "address", "creditcard", "customer", "product"
+	};
+
+	private final Path script;
+	private final boolean mysql;
+
+	SchemaLoader(Path script, boolean mysql)
+	{
+		this.script = script;
+		this.mysql = mysql;
+	}
+
+	void load(Connection connection) throws IOException, SQLException
+	{
+		try (Statement st = connection.createStatement()) {
+			List<String> seeds = new ArrayList<>();
+			for (String sql : statements()) {
+				if (sql.toUpperCase().startsWith("INSERT")) {
+					seeds.add(sql);
+				}
+				else {
+					st.execute(sql);
+				}
+			}
+			for (String table : TABLES) {
+				st.executeUpdate("DELETE FROM " + table);
+			}
+			for (String sql : seeds) {
+				st.execute(sql);
+			}
+		}
+	}
+
+	List<String> statements() throws IOException
+	{
+		StringBuilder text = new StringBuilder();
+		for (String line : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+			if (!line.trim().startsWith("--")) {
+				text.append(line).append('\n');
+			}
+		}
+
+		List<String> result = new ArrayList<>();
+		for (String sql : text.toString().split(";")) {
+			sql = sql.trim();
+			if (sql.isEmpty()) {
+				continue;
+			}
+			if (!mysql) {
+				String upper = sql.toUpperCase();
+				if (upper.startsWith("SET ") || upper.startsWith("USE ") || upper.startsWith("CREATE SCHEMA")) {
+					continue;
+				}
+				sql = sql.replace("`simple_company`.", "")
+						.replaceAll("(?i)\\s*ENGINE\\s*=\\s*InnoDB", "")
+						.replaceAll("(?i)\\s+VISIBLE", "");
+			}
+			result.add(sql);
+		}
+		return result;
+	}
+}
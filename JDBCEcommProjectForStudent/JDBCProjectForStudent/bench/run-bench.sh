@@ -0,0 +1,30 @@
+#!/bin/sh
+# Compiles the project and the benchmarks and runs them.
+#
+#   JDBC_DRIVER=/path/to/h2.jar bench/run-bench.sh [-Dbench.xxx=... ...]
+#
+# JDBC_DRIVER is the driver jar for bench.url (H2 for the default embedded
+# database, MySQL Connector/J with -Dbench.mysql=true -Dbench.url=...).
+# Extra arguments are passed to the JVM; see BenchConfig for the settings.
+# Record -Dbench.out=results.csv before and after a change to compare runs.
+# -Dbench.mode=routing checks read/write routing against two databases
+# instead of running the benchmarks.
+set -e
+
+if [ -z "$JDBC_DRIVER" ]; then
+	echo "JDBC_DRIVER must point at the JDBC driver jar" >&2
+	exit 1
+fi
+
+PROJECT=$(cd "$(dirname "$0")/.." && pwd)
+ROOT=$(cd "$PROJECT/../.." && pwd)
+OUT="$PROJECT/bench-classes"
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+find "$PROJECT/src" "$PROJECT/bench" -name '*.java' > "$OUT/sources.txt"
+javac --release 8 -d "$OUT" @"$OUT/sources.txt"
+
+exec java -Xms1g -Xmx1g -XX:+UseParallelGC \
+	-Dbench.schema="$ROOT/simple_company.sql" "$@" \
+	-cp "$OUT:$JDBC_DRIVER" cs4347.jdbcProject.ecomm.bench.BenchmarkRunner
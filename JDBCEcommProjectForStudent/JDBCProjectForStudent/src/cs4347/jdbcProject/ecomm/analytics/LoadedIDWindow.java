@@ -0,0 +1,90 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.analytics;
+
+import java.util.Arrays;
+
+/**
+ * The ids a PurchaseSnapshot has loaded within window of its highest
+ * loaded id, so a refresh that re-reads that trailing range can skip the
+ * rows it already has. Ids at or below floor() are forgotten; at most
+ * window ids are kept, sorted, in one primitive array.
+ */
+final class LoadedIDWindow
+{
+	private final long window;
+	private long[] ids = new long[64];
+	private int head;
+	private int end;
+	private long highest;
+
+	LoadedIDWindow(long window)
+	{
+		this.window = window;
+	}
+
+	long highest()
+	{
+		return highest;
+	}
+
+	/** Ids above floor() may still commit after a refresh; ids at or below it are not re-read */
+	long floor()
+	{
+		return Math.max(0, highest - window);
+	}
+
+	boolean contains(long id)
+	{
+		return id <= highest && id > floor() && Arrays.binarySearch(ids, head, end, id) >= 0;
+	}
+
+	void add(long id)
+	{
+		if (id > highest) {
+			highest = id;
+			long floor = floor();
+			while (head < end && ids[head] <= floor) {
+				head++;
+			}
+			ensureRoom();
+			ids[end++] = id;
+			return;
+		}
+		if (id <= floor()) {
+			return;
+		}
+		ensureRoom();
+		int at = Arrays.binarySearch(ids, head, end, id);
+		if (at >= 0) {
+			return;
+		}
+		at = -at - 1;
+		System.arraycopy(ids, at, ids, at + 1, end - at);
+		ids[at] = id;
+		end++;
+	}
+
+	private void ensureRoom()
+	{
+		if (end < ids.length) {
+			return;
+		}
+		int count = end - head;
+		long[] target = count * 2 >= ids.length ? new long[ids.length * 2] : ids;
+		System.arraycopy(ids, head, target, 0, count);
+		ids = target;
+		head = 0;
+		end = count;
+	}
+}
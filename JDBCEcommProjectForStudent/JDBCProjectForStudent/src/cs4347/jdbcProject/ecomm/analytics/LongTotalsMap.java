@@ -0,0 +1,103 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import cs4347.jdbcProject.ecomm.util.Money;
+
+/**
+ * Open-addressing map from a long key to a purchase count and a cents
+ * total, used by the scan operators so grouping a row never boxes.
+ */
+final class LongTotalsMap
+{
+	private long[] keys;
+	private long[] counts;
+	private long[] cents;
+	private boolean[] used;
+	private int size;
+
+	LongTotalsMap()
+	{
+		this(64);
+	}
+
+	private LongTotalsMap(int capacity)
+	{
+		keys = new long[capacity];
+		counts = new long[capacity];
+		cents = new long[capacity];
+		used = new boolean[capacity];
+	}
+
+	void add(long key, long count, long amount)
+	{
+		if (size * 2 >= keys.length) {
+			grow();
+		}
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		if (!used[slot]) {
+			used[slot] = true;
+			keys[slot] = key;
+			size++;
+		}
+		counts[slot] += count;
+		cents[slot] = Money.add(cents[slot], amount);
+	}
+
+	/**
+	 * Adds every entry of other into this map and returns this map.
+	 */
+	LongTotalsMap merge(LongTotalsMap other)
+	{
+		for (int slot = 0; slot < other.keys.length; slot++) {
+			if (other.used[slot]) {
+				add(other.keys[slot], other.counts[slot], other.cents[slot]);
+			}
+		}
+		return this;
+	}
+
+	Map<Long, PurchaseSnapshot.Totals> toMap()
+	{
+		Map<Long, PurchaseSnapshot.Totals> map = new HashMap<>(size * 2);
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (used[slot]) {
+				map.put(keys[slot], new PurchaseSnapshot.Totals(counts[slot], cents[slot]));
+			}
+		}
+		return map;
+	}
+
+	private void grow()
+	{
+		LongTotalsMap bigger = new LongTotalsMap(keys.length * 2);
+		bigger.merge(this);
+		keys = bigger.keys;
+		counts = bigger.counts;
+		cents = bigger.cents;
+		used = bigger.used;
+	}
+
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
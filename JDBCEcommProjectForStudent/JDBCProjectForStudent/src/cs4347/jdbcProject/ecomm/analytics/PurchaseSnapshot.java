@@ -0,0 +1,338 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.analytics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.datasource.DataSources;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumnVisitor;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Money;
+
+/**
+ * In-process columnar copy of PURCHASE for analytics. Each purchase is
+ * stored as five primitive columns (id, customer id, product id, epoch
+ * day, amount in cents), 36 bytes per row, in direct ByteBuffers outside
+ * the Java heap, so a few million purchases cost no GC work at all.
+ *
+ * Rows live in fixed-size segments. Segments are never moved once
+ * allocated; growing the snapshot only adds segments, and the aggregate
+ * operators scan segments in parallel on the common ForkJoinPool.
+ *
+ * Ids do not become visible in id order: concurrent AUTO_INCREMENT
+ * inserts, group commits, the bulk loader's parallel writers and
+ * BlockIdAllocator ids can all commit a lower id after a higher one. So
+ * refresh() re-reads every id within rescanIDs of the highest loaded id,
+ * skips the ones it already has and appends the rest. A row that commits
+ * when its id is already more than rescanIDs below the highest loaded id
+ * is missed until the next load(); size the window to cover the ids that
+ * can be in flight at once (with BlockIdAllocator, at least the block
+ * size times the number of writers). Updates and deletes of rows already
+ * loaded are not seen either. One thread may refresh while others run
+ * queries: a query sees the rows that were loaded when it started.
+ * Refreshes are serialized with a ReentrantLock rather than synchronized,
+ * so a virtual thread waiting on the database does not pin its carrier.
+ */
+public class PurchaseSnapshot
+{
+	/** Purchase count and total amount of a group of purchases */
+	public static final class Totals
+	{
+		public final long count;
+		public final long cents;
+
+		Totals(long count, long cents)
+		{
+			this.count = count;
+			this.cents = cents;
+		}
+
+		@Override
+		public String toString()
+		{
+			return count + " purchases, " + cents + " cents";
+		}
+	}
+
+	/** Grouping key for totalsBy */
+	public enum Key
+	{
+		CUSTOMER, PRODUCT, DAY
+	}
+
+	private static final MethodMetrics refreshMetrics = PersistenceMetrics.register("PurchaseSnapshot.refresh");
+
+	/** rescanIDs used by load(DataSource, int) */
+	public static final int DEFAULT_RESCAN_IDS = 10_000;
+
+	static final int SEGMENT_ROWS = 1 << 16;
+	static final int BYTES_PER_ROW = 8 + 8 + 8 + 4 + 8;
+
+	private final DataSource dataSource;
+	private final int fetchSize;
+	private volatile Segment[] segments = new Segment[0];
+	private volatile int size;
+	private volatile long lastLoadedID;
+	private final LoadedIDWindow loadedIDs;
+	private final ReentrantLock refreshLock = new ReentrantLock();
+
+	private PurchaseSnapshot(DataSource dataSource, int fetchSize, int rescanIDs)
+	{
+		this.dataSource = dataSource;
+		this.fetchSize = fetchSize;
+		this.loadedIDs = new LoadedIDWindow(rescanIDs);
+	}
+
+	/**
+	 * Builds a snapshot of the whole PURCHASE table.
+	 * @param fetchSize rows per round trip; see PurchaseDAO.visitForCustomerID
+	 */
+	public static PurchaseSnapshot load(DataSource dataSource, int fetchSize) throws SQLException, DAOException
+	{
+		return load(dataSource, fetchSize, DEFAULT_RESCAN_IDS);
+	}
+
+	/**
+	 * Builds a snapshot of the whole PURCHASE table.
+	 * @param fetchSize rows per round trip; see PurchaseDAO.visitForCustomerID
+	 * @param rescanIDs how far below the highest loaded id each refresh
+	 *        looks for rows that committed late
+	 */
+	public static PurchaseSnapshot load(DataSource dataSource, int fetchSize, int rescanIDs) throws SQLException, DAOException
+	{
+		if (rescanIDs < 0) {
+			throw new IllegalArgumentException("rescanIDs must not be negative");
+		}
+		PurchaseSnapshot snapshot = new PurchaseSnapshot(dataSource, fetchSize, rescanIDs);
+		snapshot.refresh();
+		return snapshot;
+	}
+
+	/**
+	 * Appends purchases committed since the last load, including ones
+	 * with an id within rescanIDs below the highest loaded id.
+	 * @return the number of rows added
+	 */
+	public int refresh() throws SQLException, DAOException
+	{
+		refreshLock.lock();
+		try {
+			PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+			long start = System.nanoTime();
+			Connection connection = DataSources.getReadConnection(dataSource);
+			try {
+				int before = size;
+				purchaseDAO.visitColumnsAfterID(connection, loadedIDs.floor(), fetchSize, this::append);
+				return refreshMetrics.success(start, size - before);
+			}
+			catch (Exception ex) {
+				refreshMetrics.failure(start, ex);
+				throw ex;
+			}
+			finally {
+				if (connection != null && !connection.isClosed()) {
+					connection.close();
+				}
+			}
+		}
+		finally {
+			refreshLock.unlock();
+		}
+	}
+
+	/**
+	 * Called by the refreshing thread only. size is written last, which
+	 * publishes the row to threads that read size afterwards.
+	 */
+	private boolean append(long id, long customerID, long productID, int epochDay, long cents)
+	{
+		if (loadedIDs.contains(id)) {
+			return true;    // loaded by an earlier refresh
+		}
+		int row = size;
+		int segment = row / SEGMENT_ROWS;
+		if (segment == segments.length) {
+			Segment[] grown = Arrays.copyOf(segments, segment + 1);
+			grown[segment] = new Segment();
+			segments = grown;
+		}
+		segments[segment].put(row % SEGMENT_ROWS, id, customerID, productID, epochDay, cents);
+		loadedIDs.add(id);
+		lastLoadedID = loadedIDs.highest();
+		size = row + 1;
+		return true;
+	}
+
+	/** Number of purchases in the snapshot */
+	public int size()
+	{
+		return size;
+	}
+
+	/** Highest id in the snapshot */
+	public long getLastLoadedID()
+	{
+		return lastLoadedID;
+	}
+
+	/** Off-heap bytes allocated for the columns */
+	public long getMemoryBytes()
+	{
+		return (long) segments.length * SEGMENT_ROWS * BYTES_PER_ROW;
+	}
+
+	/**
+	 * Count and total of purchases dated within the inclusive range. Null
+	 * bounds leave that side open; purchases without a date only count
+	 * when both bounds are null.
+	 */
+	public Totals totals(LocalDate from, LocalDate to)
+	{
+		int fromDay = fromDay(from, to);
+		int toDay = toDay(to);
+		int rows = size;
+		Segment[] segs = segments;
+		long[] sums = IntStream.range(0, segmentCount(rows)).parallel()
+				.mapToObj(s -> segs[s].sum(rowsIn(s, rows), fromDay, toDay))
+				.reduce((a, b) -> new long[] { a[0] + b[0], Money.add(a[1], b[1]) })
+				.orElse(new long[2]);
+		return new Totals(sums[0], sums[1]);
+	}
+
+	/**
+	 * Count and total of purchases dated within the inclusive range,
+	 * grouped by customer id, product id or epoch day. Each segment is
+	 * aggregated on its own thread and the partial maps are merged.
+	 */
+	public Map<Long, Totals> totalsBy(Key key, LocalDate from, LocalDate to)
+	{
+		int fromDay = fromDay(from, to);
+		int toDay = toDay(to);
+		int rows = size;
+		Segment[] segs = segments;
+		return IntStream.range(0, segmentCount(rows)).parallel()
+				.mapToObj(s -> segs[s].group(key, rowsIn(s, rows), fromDay, toDay))
+				.reduce(LongTotalsMap::merge)
+				.orElseGet(LongTotalsMap::new)
+				.toMap();
+	}
+
+	private static int fromDay(LocalDate from, LocalDate to)
+	{
+		if (from != null) {
+			return (int) from.toEpochDay();
+		}
+		return to == null ? Integer.MIN_VALUE : PurchaseColumnVisitor.NO_DATE + 1;
+	}
+
+	private static int toDay(LocalDate to)
+	{
+		return to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+	}
+
+	private static int segmentCount(int rows)
+	{
+		return (rows + SEGMENT_ROWS - 1) / SEGMENT_ROWS;
+	}
+
+	private static int rowsIn(int segment, int rows)
+	{
+		return Math.min(SEGMENT_ROWS, rows - segment * SEGMENT_ROWS);
+	}
+
+	/**
+	 * SEGMENT_ROWS rows as five column views over one direct buffer.
+	 * Only absolute get and put are used, so concurrent readers do not
+	 * share any buffer position.
+	 */
+	private static final class Segment
+	{
+		final LongBuffer ids;
+		final LongBuffer customerIDs;
+		final LongBuffer productIDs;
+		final IntBuffer epochDays;
+		final LongBuffer cents;
+
+		Segment()
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(SEGMENT_ROWS * BYTES_PER_ROW).order(ByteOrder.nativeOrder());
+			ids = slice(buffer, 0, 8).asLongBuffer();
+			customerIDs = slice(buffer, 1, 8).asLongBuffer();
+			productIDs = slice(buffer, 2, 8).asLongBuffer();
+			cents = slice(buffer, 3, 8).asLongBuffer();
+			epochDays = slice(buffer, 4, 4).asIntBuffer();
+		}
+
+		/** The column'th block of SEGMENT_ROWS * width bytes; the 8-byte columns come first */
+		private static ByteBuffer slice(ByteBuffer buffer, int column, int width)
+		{
+			ByteBuffer dup = buffer.duplicate();
+			dup.position(column * SEGMENT_ROWS * 8);
+			dup.limit(dup.position() + SEGMENT_ROWS * width);
+			return dup.slice().order(ByteOrder.nativeOrder());
+		}
+
+		void put(int row, long id, long customerID, long productID, int epochDay, long amount)
+		{
+			ids.put(row, id);
+			customerIDs.put(row, customerID);
+			productIDs.put(row, productID);
+			epochDays.put(row, epochDay);
+			cents.put(row, amount);
+		}
+
+		long[] sum(int rows, int fromDay, int toDay)
+		{
+			long count = 0;
+			long total = 0;
+			for (int row = 0; row < rows; row++) {
+				int day = epochDays.get(row);
+				if (day >= fromDay && day <= toDay) {
+					count++;
+					total = Money.add(total, cents.get(row));
+				}
+			}
+			return new long[] { count, total };
+		}
+
+		LongTotalsMap group(Key key, int rows, int fromDay, int toDay)
+		{
+			LongTotalsMap groups = new LongTotalsMap();
+			for (int row = 0; row < rows; row++) {
+				int day = epochDays.get(row);
+				if (day < fromDay || day > toDay) {
+					continue;
+				}
+				long k = key == Key.CUSTOMER ? customerIDs.get(row) : key == Key.PRODUCT ? productIDs.get(row) : day;
+				groups.add(k, 1, cents.get(row));
+			}
+			return groups;
+		}
+	}
+}
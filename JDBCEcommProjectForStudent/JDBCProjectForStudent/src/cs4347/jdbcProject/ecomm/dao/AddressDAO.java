@@ -14,8 +14,10 @@ package cs4347.jdbcProject.ecomm.dao;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 import cs4347.jdbcProject.ecomm.entity.Address;
+import cs4347.jdbcProject.ecomm.entity.Customer;
 import cs4347.jdbcProject.ecomm.util.DAOException;
 
 /**
@@ -25,7 +27,19 @@ public interface AddressDAO
 {
 	Address create(Connection connection, Address address, Long customerID) throws SQLException, DAOException;
 	
+	/**
+	 * Inserts the Address of each given persisted Customer in one JDBC batch.
+	 */
+	void createAll(Connection connection, List<Customer> customers) throws SQLException, DAOException;
+	
 	Address retrieveForCustomerID(Connection connection, Long customerID) throws SQLException, DAOException;
 	
+	/**
+	 * Updates only the columns that differ between original and address.
+	 * No statement is sent when nothing changed.
+	 * @return the number of rows updated, 0 when nothing changed.
+	 */
+	int updateChanged(Connection connection, Address original, Address address, Long customerID) throws SQLException, DAOException;
+	
 	void deleteForCustomerID(Connection connection, Long customerID) throws SQLException, DAOException;
 }
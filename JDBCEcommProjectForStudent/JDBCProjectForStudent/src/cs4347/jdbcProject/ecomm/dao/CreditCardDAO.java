@@ -14,8 +14,10 @@ package cs4347.jdbcProject.ecomm.dao;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 import cs4347.jdbcProject.ecomm.entity.CreditCard;
+import cs4347.jdbcProject.ecomm.entity.Customer;
 import cs4347.jdbcProject.ecomm.util.DAOException;
 
 /**
@@ -25,7 +27,19 @@ public interface CreditCardDAO
 {
 	CreditCard create(Connection connection, CreditCard creditCard, Long customerID) throws SQLException, DAOException;
 	
+	/**
+	 * Inserts the CreditCard of each given persisted Customer in one JDBC batch.
+	 */
+	void createAll(Connection connection, List<Customer> customers) throws SQLException, DAOException;
+	
 	CreditCard retrieveForCustomerID(Connection connection, Long customerID) throws SQLException, DAOException;
 	
+	/**
+	 * Updates only the columns that differ between original and creditCard.
+	 * No statement is sent when nothing changed.
+	 * @return the number of rows updated, 0 when nothing changed.
+	 */
+	int updateChanged(Connection connection, CreditCard original, CreditCard creditCard, Long customerID) throws SQLException, DAOException;
+	
 	void deleteForCustomerID(Connection connection, Long customerID) throws SQLException, DAOException;
 }
@@ -15,10 +15,13 @@ package cs4347.jdbcProject.ecomm.dao;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import cs4347.jdbcProject.ecomm.entity.Customer;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 /**
  * The CustomerDAO exclusively updates the CUSTOMER table.
@@ -38,18 +41,60 @@ public interface CustomerDAO
 	 */
 	Customer create(Connection connection, Customer customer) throws SQLException, DAOException;
 	
+	/**
+	 * Inserts all given Customers in one JDBC batch and sets each
+	 * Customer's ID from the generated keys, in list order.
+	 * @throws DAOException if any given Customer has a non-null id.
+	 */
+	List<Customer> createAll(Connection connection, List<Customer> customers) throws SQLException, DAOException;
+	
+	/**
+	 * Inserts a Customer whose ID was assigned by the caller, as in
+	 * sharded mode where ids come from an id block allocator.
+	 * @throws DAOException if the given Customer has a null id.
+	 */
+	Customer createWithID(Connection connection, Customer customer) throws SQLException, DAOException;
+	
+	/**
+	 * Batched createWithID.
+	 * @throws DAOException if any given Customer has a null id.
+	 */
+	List<Customer> createAllWithIDs(Connection connection, List<Customer> customers) throws SQLException, DAOException;
+	
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * ID is null. 
 	 */
 	Customer retrieve(Connection connection, Long id) throws SQLException, DAOException;
 	
+	/**
+	 * Retrieve the customers with the given ids using chunked IN-list
+	 * queries. The result follows the order of the given ids and lists
+	 * the ids that have no row.
+	 * @throws DAOException if the provided ID collection is null.
+	 */
+	RetrieveAllResult<Customer> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException;
+	
+	/**
+	 * Returns every CUSTOMER id in ascending order. Used by bulk loads to
+	 * check foreign keys in memory instead of per row.
+	 */
+	long[] retrieveIDs(Connection connection) throws SQLException, DAOException;
+	
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * Customer has a NULL id. 
 	 */
 	int update(Connection connection, Customer customer) throws SQLException, DAOException;
 	
+	/**
+	 * Updates only the CUSTOMER columns that differ between original and
+	 * customer. No statement is sent when nothing changed.
+	 * @return the number of rows updated, 0 when nothing changed.
+	 * @throws DAOException if the provided Customer has a NULL id.
+	 */
+	int updateChanged(Connection connection, Customer original, Customer customer) throws SQLException, DAOException;
+	
 	/**
 	 * The delete method must throw DAOException if the provided 
 	 * ID is null. 
@@ -71,4 +116,11 @@ public interface CustomerDAO
 	 * Retrieve customers with a DOB in the given start / end date range.
 	 */
 	List<Customer> retrieveByDOB(Connection connection, Date startDate, Date endDate) throws SQLException, DAOException;
+
+	/**
+	 * Retrieve one page of customers with a DOB in the given range,
+	 * ordered by DOB then id. Pass null for the first page and the
+	 * returned nextPageToken for each following page.
+	 */
+	Page<Customer> retrieveByDOBPage(Connection connection, Date startDate, Date endDate, String pageToken, int pageSize) throws SQLException, DAOException;
 }
@@ -0,0 +1,74 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Read-only DAO that loads CUSTOMER rows together with their ADDRESS
+ * and CREDITCARD rows in a single joined query, returning Customer
+ * instances with Address and CreditCard already assigned. This lets
+ * the CustomerPersistenceService build the customer graph in one
+ * round trip instead of one query per customer per table.
+ */
+public interface CustomerGraphDAO
+{
+	/**
+	 * Returns null if no customer has the given ID.
+	 * @throws DAOException if the provided ID is null.
+	 */
+	Customer retrieve(Connection connection, Long id) throws SQLException, DAOException;
+	
+	/**
+	 * Same as retrieve, but locks the customer, address and credit card
+	 * rows with SELECT ... FOR UPDATE until the connection's transaction
+	 * ends, so a diff computed in that transaction cannot go stale.
+	 * @throws DAOException if the provided ID is null.
+	 */
+	Customer retrieveForUpdate(Connection connection, Long id) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the customers with the given ids, with Address and
+	 * CreditCard assigned, using one joined IN-list query per chunk.
+	 * The result follows the order of the given ids and lists the ids
+	 * that have no row.
+	 * @throws DAOException if the provided ID collection is null.
+	 */
+	RetrieveAllResult<Customer> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve customers in the given address.zipcode
+	 */
+	List<Customer> retrieveByZipCode(Connection connection, String zipCode) throws SQLException, DAOException;
+
+	/**
+	 * Retrieve customers with a DOB in the given start / end date range.
+	 */
+	List<Customer> retrieveByDOB(Connection connection, Date startDate, Date endDate) throws SQLException, DAOException;
+
+	/**
+	 * Retrieve one page of customers with a DOB in the given range,
+	 * ordered by DOB then id. Pass null for the first page and the
+	 * returned nextPageToken for each following page.
+	 */
+	Page<Customer> retrieveByDOBPage(Connection connection, Date startDate, Date endDate, String pageToken, int pageSize) throws SQLException, DAOException;
+}
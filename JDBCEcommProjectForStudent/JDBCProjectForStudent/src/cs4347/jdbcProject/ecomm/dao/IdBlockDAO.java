@@ -0,0 +1,35 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * DAO that exclusively updates the ID_BLOCK table, which holds the next
+ * unreserved id of each named sequence.
+ */
+public interface IdBlockDAO
+{
+	/**
+	 * Reserves blockSize consecutive ids of the named sequence. The
+	 * sequence row stays locked until the caller's transaction ends, so
+	 * run this in a short transaction of its own.
+	 * @return the first reserved id
+	 * @throws DAOException if the sequence does not exist or blockSize is
+	 * not positive
+	 */
+	long reserve(Connection connection, String sequence, int blockSize) throws SQLException, DAOException;
+}
@@ -14,10 +14,13 @@ package cs4347.jdbcProject.ecomm.dao;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import cs4347.jdbcProject.ecomm.entity.Product;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 /**
  * DAO that exclusively updates the PRODUCT table. 
@@ -39,6 +42,20 @@ public interface ProductDAO
 	 */
 	Product retrieve(Connection connection, Long id) throws SQLException, DAOException;
 	
+	/**
+	 * Retrieve the products with the given ids using chunked IN-list
+	 * queries. The result follows the order of the given ids and lists
+	 * the ids that have no row.
+	 * @throws DAOException if the provided ID collection is null.
+	 */
+	RetrieveAllResult<Product> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException;
+	
+	/**
+	 * Returns every PRODUCT id in ascending order. Used by bulk loads to
+	 * check foreign keys in memory instead of per row.
+	 */
+	long[] retrieveIDs(Connection connection) throws SQLException, DAOException;
+	
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * Product has a NULL id. 
@@ -56,9 +73,22 @@ public interface ProductDAO
 	 */
 	List<Product> retrieveByCategory(Connection connection, int category) throws SQLException, DAOException;
 
+	/**
+	 * Retrieve one page of products in the given category, ordered by
+	 * name then id. Pass null for the first page and the returned
+	 * nextPageToken for each following page.
+	 */
+	Page<Product> retrieveByCategoryPage(Connection connection, int category, String pageToken, int pageSize) throws SQLException, DAOException;
+
 	/**
 	 * Retrieve the product with the given UPC. UPC is unique across all product. 
 	 */
 	Product retrieveByUPC(Connection connection, String upc) throws SQLException, DAOException;
 
+	/**
+	 * Returns the lowest and highest PRODUCT id, or null if there are no
+	 * products. Used to partition batch jobs by product id range.
+	 */
+	long[] retrieveIDBounds(Connection connection) throws SQLException, DAOException;
+
 }
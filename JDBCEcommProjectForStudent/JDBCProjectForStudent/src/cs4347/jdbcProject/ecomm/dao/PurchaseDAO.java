@@ -13,12 +13,21 @@
 package cs4347.jdbcProject.ecomm.dao;
 
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.services.ProductRanking;
+import cs4347.jdbcProject.ecomm.services.ProductRankingOrder;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumnVisitor;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumns;
 import cs4347.jdbcProject.ecomm.services.PurchaseSummary;
+import cs4347.jdbcProject.ecomm.services.PurchaseVisitor;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 /**
  * DAO that exclusively updates the PURCHASE table. 
@@ -34,12 +43,42 @@ public interface PurchaseDAO
 	 */
 	Purchase create(Connection connection, Purchase purchase) throws SQLException, DAOException;
 	
+	/**
+	 * Inserts all given Purchases in one JDBC batch and sets each
+	 * Purchase's ID from the generated keys, in list order.
+	 * @throws DAOException if any given Purchase has a non-null id.
+	 */
+	List<Purchase> createAll(Connection connection, List<Purchase> purchases) throws SQLException, DAOException;
+	
+	/**
+	 * Inserts a Purchase whose ID was assigned by the caller, as in
+	 * sharded mode where ids come from an id block allocator.
+	 * @throws DAOException if the given Purchase has a null id.
+	 */
+	Purchase createWithID(Connection connection, Purchase purchase) throws SQLException, DAOException;
+	
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * ID is null. 
 	 */
 	Purchase retrieve(Connection connection, Long id) throws SQLException, DAOException;
 	
+	/**
+	 * Same as retrieve, but locks the row with SELECT ... FOR UPDATE until
+	 * the connection's transaction ends, so a read-modify-write in that
+	 * transaction sees the row no concurrent writer can change.
+	 * @throws DAOException if the provided ID is null.
+	 */
+	Purchase retrieveForUpdate(Connection connection, Long id) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the purchases with the given ids using chunked IN-list
+	 * queries. The result follows the order of the given ids and lists
+	 * the ids that have no row.
+	 * @throws DAOException if the provided ID collection is null.
+	 */
+	RetrieveAllResult<Purchase> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException;
+	
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * Purchase has a NULL id. 
@@ -62,8 +101,75 @@ public interface PurchaseDAO
 	 */
 	List<Purchase> retrieveForProductID(Connection connection, Long productID) throws SQLException, DAOException;
 	
+	/**
+	 * Retrieve the distinct ids of customers who purchased the given product
+	 */
+	List<Long> retrieveCustomerIDsForProductID(Connection connection, Long productID) throws SQLException, DAOException;
+	
+	/**
+	 * Stream purchases for the given customer id to the visitor without
+	 * buffering the result. Rows are fetched fetchSize at a time through
+	 * a forward-only cursor; with MySQL this needs useCursorFetch=true on
+	 * the connection URL (or Integer.MIN_VALUE for row-by-row streaming).
+	 * @return the number of purchases visited
+	 */
+	int visitForCustomerID(Connection connection, Long customerID, int fetchSize, PurchaseVisitor visitor) throws SQLException, DAOException;
+	
+	/**
+	 * Stream purchases for the given product id to the visitor without
+	 * buffering the result. See visitForCustomerID.
+	 * @return the number of purchases visited
+	 */
+	int visitForProductID(Connection connection, Long productID, int fetchSize, PurchaseVisitor visitor) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve purchases for the given customer id as primitive columns
+	 * instead of Purchase objects. See visitForCustomerID for fetchSize.
+	 */
+	PurchaseColumns retrieveColumnsForCustomerID(Connection connection, Long customerID, int fetchSize) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve purchases for the given product id as primitive columns
+	 * instead of Purchase objects. See visitForCustomerID for fetchSize.
+	 */
+	PurchaseColumns retrieveColumnsForProductID(Connection connection, Long productID, int fetchSize) throws SQLException, DAOException;
+	
+	/**
+	 * Stream the columns of every purchase with an id greater than afterID,
+	 * in id order, without creating Purchase objects. Used to build and
+	 * incrementally refresh in-memory snapshots. See visitForCustomerID
+	 * for fetchSize.
+	 * @return the number of purchases visited
+	 */
+	int visitColumnsAfterID(Connection connection, long afterID, int fetchSize, PurchaseColumnVisitor visitor) throws SQLException, DAOException;
+	
 	/**
 	 * Retrieve purchase summary for the given customer id
 	 */
 	PurchaseSummary retrievePurchaseSummary(Connection connection, Long customerID) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve purchase summaries for many customers, aggregated in the
+	 * database with one grouped query per chunk of ids. Customers without
+	 * purchases have no entry in the returned map.
+	 */
+	Map<Long, PurchaseSummary> retrievePurchaseSummaries(Connection connection, Collection<Long> customerIDs) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the limit products with the highest revenue or purchase
+	 * count, aggregated in the database. Ties are broken by product id.
+	 * @param category only products in this category, or null for all
+	 * @param from first purchase date included, or null
+	 * @param to last purchase date included, or null
+	 * @throws DAOException if order is null or limit is not positive.
+	 */
+	List<ProductRanking> retrieveTopProducts(Connection connection, ProductRankingOrder order, Integer category, Date from, Date to, int limit) throws SQLException, DAOException;
+	
+	/**
+	 * Purchase count and revenue of every product with purchases matching
+	 * the same filters as retrieveTopProducts, in product id order. Per
+	 * shard top-N lists do not add up to the global top-N, so sharded mode
+	 * merges these full totals instead.
+	 */
+	List<ProductRanking> retrieveProductTotals(Connection connection, Integer category, Date from, Date to) throws SQLException, DAOException;
 }
@@ -0,0 +1,84 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.services.RevenueBucket;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * DAO that exclusively updates the PURCHASE_DAILY_ROLLUP and
+ * PURCHASE_MONTHLY_ROLLUP tables, which hold purchase counts and totals
+ * per product and day or month. Callers are expected to invoke the apply
+ * methods in the same transaction as the PURCHASE write they reflect.
+ *
+ * Changes are always applied to the daily table, also for days in months
+ * that were already compacted; the next compaction folds such late
+ * corrections into the month row, and queries add both tables together
+ * in the meantime.
+ */
+public interface PurchaseRollupDAO
+{
+	/**
+	 * Adds countDelta and centsDelta to the day of purchaseDate, taken in
+	 * the session time zone like the rebuild does. Pass negative deltas
+	 * to take a purchase out. Purchases without a date are
+	 * not rolled up, so a null purchaseDate does nothing.
+	 */
+	void apply(Connection connection, Long productID, Date purchaseDate, int countDelta, long centsDelta) throws SQLException, DAOException;
+	
+	/**
+	 * Adds each given purchase to its day, sent as one JDBC batch in
+	 * (product, day) order so concurrent batches lock rows in the same order.
+	 */
+	void applyPurchases(Connection connection, List<Purchase> purchases) throws SQLException, DAOException;
+	
+	/**
+	 * Takes every purchase of the given customer out of the rollups. Must
+	 * run before deleting the customer, whose purchases go with it.
+	 */
+	void removeCustomerPurchases(Connection connection, Long customerID) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the day buckets of the product between from and to
+	 * inclusive, in date order. Compacted months that overlap the range
+	 * are returned as whole-month buckets.
+	 */
+	List<RevenueBucket> retrieveDaily(Connection connection, Long productID, Date from, Date to) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the month buckets of the product between from and to
+	 * inclusive, in date order. Days that are still in the daily table are
+	 * counted exactly; compacted months that overlap the range count whole.
+	 */
+	List<RevenueBucket> retrieveMonthly(Connection connection, Long productID, Date from, Date to) throws SQLException, DAOException;
+	
+	/**
+	 * Folds the day rows of all months that end before the month of
+	 * "before" into month rows and deletes them.
+	 * @return the number of day rows folded
+	 */
+	int compactBefore(Connection connection, Date before) throws SQLException, DAOException;
+	
+	/**
+	 * Replaces the rollup rows of all products with an id in the given
+	 * inclusive range by day rows recomputed from PURCHASE.
+	 * @return the number of day rows written
+	 */
+	int rebuildRange(Connection connection, long firstProductID, long lastProductID) throws SQLException, DAOException;
+}
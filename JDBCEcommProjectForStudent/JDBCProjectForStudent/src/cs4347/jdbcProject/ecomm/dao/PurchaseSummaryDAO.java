@@ -0,0 +1,69 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.services.PurchaseSummary;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * DAO that exclusively updates the PURCHASE_SUMMARY table, which holds
+ * one row of purchase aggregates per customer. Callers are expected to
+ * invoke these methods in the same transaction as the PURCHASE write
+ * they reflect.
+ */
+public interface PurchaseSummaryDAO
+{
+	/**
+	 * Adds a newly inserted purchase to the customer's summary row,
+	 * creating the row if this is the customer's first purchase.
+	 */
+	void applyPurchase(Connection connection, Long customerID, long cents) throws SQLException, DAOException;
+	
+	/**
+	 * applyPurchase for each given persisted Purchase, sent as one JDBC
+	 * batch. Rows are applied in customer id order so concurrent batches
+	 * lock summary rows in the same order.
+	 */
+	void applyPurchases(Connection connection, List<Purchase> purchases) throws SQLException, DAOException;
+	
+	/**
+	 * Recomputes the summary rows of the given customers from PURCHASE.
+	 * Used after updates and deletes, where MIN and MAX cannot be
+	 * maintained incrementally.
+	 */
+	void refresh(Connection connection, Collection<Long> customerIDs) throws SQLException, DAOException;
+	
+	/**
+	 * Returns null if the customer has no purchases.
+	 */
+	PurchaseSummary retrieve(Connection connection, Long customerID) throws SQLException, DAOException;
+	
+	/**
+	 * Replaces the summary rows of all customers with an id in the given
+	 * inclusive range by aggregates recomputed from PURCHASE.
+	 * @return the number of summary rows written
+	 */
+	int rebuildRange(Connection connection, long firstCustomerID, long lastCustomerID) throws SQLException, DAOException;
+	
+	/**
+	 * Returns the lowest and highest CUSTOMER id, or null if there are no
+	 * customers. Used to partition a full rebuild.
+	 */
+	long[] retrieveCustomerIDBounds(Connection connection) throws SQLException, DAOException;
+}
@@ -14,12 +14,15 @@ package cs4347.jdbcProject.ecomm.dao.impl;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 import cs4347.jdbcProject.ecomm.dao.AddressDAO;
 import cs4347.jdbcProject.ecomm.entity.Address;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
 import cs4347.jdbcProject.ecomm.util.DAOException;
 
 public class AddressDaoImpl implements AddressDAO
@@ -30,10 +33,16 @@ public class AddressDaoImpl implements AddressDAO
 			"INSERT INTO address (address1, address2, city, state, zipcode, CUSTOMER_id) VALUES (?, ?, ?, ?, ?, ?);";
 	
 	private static final String selectSQL = 
-			"SELECT * FROM address WHERE CUSTOMER_id = ?;";
+			"SELECT " + RowMappers.ADDRESS_COLUMNS + " FROM address WHERE CUSTOMER_id = ?;";
 	
 	private static final String deleteSQL = 
 			"DELETE FROM address WHERE CUSTOMER_id = ?;";
+
+	private static final MethodMetrics createMetrics = PersistenceMetrics.register("AddressDao.create");
+	private static final MethodMetrics createAllMetrics = PersistenceMetrics.register("AddressDao.createAll");
+	private static final MethodMetrics retrieveForCustomerIDMetrics = PersistenceMetrics.register("AddressDao.retrieveForCustomerID");
+	private static final MethodMetrics deleteForCustomerIDMetrics = PersistenceMetrics.register("AddressDao.deleteForCustomerID");
+	private static final MethodMetrics updateChangedMetrics = PersistenceMetrics.register("AddressDao.updateChanged");
 	
     @Override
     public Address create(Connection connection, Address address, Long customerID) throws SQLException, DAOException
@@ -41,6 +50,7 @@ public class AddressDaoImpl implements AddressDAO
     	if (customerID == null) 
             throw new DAOException("Address has no valid parent customer");
         
+		long start = System.nanoTime();
 		PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(insertSQL);
@@ -52,7 +62,44 @@ public class AddressDaoImpl implements AddressDAO
 			ps.setLong(6, customerID);
 			ps.executeUpdate();
 			
-			return address;
+			return createMetrics.success(start, address);
+		}
+		catch (Exception ex) {
+			createMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public void createAll(Connection connection, List<Customer> customers) throws SQLException, DAOException
+    {
+		long start = System.nanoTime();
+		PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(insertSQL);
+			for (Customer customer : customers) {
+				if (customer.getId() == null) 
+					throw new DAOException("Address has no valid parent customer");
+				Address address = customer.getAddress();
+				ps.setString(1, address.getAddress1());
+				ps.setString(2, address.getAddress2());
+				ps.setString(3, address.getCity());
+				ps.setString(4, address.getState());
+				ps.setString(5, address.getZipcode());
+				ps.setLong(6, customer.getId());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			createAllMetrics.success(start, customers.size());
+		}
+		catch (Exception ex) {
+			createAllMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -67,23 +114,52 @@ public class AddressDaoImpl implements AddressDAO
     	if (customerID == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(selectSQL);
 			ps.setLong(1, customerID);
-			ResultSet addrRS = ps.executeQuery();
-			
-			Address addr = null;
-			if(addrRS.next()) {
-				addr = new Address();
-				addr.setAddress1(addrRS.getString(1));
-				addr.setAddress2(addrRS.getString(2));
-				addr.setCity(addrRS.getString(3));
-				addr.setState(addrRS.getString(4));
-				addr.setZipcode(addrRS.getString(5));
+			Address addr = RowMappers.ADDRESS.mapFirst(selectSQL, ps.executeQuery());
+
+            return retrieveForCustomerIDMetrics.success(start, addr);
+		}
+		catch (Exception ex) {
+			retrieveForCustomerIDMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
 			}
+		}
+    }
 
-            return addr;
+    @Override
+    public int updateChanged(Connection connection, Address original, Address address, Long customerID) throws SQLException, DAOException
+    {
+    	if (customerID == null) 
+            throw new DAOException("Address has no valid parent customer");
+    	
+    	ChangedColumns changed = new ChangedColumns()
+    			.add("address1", original.getAddress1(), address.getAddress1())
+    			.add("address2", original.getAddress2(), address.getAddress2())
+    			.add("city", original.getCity(), address.getCity())
+    			.add("state", original.getState(), address.getState())
+    			.add("zipcode", original.getZipcode(), address.getZipcode());
+    	if (changed.isEmpty())
+    		return 0;
+        
+		long start = System.nanoTime();
+		PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(changed.updateSQL("address", "CUSTOMER_id = ?"));
+			ps.setLong(changed.bind(ps), customerID);
+			
+			return updateChangedMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			updateChangedMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -95,11 +171,16 @@ public class AddressDaoImpl implements AddressDAO
     @Override
     public void deleteForCustomerID(Connection connection, Long customerID) throws SQLException, DAOException
     {
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(deleteSQL);
 			ps.setLong(1, customerID);
-			ps.executeUpdate();
+			deleteForCustomerIDMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			deleteForCustomerIDMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -0,0 +1,75 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Collects the columns whose value differs between the stored and the
+ * edited version of a row, and builds an UPDATE that sets only those.
+ */
+class ChangedColumns
+{
+	private final List<String> columns = new ArrayList<>();
+	private final List<Object> values = new ArrayList<>();
+
+	/**
+	 * Records the column if the new value differs from the old one.
+	 */
+	ChangedColumns add(String column, Object oldValue, Object newValue)
+	{
+		if (!Objects.equals(oldValue, newValue)) {
+			columns.add(column);
+			values.add(newValue);
+		}
+		return this;
+	}
+
+	boolean isEmpty()
+	{
+		return columns.isEmpty();
+	}
+
+	/**
+	 * UPDATE table SET a = ?, b = ? WHERE whereClause. The caller binds the
+	 * where clause parameters starting at the index returned by bind.
+	 */
+	String updateSQL(String table, String whereClause)
+	{
+		StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns.get(i)).append(" = ?");
+		}
+		return sql.append(" WHERE ").append(whereClause).append(";").toString();
+	}
+
+	/**
+	 * Binds the changed values from index 1.
+	 * @return the next free parameter index
+	 */
+	int bind(PreparedStatement ps) throws SQLException
+	{
+		int index = 1;
+		for (Object value : values) {
+			ps.setObject(index++, value);
+		}
+		return index;
+	}
+}
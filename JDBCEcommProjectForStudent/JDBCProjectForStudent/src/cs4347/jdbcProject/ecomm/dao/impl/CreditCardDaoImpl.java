@@ -14,12 +14,15 @@ package cs4347.jdbcProject.ecomm.dao.impl;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 import cs4347.jdbcProject.ecomm.dao.CreditCardDAO;
 import cs4347.jdbcProject.ecomm.entity.CreditCard;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
 import cs4347.jdbcProject.ecomm.util.DAOException;
 
 public class CreditCardDaoImpl implements CreditCardDAO
@@ -30,10 +33,16 @@ public class CreditCardDaoImpl implements CreditCardDAO
 			"INSERT INTO creditcard (name, cc_number, exp_date, security_code, CUSTOMER_id) VALUES (?, ?, ?, ?, ?);";
 	
 	private static final String selectSQL = 
-			"SELECT * FROM creditcard WHERE CUSTOMER_id = ?;";
+			"SELECT " + RowMappers.CREDIT_CARD_COLUMNS + " FROM creditcard WHERE CUSTOMER_id = ?;";
 	
 	private static final String deleteSQL = 
 			"DELETE FROM creditcard WHERE CUSTOMER_id = ?;";
+
+	private static final MethodMetrics createMetrics = PersistenceMetrics.register("CreditCardDao.create");
+	private static final MethodMetrics createAllMetrics = PersistenceMetrics.register("CreditCardDao.createAll");
+	private static final MethodMetrics retrieveForCustomerIDMetrics = PersistenceMetrics.register("CreditCardDao.retrieveForCustomerID");
+	private static final MethodMetrics deleteForCustomerIDMetrics = PersistenceMetrics.register("CreditCardDao.deleteForCustomerID");
+	private static final MethodMetrics updateChangedMetrics = PersistenceMetrics.register("CreditCardDao.updateChanged");
 	
     @Override
     public CreditCard create(Connection connection, CreditCard creditCard, Long customerID) throws SQLException, DAOException
@@ -41,6 +50,7 @@ public class CreditCardDaoImpl implements CreditCardDAO
     	if (customerID == null) 
             throw new DAOException("Credit card has no valid parent customer");
         
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(insertSQL);
@@ -51,7 +61,43 @@ public class CreditCardDaoImpl implements CreditCardDAO
 			ps.setLong(5, customerID);
 			ps.executeUpdate();	
 			
-			return creditCard;
+			return createMetrics.success(start, creditCard);
+		}
+		catch (Exception ex) {
+			createMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public void createAll(Connection connection, List<Customer> customers) throws SQLException, DAOException
+    {
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(insertSQL);
+			for (Customer customer : customers) {
+				if (customer.getId() == null) 
+					throw new DAOException("Credit card has no valid parent customer");
+				CreditCard creditCard = customer.getCreditCard();
+				ps.setString(1, creditCard.getName());
+				ps.setString(2, creditCard.getCcNumber());
+				ps.setString(3, creditCard.getExpDate());
+				ps.setString(4, creditCard.getSecurityCode());
+				ps.setLong(5, customer.getId());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			createAllMetrics.success(start, customers.size());
+		}
+		catch (Exception ex) {
+			createAllMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -66,22 +112,51 @@ public class CreditCardDaoImpl implements CreditCardDAO
     	if (customerID == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(selectSQL);
 			ps.setLong(1, customerID);
-			ResultSet ccRS = ps.executeQuery();
+			CreditCard cc = RowMappers.CREDIT_CARD.mapFirst(selectSQL, ps.executeQuery());
 			
-			CreditCard cc = null;
-			if(ccRS.next()) {
-				cc = new CreditCard();
-				cc.setName(ccRS.getString(1));
-				cc.setCcNumber(ccRS.getString(2));
-				cc.setExpDate(ccRS.getString(3));
-				cc.setSecurityCode(ccRS.getString(4));
+			return retrieveForCustomerIDMetrics.success(start, cc);
+		}
+		catch (Exception ex) {
+			retrieveForCustomerIDMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
 			}
+		}
+    }
+
+    @Override
+    public int updateChanged(Connection connection, CreditCard original, CreditCard creditCard, Long customerID) throws SQLException, DAOException
+    {
+    	if (customerID == null) 
+            throw new DAOException("Credit card has no valid parent customer");
+    	
+    	ChangedColumns changed = new ChangedColumns()
+    			.add("name", original.getName(), creditCard.getName())
+    			.add("cc_number", original.getCcNumber(), creditCard.getCcNumber())
+    			.add("exp_date", original.getExpDate(), creditCard.getExpDate())
+    			.add("security_code", original.getSecurityCode(), creditCard.getSecurityCode());
+    	if (changed.isEmpty())
+    		return 0;
+        
+		long start = System.nanoTime();
+		PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(changed.updateSQL("creditcard", "CUSTOMER_id = ?"));
+			ps.setLong(changed.bind(ps), customerID);
 			
-			return cc;
+			return updateChangedMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			updateChangedMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -96,11 +171,16 @@ public class CreditCardDaoImpl implements CreditCardDAO
     	if (customerID == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(deleteSQL);
 			ps.setLong(1, customerID);
-			ps.executeUpdate();
+			deleteForCustomerIDMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			deleteForCustomerIDMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -18,13 +18,22 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import cs4347.jdbcProject.ecomm.dao.CustomerDAO;
 import cs4347.jdbcProject.ecomm.entity.CreditCard;
 import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 public class CustomerDaoImpl implements CustomerDAO
 {
@@ -33,27 +42,59 @@ public class CustomerDaoImpl implements CustomerDAO
     private static final String insertSQL = 
             "INSERT INTO customer (first_name, last_name, gender, dob, email) VALUES (?, ?, ?, ?, ?);";
     
+    private static final String insertWithIDSQL = 
+            "INSERT INTO customer (id, first_name, last_name, gender, dob, email) VALUES (?, ?, ?, ?, ?, ?);";
+    
     private static final String selectSQL = 
-    		"SELECT * FROM customer WHERE id = ?;";
+    		"SELECT " + RowMappers.CUSTOMER_COLUMNS + " FROM customer WHERE id = ?;";
     
     private static final String selectDobSQL = 
-    		"SELECT * FROM customer WHERE dob BETWEEN ? AND ?;"; //start date, end date
+    		"SELECT " + RowMappers.CUSTOMER_COLUMNS + " FROM customer WHERE dob BETWEEN ? AND ?;"; //start date, end date
+    
+    private static final String selectDobPageSQL = 
+    		"SELECT " + RowMappers.CUSTOMER_COLUMNS + " FROM customer WHERE dob BETWEEN ? AND ? ORDER BY dob, id LIMIT ?;";
+    
+    private static final String selectDobNextPageSQL = //seek past the last (dob, id) of the previous page
+    		"SELECT " + RowMappers.CUSTOMER_COLUMNS + " FROM customer "
+    		+ "WHERE dob BETWEEN ? AND ? AND (dob > ? OR (dob = ? AND id > ?)) ORDER BY dob, id LIMIT ?;";
     
     private static final String selectZipSQL = 
-    		"SELECT * FROM customer INNER JOIN address ON customer.id = address.CUSTOMER_id WHERE zipcode = ?;"; //SQL is the enemy
+    		"SELECT " + RowMappers.qualified("customer", RowMappers.CUSTOMER_COLUMNS) + " FROM customer "
+    		+ "INNER JOIN address ON customer.id = address.CUSTOMER_id WHERE zipcode = ?;"; //SQL is the enemy
     
     private static final String updateSQL = 
     		"UPDATE customer SET id = ?, first_name = ?, last_name = ?, gender = ?, dob = ?, email = ? WHERE id = ?;";
     
+    private static final String idsSQL = 
+    		"SELECT id FROM customer ORDER BY id;";
+    
+    private static final String selectAllSQL = //IN list appended per chunk
+    		"SELECT " + RowMappers.CUSTOMER_COLUMNS + " FROM customer WHERE id IN (%s);";
+    
     private static final String deleteSQL = 
     		"DELETE FROM customer WHERE id = ?;";
 
+    private static final MethodMetrics createMetrics = PersistenceMetrics.register("CustomerDao.create");
+    private static final MethodMetrics createAllMetrics = PersistenceMetrics.register("CustomerDao.createAll");
+    private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("CustomerDao.retrieve");
+    private static final MethodMetrics retrieveAllMetrics = PersistenceMetrics.register("CustomerDao.retrieveAll");
+    private static final MethodMetrics retrieveIDsMetrics = PersistenceMetrics.register("CustomerDao.retrieveIDs");
+    private static final MethodMetrics updateMetrics = PersistenceMetrics.register("CustomerDao.update");
+    private static final MethodMetrics updateChangedMetrics = PersistenceMetrics.register("CustomerDao.updateChanged");
+    private static final MethodMetrics deleteMetrics = PersistenceMetrics.register("CustomerDao.delete");
+    private static final MethodMetrics retrieveByZipCodeMetrics = PersistenceMetrics.register("CustomerDao.retrieveByZipCode");
+    private static final MethodMetrics retrieveByDOBMetrics = PersistenceMetrics.register("CustomerDao.retrieveByDOB");
+    private static final MethodMetrics createWithIDMetrics = PersistenceMetrics.register("CustomerDao.createWithID");
+    private static final MethodMetrics createAllWithIDsMetrics = PersistenceMetrics.register("CustomerDao.createAllWithIDs");
+    private static final MethodMetrics retrieveByDOBPageMetrics = PersistenceMetrics.register("CustomerDao.retrieveByDOBPage");
+
     @Override
     public Customer create(Connection connection, Customer customer) throws SQLException, DAOException
     {
         if (customer.getId() != null) 
             throw new DAOException("Trying to insert Customer with NON-NULL ID");
         
+        long start = System.nanoTime();
         PreparedStatement ps = null;
         try {
             ps = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS);
@@ -68,7 +109,78 @@ public class CustomerDaoImpl implements CustomerDAO
             keyRS.next();
             int lastKey = keyRS.getInt(1);
             customer.setId((long) lastKey);
-            return customer;
+            return createMetrics.success(start, customer);
+        }
+        catch (Exception ex) {
+            createMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+            if (ps != null && !ps.isClosed()) {
+                ps.close();
+            }
+        }
+    }
+
+    @Override
+    public List<Customer> createAll(Connection connection, List<Customer> customers) throws SQLException, DAOException
+    {
+    	for (Customer customer : customers) {
+    		if (customer.getId() != null) 
+    			throw new DAOException("Trying to insert Customer with NON-NULL ID");
+    	}
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+    	try {
+    		ps = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS);
+    		for (Customer customer : customers) {
+    			ps.setString(1, customer.getFirstName());
+    			ps.setString(2, customer.getLastName());
+    			ps.setString(3, String.valueOf(customer.getGender()));
+    			ps.setDate(4, customer.getDob());
+    			ps.setString(5, customer.getEmail());
+    			ps.addBatch();
+    		}
+    		ps.executeBatch();
+    		
+    		// Keys come back in batch order
+    		ResultSet keyRS = ps.getGeneratedKeys();
+    		for (Customer customer : customers) {
+    			if (!keyRS.next()) 
+    				throw new DAOException("Driver returned fewer generated keys than inserted customers");
+    			customer.setId(keyRS.getLong(1));
+    		}
+    		return createAllMetrics.success(start, customers);
+    	}
+    	catch (Exception ex) {
+    		createAllMetrics.failure(start, ex);
+    		throw ex;
+    	}
+    	finally {
+    		if (ps != null && !ps.isClosed()) {
+    			ps.close();
+    		}
+    	}
+    }
+
+    @Override
+    public Customer createWithID(Connection connection, Customer customer) throws SQLException, DAOException
+    {
+        if (customer.getId() == null) 
+            throw new DAOException("Trying to insert Customer with NULL ID");
+        
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = connection.prepareStatement(insertWithIDSQL);
+            bindWithID(ps, customer);
+            ps.executeUpdate();
+            return createWithIDMetrics.success(start, customer);
+        }
+        catch (Exception ex) {
+            createWithIDMetrics.failure(start, ex);
+            throw ex;
         }
         finally {
             if (ps != null && !ps.isClosed()) {
@@ -77,6 +189,46 @@ public class CustomerDaoImpl implements CustomerDAO
         }
     }
 
+    @Override
+    public List<Customer> createAllWithIDs(Connection connection, List<Customer> customers) throws SQLException, DAOException
+    {
+    	for (Customer customer : customers) {
+    		if (customer.getId() == null) 
+    			throw new DAOException("Trying to insert Customer with NULL ID");
+    	}
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+    	try {
+    		ps = connection.prepareStatement(insertWithIDSQL);
+    		for (Customer customer : customers) {
+    			bindWithID(ps, customer);
+    			ps.addBatch();
+    		}
+    		ps.executeBatch();
+    		return createAllWithIDsMetrics.success(start, customers);
+    	}
+    	catch (Exception ex) {
+    		createAllWithIDsMetrics.failure(start, ex);
+    		throw ex;
+    	}
+    	finally {
+    		if (ps != null && !ps.isClosed()) {
+    			ps.close();
+    		}
+    	}
+    }
+
+    private static void bindWithID(PreparedStatement ps, Customer customer) throws SQLException
+    {
+    	ps.setLong(1, customer.getId());
+    	ps.setString(2, customer.getFirstName());
+    	ps.setString(3, customer.getLastName());
+    	ps.setString(4, String.valueOf(customer.getGender()));
+    	ps.setDate(5, customer.getDob());
+    	ps.setString(6, customer.getEmail());
+    }
+
     /*
      * return null if retrieving a non-existent ID
      * 
@@ -87,24 +239,81 @@ public class CustomerDaoImpl implements CustomerDAO
     	if (id == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(selectSQL);
 			ps.setLong(1, id);
-			ResultSet cusRS = ps.executeQuery();
-			
-			Customer cr = null;
-			if(cusRS.next()) {
-				cr = new Customer();
-				cr.setId(cusRS.getLong(1));
-				cr.setFirstName(cusRS.getString(2));
-				cr.setLastName(cusRS.getString(3));
-				cr.setGender(cusRS.getString(4).charAt(0));
-				cr.setDob(cusRS.getDate(5));
-				cr.setEmail(cusRS.getString(6));
+			Customer cr = RowMappers.CUSTOMER.mapFirst(selectSQL, ps.executeQuery());
+
+			return retrieveMetrics.success(start, cr);
+		}
+		catch (Exception ex) {
+			retrieveMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
 			}
+		}
+    }
+
+    @Override
+    public RetrieveAllResult<Customer> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException
+    {
+    	if (ids == null) 
+			throw new DAOException("Attempting to retrieve with NULL IDs");
+    	
+    	long start = System.nanoTime();
+    	Map<Long, Customer> loaded = new HashMap<>();
+    	for (List<Long> chunk : SqlLists.chunks(ids, SqlLists.DEFAULT_CHUNK_SIZE)) {
+    		int size = SqlLists.paddedSize(chunk.size(), SqlLists.DEFAULT_CHUNK_SIZE);
+    		PreparedStatement ps = null;
+    		try {
+    			ps = connection.prepareStatement(String.format(selectAllSQL, SqlLists.placeholders(size)));
+    			SqlLists.bindPadded(ps, 1, chunk, size);
+    			for (Customer cr : RowMappers.CUSTOMER.mapAll(selectAllSQL, ps.executeQuery())) {
+    				loaded.put(cr.getId(), cr);
+    			}
+    		}
+    		catch (Exception ex) {
+    			retrieveAllMetrics.failure(start, ex);
+    			throw ex;
+    		}
+    		finally {
+    			if (ps != null && !ps.isClosed()) {
+    				ps.close();
+    			}
+    		}
+    	}
+    	
+    	retrieveAllMetrics.success(start, loaded.size());
+    	return RetrieveAllResult.of(ids, loaded);
+    }
 
-			return cr;
+    @Override
+    public long[] retrieveIDs(Connection connection) throws SQLException, DAOException
+    {
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(idsSQL);
+			ResultSet rs = ps.executeQuery();
+			long[] ids = new long[1024];
+			int count = 0;
+			while (rs.next()) {
+				if (count == ids.length) {
+					ids = Arrays.copyOf(ids, count * 2);
+				}
+				ids[count++] = rs.getLong(1);
+			}
+			retrieveIDsMetrics.success(start, count);
+			return Arrays.copyOf(ids, count);
+		}
+		catch (Exception ex) {
+			retrieveIDsMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -119,6 +328,7 @@ public class CustomerDaoImpl implements CustomerDAO
     	if (customer.getId() == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(updateSQL);
@@ -130,7 +340,45 @@ public class CustomerDaoImpl implements CustomerDAO
 			ps.setString(6, customer.getEmail());
 			ps.setLong(7, customer.getId());
 			
-			return ps.executeUpdate();
+			return updateMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			updateMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public int updateChanged(Connection connection, Customer original, Customer customer) throws SQLException, DAOException
+    {
+    	if (customer.getId() == null) 
+			throw new DAOException("Attempting to update non-existent ID");
+    	
+    	ChangedColumns changed = new ChangedColumns()
+    			.add("first_name", original.getFirstName(), customer.getFirstName())
+    			.add("last_name", original.getLastName(), customer.getLastName())
+    			.add("gender", String.valueOf(original.getGender()), String.valueOf(customer.getGender()))
+    			.add("dob", original.getDob(), customer.getDob())
+    			.add("email", original.getEmail(), customer.getEmail());
+    	if (changed.isEmpty())
+    		return 0;
+		
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(changed.updateSQL("customer", "id = ?"));
+			ps.setLong(changed.bind(ps), customer.getId());
+			
+			return updateChangedMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			updateChangedMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -145,12 +393,17 @@ public class CustomerDaoImpl implements CustomerDAO
     	if (id == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(deleteSQL);
 			ps.setLong(1, id);
 			
-			return ps.executeUpdate();
+			return deleteMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			deleteMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -165,28 +418,20 @@ public class CustomerDaoImpl implements CustomerDAO
     	if (zipCode == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
     	List<Customer> list = new LinkedList<>();
     	
 		try {
 			ps = connection.prepareStatement(selectZipSQL);
 			ps.setString(1, zipCode);
-			ResultSet cusRS = ps.executeQuery();
-			
-			while(cusRS.next()) {
-				Customer cr = new Customer();
-				
-				cr.setId(cusRS.getLong(1));
-				cr.setFirstName(cusRS.getString(2));
-				cr.setLastName(cusRS.getString(3));
-				cr.setGender(cusRS.getString(4).charAt(0)); //error here but can't figure it out for the life of me
-				cr.setDob(cusRS.getDate(5));
-				cr.setEmail(cusRS.getString(6));
-				
-				list.add(cr);
-			}
+			RowMappers.CUSTOMER.mapAll(selectZipSQL, ps.executeQuery(), list);
 			
-			return list;
+			return retrieveByZipCodeMetrics.success(start, list);
+		}
+		catch (Exception ex) {
+			retrieveByZipCodeMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -204,6 +449,7 @@ public class CustomerDaoImpl implements CustomerDAO
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		} //if the start date is after the end date, something's wrong probably
     	
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
     	List<Customer> list = new LinkedList<>();
     	
@@ -211,22 +457,57 @@ public class CustomerDaoImpl implements CustomerDAO
 			ps = connection.prepareStatement(selectDobSQL);
 			ps.setDate(1, startDate);
 			ps.setDate(2, endDate);
-			ResultSet cusRS = ps.executeQuery();
+			RowMappers.CUSTOMER.mapAll(selectDobSQL, ps.executeQuery(), list);
 			
-			while(cusRS.next()) {
-				Customer cr = new Customer();
-				
-				cr.setId(cusRS.getLong(1));
-				cr.setFirstName(cusRS.getString(2));
-				cr.setLastName(cusRS.getString(3));
-				cr.setGender(cusRS.getString(4).charAt(0));
-				cr.setDob(cusRS.getDate(5));
-				cr.setEmail(cusRS.getString(6));
-				
-				list.add(cr);
+			return retrieveByDOBMetrics.success(start, list);
+		}
+		catch (Exception ex) {
+			retrieveByDOBMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
 			}
+		}
+    }
+
+    @Override
+    public Page<Customer> retrieveByDOBPage(Connection connection, Date startDate, Date endDate, String pageToken, int pageSize) throws SQLException, DAOException
+    {
+    	if (startDate.compareTo(endDate) > 0) {
+			throw new DAOException("Start date is later than end date");
+		}
+    	Pages.checkPageSize(pageSize);
+    	String scope = "CustomerDao.dob=" + startDate + ".." + endDate;
+    	Pages.Cursor cursor = Pages.cursor(pageToken, scope);
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+    	List<Customer> list = new ArrayList<>(pageSize + 1);
+    	
+		try {
+			String sql = cursor == null ? selectDobPageSQL : selectDobNextPageSQL;
+			ps = connection.prepareStatement(sql);
+			ps.setDate(1, startDate);
+			ps.setDate(2, endDate);
+			int index = 3;
+			if (cursor != null) {
+				Date lastDob = Pages.dateKey(cursor, scope);
+				ps.setDate(index++, lastDob);
+				ps.setDate(index++, lastDob);
+				ps.setLong(index++, cursor.id);
+			}
+			ps.setInt(index, pageSize + 1);
+			RowMappers.CUSTOMER.mapAll(sql, ps.executeQuery(), list);
 			
-			return list;
+			Page<Customer> page = Pages.page(list, pageSize, scope, cr -> cr.getDob().toString(), Customer::getId);
+			retrieveByDOBPageMetrics.success(start, page.items.size());
+			return page;
+		}
+		catch (Exception ex) {
+			retrieveByDOBPageMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -0,0 +1,278 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cs4347.jdbcProject.ecomm.dao.CustomerGraphDAO;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+public class CustomerGraphDaoImpl implements CustomerGraphDAO
+{
+
+	//Customer, address and credit card columns in one row; LEFT JOINs keep customers missing either child row
+	private static final String graphColumns = 
+			"SELECT " + RowMappers.qualified("c", RowMappers.CUSTOMER_COLUMNS) + ", "
+			+ RowMappers.qualified("a", RowMappers.ADDRESS_COLUMNS) + ", "
+			+ RowMappers.qualified("cc", RowMappers.CREDIT_CARD_COLUMNS) + " ";
+	
+	private static final String graphJoins = 
+			"LEFT JOIN address a ON a.CUSTOMER_id = c.id "
+			+ "LEFT JOIN creditcard cc ON cc.CUSTOMER_id = c.id ";
+	
+	private static final String selectGraphSQL = 
+			graphColumns + "FROM customer c " + graphJoins;
+	
+	private static final String selectSQL = 
+			selectGraphSQL + "WHERE c.id = ?;";
+	
+	private static final String selectForUpdateSQL = 
+			selectGraphSQL + "WHERE c.id = ? FOR UPDATE;";
+	
+	private static final String selectAllSQL = //IN list appended per chunk
+			selectGraphSQL + "WHERE c.id IN (%s);";
+	
+	private static final String selectZipSQL = 
+			selectGraphSQL + "WHERE a.zipcode = ?;";
+	
+	private static final String selectDobSQL = 
+			selectGraphSQL + "WHERE c.dob BETWEEN ? AND ?;"; //start date, end date
+	
+	//The page is cut in a derived table so the joins cannot split a customer across pages
+	private static final String selectDobPageSQL = 
+			graphColumns + "FROM (SELECT " + RowMappers.CUSTOMER_COLUMNS + " FROM customer WHERE dob BETWEEN ? AND ? ORDER BY dob, id LIMIT ?) c "
+			+ graphJoins + "ORDER BY c.dob, c.id;";
+	
+	private static final String selectDobNextPageSQL = //seek past the last (dob, id) of the previous page
+			graphColumns + "FROM (SELECT " + RowMappers.CUSTOMER_COLUMNS + " FROM customer "
+			+ "WHERE dob BETWEEN ? AND ? AND (dob > ? OR (dob = ? AND id > ?)) ORDER BY dob, id LIMIT ?) c "
+			+ graphJoins + "ORDER BY c.dob, c.id;";
+
+	private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("CustomerGraphDao.retrieve");
+	private static final MethodMetrics retrieveForUpdateMetrics = PersistenceMetrics.register("CustomerGraphDao.retrieveForUpdate");
+	private static final MethodMetrics retrieveAllMetrics = PersistenceMetrics.register("CustomerGraphDao.retrieveAll");
+	private static final MethodMetrics retrieveByZipCodeMetrics = PersistenceMetrics.register("CustomerGraphDao.retrieveByZipCode");
+	private static final MethodMetrics retrieveByDOBMetrics = PersistenceMetrics.register("CustomerGraphDao.retrieveByDOB");
+	private static final MethodMetrics retrieveByDOBPageMetrics = PersistenceMetrics.register("CustomerGraphDao.retrieveByDOBPage");
+	
+    @Override
+    public Customer retrieve(Connection connection, Long id) throws SQLException, DAOException
+    {
+    	return retrieve(connection, id, selectSQL, retrieveMetrics);
+    }
+
+    @Override
+    public Customer retrieveForUpdate(Connection connection, Long id) throws SQLException, DAOException
+    {
+    	return retrieve(connection, id, selectForUpdateSQL, retrieveForUpdateMetrics);
+    }
+
+    private Customer retrieve(Connection connection, Long id, String sql, MethodMetrics metrics) throws SQLException, DAOException
+    {
+    	if (id == null) 
+			throw new DAOException("Attempting to retrieve non-existent ID");
+		
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(sql);
+			ps.setLong(1, id);
+			List<Customer> list = readGraph(ps.executeQuery());
+			
+			return metrics.success(start, list.isEmpty() ? null : list.get(0));
+		}
+		catch (Exception ex) {
+			metrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public RetrieveAllResult<Customer> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException
+    {
+    	if (ids == null) 
+			throw new DAOException("Attempting to retrieve with NULL IDs");
+		
+    	long start = System.nanoTime();
+    	Map<Long, Customer> loaded = new HashMap<>();
+    	for (List<Long> chunk : SqlLists.chunks(ids, SqlLists.DEFAULT_CHUNK_SIZE)) {
+    		int size = SqlLists.paddedSize(chunk.size(), SqlLists.DEFAULT_CHUNK_SIZE);
+    		PreparedStatement ps = null;
+    		try {
+    			ps = connection.prepareStatement(String.format(selectAllSQL, SqlLists.placeholders(size)));
+    			SqlLists.bindPadded(ps, 1, chunk, size);
+    			for (Customer cr : readGraph(ps.executeQuery())) {
+    				loaded.put(cr.getId(), cr);
+    			}
+    		}
+    		catch (Exception ex) {
+    			retrieveAllMetrics.failure(start, ex);
+    			throw ex;
+    		}
+    		finally {
+    			if (ps != null && !ps.isClosed()) {
+    				ps.close();
+    			}
+    		}
+    	}
+    	
+    	retrieveAllMetrics.success(start, loaded.size());
+    	return RetrieveAllResult.of(ids, loaded);
+    }
+
+    @Override
+    public List<Customer> retrieveByZipCode(Connection connection, String zipCode) throws SQLException, DAOException
+    {
+    	if (zipCode == null) 
+			throw new DAOException("Attempting to retrieve with NULL zipcode");
+		
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(selectZipSQL);
+			ps.setString(1, zipCode);
+			
+			return retrieveByZipCodeMetrics.success(start, readGraph(ps.executeQuery()));
+		}
+		catch (Exception ex) {
+			retrieveByZipCodeMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public List<Customer> retrieveByDOB(Connection connection, Date startDate, Date endDate) throws SQLException, DAOException
+    {
+    	if (startDate.compareTo(endDate) > 0) {
+			throw new DAOException("Start date is later than end date");
+		}
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(selectDobSQL);
+			ps.setDate(1, startDate);
+			ps.setDate(2, endDate);
+			
+			return retrieveByDOBMetrics.success(start, readGraph(ps.executeQuery()));
+		}
+		catch (Exception ex) {
+			retrieveByDOBMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public Page<Customer> retrieveByDOBPage(Connection connection, Date startDate, Date endDate, String pageToken, int pageSize) throws SQLException, DAOException
+    {
+    	if (startDate.compareTo(endDate) > 0) {
+			throw new DAOException("Start date is later than end date");
+		}
+    	Pages.checkPageSize(pageSize);
+    	String scope = "CustomerGraphDao.dob=" + startDate + ".." + endDate;
+    	Pages.Cursor cursor = Pages.cursor(pageToken, scope);
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(cursor == null ? selectDobPageSQL : selectDobNextPageSQL);
+			ps.setDate(1, startDate);
+			ps.setDate(2, endDate);
+			int index = 3;
+			if (cursor != null) {
+				Date lastDob = Pages.dateKey(cursor, scope);
+				ps.setDate(index++, lastDob);
+				ps.setDate(index++, lastDob);
+				ps.setLong(index++, cursor.id);
+			}
+			ps.setInt(index, pageSize + 1);
+			
+			Page<Customer> page = Pages.page(readGraph(ps.executeQuery()), pageSize, scope, cr -> cr.getDob().toString(), Customer::getId);
+			retrieveByDOBPageMetrics.success(start, page.items.size());
+			return page;
+		}
+		catch (Exception ex) {
+			retrieveByDOBPageMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    /**
+     * Stitches joined rows into Customer graphs. A customer with more than
+     * one address or credit card row appears on several rows; the first
+     * address and card seen are kept, matching retrieveForCustomerID.
+     * Every graph query selects graphColumns, so one plan per mapper
+     * serves them all.
+     */
+    private List<Customer> readGraph(ResultSet rs) throws SQLException
+    {
+    	Map<Long, Customer> customers = new LinkedHashMap<>();
+    	int[] customerColumns = RowMappers.CUSTOMER.plan(graphColumns, rs);
+    	int[] addressColumns = RowMappers.ADDRESS.plan(graphColumns, rs);
+    	int[] cardColumns = RowMappers.CREDIT_CARD.plan(graphColumns, rs);
+    	
+		while(rs.next()) {
+			long id = rs.getLong(customerColumns[0]);
+			Customer cr = customers.get(id);
+			if (cr == null) {
+				cr = RowMappers.CUSTOMER.map(rs, customerColumns);
+				customers.put(id, cr);
+			}
+			
+			// address1 and name are NOT NULL, so null means the LEFT JOIN found no row
+			if (cr.getAddress() == null && rs.getString(addressColumns[0]) != null) {
+				cr.setAddress(RowMappers.ADDRESS.map(rs, addressColumns));
+			}
+			if (cr.getCreditCard() == null && rs.getString(cardColumns[0]) != null) {
+				cr.setCreditCard(RowMappers.CREDIT_CARD.map(rs, cardColumns));
+			}
+		}
+		
+		return new ArrayList<>(customers.values());
+    }
+}
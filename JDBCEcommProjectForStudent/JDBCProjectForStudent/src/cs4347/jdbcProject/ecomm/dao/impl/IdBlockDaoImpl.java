@@ -0,0 +1,75 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import cs4347.jdbcProject.ecomm.dao.IdBlockDAO;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+public class IdBlockDaoImpl implements IdBlockDAO
+{
+	
+	// SELECT ... FOR UPDATE rather than MySQL's LAST_INSERT_ID(expr) so the
+	// same statements run on embedded databases
+	private static final String lockSQL = 
+			"SELECT next_id FROM id_block WHERE name = ? FOR UPDATE;";
+	
+	private static final String advanceSQL = 
+			"UPDATE id_block SET next_id = ? WHERE name = ?;";
+
+	private static final MethodMetrics reserveMetrics = PersistenceMetrics.register("IdBlockDao.reserve");
+	
+    @Override
+    public long reserve(Connection connection, String sequence, int blockSize) throws SQLException, DAOException
+    {
+    	if (sequence == null) 
+			throw new DAOException("Sequence name must be NON-NULL");
+    	if (blockSize < 1) 
+    		throw new DAOException("Block size must be positive");
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(lockSQL);
+			ps.setString(1, sequence);
+			ResultSet rs = ps.executeQuery();
+			if (!rs.next()) 
+				throw new DAOException("Unknown id sequence " + sequence);
+			long first = rs.getLong(1);
+			ps.close();
+			
+			ps = connection.prepareStatement(advanceSQL);
+			ps.setLong(1, Math.addExact(first, blockSize));
+			ps.setString(2, sequence);
+			ps.executeUpdate();
+			
+			reserveMetrics.success(start, blockSize);
+			return first;
+		}
+		catch (Exception ex) {
+			reserveMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+}
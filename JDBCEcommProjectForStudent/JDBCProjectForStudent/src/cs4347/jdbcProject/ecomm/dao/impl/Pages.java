@@ -0,0 +1,124 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+
+/**
+ * Helpers for keyset (seek) pagination. A page query orders by
+ * (sort key, id) and continues strictly after the last row of the
+ * previous page, so every page is one index range scan of pageSize + 1
+ * rows no matter how deep the caller has paged.
+ *
+ * Page tokens carry the sort key and id of the last row plus a scope
+ * string naming the query and its filter, base64url encoded. A token
+ * presented to a different query is rejected rather than silently
+ * seeking to the wrong place.
+ */
+final class Pages
+{
+	private Pages()
+	{
+	}
+
+	/**
+	 * Position after which the next page starts.
+	 */
+	static final class Cursor
+	{
+		final String sortKey;
+		final long id;
+
+		Cursor(String sortKey, long id)
+		{
+			this.sortKey = sortKey;
+			this.id = id;
+		}
+	}
+
+	static void checkPageSize(int pageSize) throws DAOException
+	{
+		if (pageSize < 1) {
+			throw new DAOException("Page size must be positive: " + pageSize);
+		}
+	}
+
+	/**
+	 * Decodes a page token, or returns null for the first page.
+	 * @throws DAOException if the token is malformed or was issued for a
+	 * different scope.
+	 */
+	static Cursor cursor(String pageToken, String scope) throws DAOException
+	{
+		if (pageToken == null) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+			String[] parts = raw.split("\n", 3);
+			if (parts.length == 3 && parts[0].equals(scope)) {
+				return new Cursor(parts[2], Long.parseLong(parts[1]));
+			}
+		}
+		catch (IllegalArgumentException ex) {
+			// Falls through to the error below; NumberFormatException is an IllegalArgumentException
+		}
+		throw new DAOException("Invalid page token for " + scope);
+	}
+
+	/**
+	 * The cursor's sort key as a date, for queries ordered by a DATE column.
+	 * @throws DAOException if the key is not a yyyy-mm-dd date, which only
+	 * a tampered token can carry.
+	 */
+	static Date dateKey(Cursor cursor, String scope) throws DAOException
+	{
+		try {
+			return Date.valueOf(cursor.sortKey);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new DAOException("Invalid page token for " + scope);
+		}
+	}
+
+	/**
+	 * Builds a page from up to pageSize + 1 rows. The extra row only
+	 * signals that another page exists and is dropped.
+	 */
+	static <T> Page<T> page(List<T> rows, int pageSize, String scope, Function<T, String> sortKey, Function<T, Long> id)
+	{
+		Page<T> page = new Page<>();
+		if (rows.size() > pageSize) {
+			page.items.addAll(rows.subList(0, pageSize));
+			T last = rows.get(pageSize - 1);
+			page.nextPageToken = token(scope, sortKey.apply(last), id.apply(last));
+		}
+		else {
+			page.items.addAll(rows);
+		}
+		return page;
+	}
+
+	private static String token(String scope, String sortKey, long id)
+	{
+		String raw = scope + "\n" + id + "\n" + sortKey;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -17,15 +17,24 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
 import cs4347.jdbcProject.ecomm.dao.ProductDAO;
 import cs4347.jdbcProject.ecomm.entity.Product;
 import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 public class ProductDaoImpl implements ProductDAO
 {
@@ -35,7 +44,13 @@ public class ProductDaoImpl implements ProductDAO
 			"INSERT INTO Product (prod_category, prod_desc, prod_name, prod_upc) VALUES (?, ?, ?, ?);";
 	
 	private static final String selectSQL = 
-			"SELECT * FROM Product WHERE id = ?";
+			"SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM Product WHERE id = ?";
+	
+	private static final String idsSQL = 
+			"SELECT id FROM Product ORDER BY id;";
+	
+	private static final String selectAllSQL = //IN list appended per chunk
+			"SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM Product WHERE id IN (%s)";
 	
 	private static final String updateSQL = 
 			"UPDATE Product SET prod_name = ?, prod_desc = ?, prod_category = ?, prod_upc = ? WHERE id = ?;";
@@ -44,10 +59,32 @@ public class ProductDaoImpl implements ProductDAO
 			"DELETE FROM Product WHERE id = ?;";
 	
 	private static final String catSQL = 
-			"SELECT * FROM Product WHERE prod_category = ?";
+			"SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM Product WHERE prod_category = ?";
+	
+	private static final String catPageSQL = 
+			"SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM Product WHERE prod_category = ? ORDER BY prod_name, id LIMIT ?";
+	
+	private static final String catNextPageSQL = //seek past the last (prod_name, id) of the previous page
+			"SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM Product "
+			+ "WHERE prod_category = ? AND (prod_name > ? OR (prod_name = ? AND id > ?)) "
+			+ "ORDER BY prod_name, id LIMIT ?";
 	
 	private static final String upcSQL = 
-			"SELECT * FROM Product WHERE prod_UPC = ?";
+			"SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM Product WHERE prod_UPC = ?";
+	
+	private static final String boundsSQL = 
+			"SELECT MIN(id), MAX(id) FROM Product;";
+
+	private static final MethodMetrics createMetrics = PersistenceMetrics.register("ProductDao.create");
+	private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("ProductDao.retrieve");
+	private static final MethodMetrics retrieveAllMetrics = PersistenceMetrics.register("ProductDao.retrieveAll");
+	private static final MethodMetrics retrieveIDsMetrics = PersistenceMetrics.register("ProductDao.retrieveIDs");
+	private static final MethodMetrics updateMetrics = PersistenceMetrics.register("ProductDao.update");
+	private static final MethodMetrics deleteMetrics = PersistenceMetrics.register("ProductDao.delete");
+	private static final MethodMetrics retrieveByCategoryMetrics = PersistenceMetrics.register("ProductDao.retrieveByCategory");
+	private static final MethodMetrics retrieveByCategoryPageMetrics = PersistenceMetrics.register("ProductDao.retrieveByCategoryPage");
+	private static final MethodMetrics retrieveByUPCMetrics = PersistenceMetrics.register("ProductDao.retrieveByUPC");
+	private static final MethodMetrics retrieveIDBoundsMetrics = PersistenceMetrics.register("ProductDao.retrieveIDBounds");
 			
 	/**
 	 * The create method must throw a DAOException if the 
@@ -62,6 +99,7 @@ public class ProductDaoImpl implements ProductDAO
     	if (product.getId() != null)
 			throw new DAOException("Trying to insert product with NON-NULL ID");
 
+		long start = System.nanoTime();
 		PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS);
@@ -77,7 +115,11 @@ public class ProductDaoImpl implements ProductDAO
 			int lastKey = keyRS.getInt(1);
 			product.setId((long) lastKey);
 			
-			return product;
+			return createMetrics.success(start, product);
+		}
+		catch (Exception ex) {
+			createMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -96,23 +138,18 @@ public class ProductDaoImpl implements ProductDAO
     	if (id == null)
 			throw new DAOException("Trying to retrieve products with NULL ID");
     	
+		long start = System.nanoTime();
 		PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(selectSQL);
 			ps.setLong(1, id);
-			ResultSet prRS = ps.executeQuery();
-		
-			Product product = null;
-			if(prRS.next()) {
-				product = new Product();
-				product.setId(id);
-				product.setProdName(prRS.getString(2));
-				product.setProdDescription(prRS.getString(3));
-				product.setProdCategory(prRS.getInt(4));
-				product.setProdUPC(prRS.getString(5));
-			}
+			Product product = RowMappers.PRODUCT.mapFirst(selectSQL, ps.executeQuery());
 			
-			return product;
+			return retrieveMetrics.success(start, product);
+		}
+		catch (Exception ex) {
+			retrieveMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed())
@@ -120,6 +157,69 @@ public class ProductDaoImpl implements ProductDAO
 		}
 	}
 
+    @Override
+    public RetrieveAllResult<Product> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException
+    {
+    	if (ids == null) 
+			throw new DAOException("Attempting to retrieve with NULL IDs");
+    	
+    	long start = System.nanoTime();
+    	Map<Long, Product> loaded = new HashMap<>();
+    	for (List<Long> chunk : SqlLists.chunks(ids, SqlLists.DEFAULT_CHUNK_SIZE)) {
+    		int size = SqlLists.paddedSize(chunk.size(), SqlLists.DEFAULT_CHUNK_SIZE);
+    		PreparedStatement ps = null;
+    		try {
+    			ps = connection.prepareStatement(String.format(selectAllSQL, SqlLists.placeholders(size)));
+    			SqlLists.bindPadded(ps, 1, chunk, size);
+    			for (Product product : RowMappers.PRODUCT.mapAll(selectAllSQL, ps.executeQuery())) {
+    				loaded.put(product.getId(), product);
+    			}
+    		}
+    		catch (Exception ex) {
+    			retrieveAllMetrics.failure(start, ex);
+    			throw ex;
+    		}
+    		finally {
+    			if (ps != null && !ps.isClosed()) {
+    				ps.close();
+    			}
+    		}
+    	}
+    	
+    	retrieveAllMetrics.success(start, loaded.size());
+    	return RetrieveAllResult.of(ids, loaded);
+    }
+
+    @Override
+    public long[] retrieveIDs(Connection connection) throws SQLException, DAOException
+    {
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(idsSQL);
+			ResultSet rs = ps.executeQuery();
+			long[] ids = new long[1024];
+			int count = 0;
+			while (rs.next()) {
+				if (count == ids.length) {
+					ids = Arrays.copyOf(ids, count * 2);
+				}
+				ids[count++] = rs.getLong(1);
+			}
+			retrieveIDsMetrics.success(start, count);
+			return Arrays.copyOf(ids, count);
+		}
+		catch (Exception ex) {
+			retrieveIDsMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * Product has a NULL id. 
@@ -130,6 +230,7 @@ public class ProductDaoImpl implements ProductDAO
     	if (product.getId() == null)
 			throw new DAOException("Attempting to update non-existent ID");
     	
+		long start = System.nanoTime();
 		PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(updateSQL);
@@ -139,7 +240,11 @@ public class ProductDaoImpl implements ProductDAO
 			ps.setString(4, product.getProdUPC());
 			ps.setLong(5, product.getId());
 			
-			return ps.executeUpdate();
+			return updateMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			updateMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -158,12 +263,17 @@ public class ProductDaoImpl implements ProductDAO
     	if (id == null)
 			throw new DAOException("Attempting to delete non-existent ID");
     	
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(deleteSQL);
 			ps.setLong(1, id);
 			
-			return ps.executeUpdate();
+			return deleteMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			deleteMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -182,25 +292,58 @@ public class ProductDaoImpl implements ProductDAO
 			throw new DAOException("Category is invalid");
         
         List<Product> list = new LinkedList<>();
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(catSQL);
 			ps.setLong(1, category);
-			ResultSet prRS = ps.executeQuery();
+			RowMappers.PRODUCT.mapAll(catSQL, ps.executeQuery(), list);
 			
-			while(prRS.next()) {
-				Product pr = new Product();
-				
-				pr.setId(prRS.getLong(1));
-				pr.setProdName(prRS.getString(2));
-				pr.setProdDescription(prRS.getString(3));
-				pr.setProdCategory(prRS.getInt(4));
-				pr.setProdUPC(prRS.getString(5));
-				
-				list.add(pr);
+			return retrieveByCategoryMetrics.success(start, list);
+		}
+		catch (Exception ex) {
+			retrieveByCategoryMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
 			}
+		}
+    }
+
+    @Override
+    public Page<Product> retrieveByCategoryPage(Connection connection, int category, String pageToken, int pageSize) throws SQLException, DAOException
+    {
+        if (category < 0)
+			throw new DAOException("Category is invalid");
+        Pages.checkPageSize(pageSize);
+        String scope = "ProductDao.category=" + category;
+        Pages.Cursor cursor = Pages.cursor(pageToken, scope);
+        
+        List<Product> list = new ArrayList<>(pageSize + 1);
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			String sql = cursor == null ? catPageSQL : catNextPageSQL;
+			ps = connection.prepareStatement(sql);
+			ps.setInt(1, category);
+			int index = 2;
+			if (cursor != null) {
+				ps.setString(index++, cursor.sortKey);
+				ps.setString(index++, cursor.sortKey);
+				ps.setLong(index++, cursor.id);
+			}
+			ps.setInt(index, pageSize + 1);
+			RowMappers.PRODUCT.mapAll(sql, ps.executeQuery(), list);
 			
-			return list;
+			Page<Product> page = Pages.page(list, pageSize, scope, Product::getProdName, Product::getId);
+			retrieveByCategoryPageMetrics.success(start, page.items.size());
+			return page;
+		}
+		catch (Exception ex) {
+			retrieveByCategoryPageMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -218,23 +361,45 @@ public class ProductDaoImpl implements ProductDAO
         if (upc == null)
 			throw new DAOException("Trying to retrieve products with NULL UPC");
         
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(upcSQL);
 			ps.setString(1, upc);
-			ResultSet prRS = ps.executeQuery();
-			
-			Product pr = null;
-			if(prRS.next()) {
-				pr = new Product();
-				pr.setId(prRS.getLong(1));
-				pr.setProdName(prRS.getString(2));
-				pr.setProdDescription(prRS.getString(3));
-				pr.setProdCategory(prRS.getInt(4));
-				pr.setProdUPC(prRS.getString(5));
-			}
+			Product pr = RowMappers.PRODUCT.mapFirst(upcSQL, ps.executeQuery());
 				
-			return pr;
+			return retrieveByUPCMetrics.success(start, pr);
+		}
+		catch (Exception ex) {
+			retrieveByUPCMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public long[] retrieveIDBounds(Connection connection) throws SQLException, DAOException
+    {
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(boundsSQL);
+			ResultSet rs = ps.executeQuery();
+			
+			if(!rs.next()) 
+				return retrieveIDBoundsMetrics.success(start, null);
+			long first = rs.getLong(1);
+			if (rs.wasNull()) 
+				return retrieveIDBoundsMetrics.success(start, null);
+			return retrieveIDBoundsMetrics.success(start, new long[] { first, rs.getLong(2) });
+		}
+		catch (Exception ex) {
+			retrieveIDBoundsMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -13,17 +13,31 @@
 package cs4347.jdbcProject.ecomm.dao.impl;
 
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
 import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.services.ProductRanking;
+import cs4347.jdbcProject.ecomm.services.ProductRankingOrder;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumnVisitor;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumns;
 import cs4347.jdbcProject.ecomm.services.PurchaseSummary;
+import cs4347.jdbcProject.ecomm.services.PurchaseVisitor;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Money;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 public class PurchaseDaoImpl implements PurchaseDAO
 {
@@ -32,8 +46,17 @@ public class PurchaseDaoImpl implements PurchaseDAO
 	private static final String insertSQL = 
 			"INSERT INTO Purchase (purchase_date, purchase_amt, CUSTOMER_id, PRODUCT_id) VALUES (?, ?, ?, ?);";
 	
+	private static final String insertWithIDSQL = 
+			"INSERT INTO Purchase (id, purchase_date, purchase_amt, CUSTOMER_id, PRODUCT_id) VALUES (?, ?, ?, ?, ?);";
+	
 	private static final String retrieveSQL = 
-			"SELECT * FROM Purchase WHERE id = ?;";
+			"SELECT " + RowMappers.PURCHASE_COLUMNS + " FROM Purchase WHERE id = ?;";
+	
+	private static final String retrieveForUpdateSQL = 
+			"SELECT " + RowMappers.PURCHASE_COLUMNS + " FROM Purchase WHERE id = ? FOR UPDATE;";
+	
+	private static final String retrieveAllSQL = //IN list appended per chunk
+			"SELECT " + RowMappers.PURCHASE_COLUMNS + " FROM Purchase WHERE id IN (%s);";
 	
 	private static final String updateSQL = 
 			"UPDATE Purchase SET purchase_date = ?, purchase_amt = ?, CUSTOMER_id = ?, PRODUCT_id = ? WHERE id = ?;";
@@ -42,13 +65,58 @@ public class PurchaseDaoImpl implements PurchaseDAO
 			"DELETE FROM Purchase WHERE id = ?;";
 	
 	private static final String retCusSQL = 
-			"SELECT * FROM Purchase WHERE CUSTOMER_id = ?";
+			"SELECT " + RowMappers.PURCHASE_COLUMNS + " FROM Purchase WHERE CUSTOMER_id = ?";
 	
 	private static final String retProSQL = 
-			"SELECT * FROM Purchase WHERE PRODUCT_id = ?";
+			"SELECT " + RowMappers.PURCHASE_COLUMNS + " FROM Purchase WHERE PRODUCT_id = ?";
+	
+	private static final String retProCusSQL = 
+			"SELECT DISTINCT CUSTOMER_id FROM Purchase WHERE PRODUCT_id = ?";
+	
+	private static final String rawColumns = 
+			"id, CUSTOMER_id, PRODUCT_id, purchase_date, purchase_amt";
+	
+	private static final String retCusColumnsSQL = 
+			"SELECT " + rawColumns + " FROM Purchase WHERE CUSTOMER_id = ?";
+	
+	private static final String retProColumnsSQL = 
+			"SELECT " + rawColumns + " FROM Purchase WHERE PRODUCT_id = ?";
 	
-	private static final String retCusAmtSQL = 
-			"SELECT purchase_amt FROM Purchase WHERE CUSTOMER_id = ?";
+	private static final String retAfterIDSQL = 
+			"SELECT " + rawColumns + " FROM Purchase WHERE id > ? ORDER BY id";
+	
+	private static final String topProductsSQL = //category join, date filters and sort appended per call
+			"SELECT pu.PRODUCT_id, COUNT(*), COALESCE(SUM(pu.purchase_amt), 0) FROM Purchase pu";
+	
+	private static final String summaryColumns = 
+			"MIN(purchase_amt), MAX(purchase_amt), COUNT(*), SUM(purchase_amt)";
+	
+	private static final String retCusSummarySQL = 
+			"SELECT " + summaryColumns + " FROM Purchase WHERE CUSTOMER_id = ?";
+	
+	private static final String retSummariesSQL = //IN list appended per chunk
+			"SELECT CUSTOMER_id, " + summaryColumns + " FROM Purchase WHERE CUSTOMER_id IN (%s) GROUP BY CUSTOMER_id";
+
+	private static final MethodMetrics createMetrics = PersistenceMetrics.register("PurchaseDao.create");
+	private static final MethodMetrics createAllMetrics = PersistenceMetrics.register("PurchaseDao.createAll");
+	private static final MethodMetrics createWithIDMetrics = PersistenceMetrics.register("PurchaseDao.createWithID");
+	private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("PurchaseDao.retrieve");
+	private static final MethodMetrics retrieveForUpdateMetrics = PersistenceMetrics.register("PurchaseDao.retrieveForUpdate");
+	private static final MethodMetrics retrieveAllMetrics = PersistenceMetrics.register("PurchaseDao.retrieveAll");
+	private static final MethodMetrics updateMetrics = PersistenceMetrics.register("PurchaseDao.update");
+	private static final MethodMetrics deleteMetrics = PersistenceMetrics.register("PurchaseDao.delete");
+	private static final MethodMetrics retrieveForCustomerIDMetrics = PersistenceMetrics.register("PurchaseDao.retrieveForCustomerID");
+	private static final MethodMetrics retrieveForProductIDMetrics = PersistenceMetrics.register("PurchaseDao.retrieveForProductID");
+	private static final MethodMetrics retrieveCustomerIDsForProductIDMetrics = PersistenceMetrics.register("PurchaseDao.retrieveCustomerIDsForProductID");
+	private static final MethodMetrics visitForCustomerIDMetrics = PersistenceMetrics.register("PurchaseDao.visitForCustomerID");
+	private static final MethodMetrics visitForProductIDMetrics = PersistenceMetrics.register("PurchaseDao.visitForProductID");
+	private static final MethodMetrics retrieveColumnsForCustomerIDMetrics = PersistenceMetrics.register("PurchaseDao.retrieveColumnsForCustomerID");
+	private static final MethodMetrics retrieveColumnsForProductIDMetrics = PersistenceMetrics.register("PurchaseDao.retrieveColumnsForProductID");
+	private static final MethodMetrics visitColumnsAfterIDMetrics = PersistenceMetrics.register("PurchaseDao.visitColumnsAfterID");
+	private static final MethodMetrics retrievePurchaseSummaryMetrics = PersistenceMetrics.register("PurchaseDao.retrievePurchaseSummary");
+	private static final MethodMetrics retrievePurchaseSummariesMetrics = PersistenceMetrics.register("PurchaseDao.retrievePurchaseSummaries");
+	private static final MethodMetrics retrieveTopProductsMetrics = PersistenceMetrics.register("PurchaseDao.retrieveTopProducts");
+	private static final MethodMetrics retrieveProductTotalsMetrics = PersistenceMetrics.register("PurchaseDao.retrieveProductTotals");
 	
     @Override
     public Purchase create(Connection connection, Purchase purchase) throws SQLException, DAOException
@@ -56,12 +124,13 @@ public class PurchaseDaoImpl implements PurchaseDAO
     	if (purchase.getId() != null) 
 			throw new DAOException("Attempting to insert with NON-NULL ID");
 
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS);
 			
 			ps.setDate(1, purchase.getPurchaseDate());
-			ps.setDouble(2, purchase.getPurchaseAmount());
+			Money.setCents(ps, 2, purchase.getPurchaseCents());
 			ps.setLong(3, purchase.getCustomerID());
 			ps.setLong(4, purchase.getProductID());
 			ps.executeUpdate();
@@ -71,7 +140,82 @@ public class PurchaseDaoImpl implements PurchaseDAO
 			int lastKey = keyRS.getInt(1);
 			purchase.setId((long) lastKey);
 			
-			return purchase;
+			return createMetrics.success(start, purchase);
+		}
+		catch (Exception ex) {
+			createMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public List<Purchase> createAll(Connection connection, List<Purchase> purchases) throws SQLException, DAOException
+    {
+    	for (Purchase purchase : purchases) {
+    		if (purchase.getId() != null) 
+    			throw new DAOException("Attempting to insert with NON-NULL ID");
+    	}
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS);
+			for (Purchase purchase : purchases) {
+				ps.setDate(1, purchase.getPurchaseDate());
+				Money.setCents(ps, 2, purchase.getPurchaseCents());
+				ps.setLong(3, purchase.getCustomerID());
+				ps.setLong(4, purchase.getProductID());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			
+			// Keys come back in batch order
+			ResultSet keyRS = ps.getGeneratedKeys();
+			for (Purchase purchase : purchases) {
+				if (!keyRS.next()) 
+					throw new DAOException("Driver returned fewer generated keys than inserted purchases");
+				purchase.setId(keyRS.getLong(1));
+			}
+			return createAllMetrics.success(start, purchases);
+		}
+		catch (Exception ex) {
+			createAllMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public Purchase createWithID(Connection connection, Purchase purchase) throws SQLException, DAOException
+    {
+    	if (purchase.getId() == null) 
+			throw new DAOException("Attempting to insert with NULL ID");
+
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(insertWithIDSQL);
+			ps.setLong(1, purchase.getId());
+			ps.setDate(2, purchase.getPurchaseDate());
+			Money.setCents(ps, 3, purchase.getPurchaseCents());
+			ps.setLong(4, purchase.getCustomerID());
+			ps.setLong(5, purchase.getProductID());
+			ps.executeUpdate();
+			
+			return createWithIDMetrics.success(start, purchase);
+		}
+		catch (Exception ex) {
+			createWithIDMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -82,27 +226,33 @@ public class PurchaseDaoImpl implements PurchaseDAO
 
     @Override
     public Purchase retrieve(Connection connection, Long id) throws SQLException, DAOException
+    {
+    	return retrieve(connection, id, retrieveSQL, retrieveMetrics);
+    }
+
+    @Override
+    public Purchase retrieveForUpdate(Connection connection, Long id) throws SQLException, DAOException
+    {
+    	return retrieve(connection, id, retrieveForUpdateSQL, retrieveForUpdateMetrics);
+    }
+
+    private Purchase retrieve(Connection connection, Long id, String sql, MethodMetrics metrics) throws SQLException, DAOException
     {
     	if (id == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
     	
+		long start = System.nanoTime();
 		PreparedStatement ps = null;
 		try {
-			ps = connection.prepareStatement(retrieveSQL);
+			ps = connection.prepareStatement(sql);
 			ps.setLong(1, id);
-			ResultSet prRS = ps.executeQuery();
-
-			Purchase pur = null;
-			if(prRS.next()) {
-				pur = new Purchase();
-				pur.setId(id);
-				pur.setPurchaseDate(prRS.getDate(2));
-				pur.setPurchaseAmount(prRS.getDouble(3));
-				pur.setCustomerID(prRS.getLong(4));
-				pur.setProductID(prRS.getLong(5));
-			}
+			Purchase pur = RowMappers.PURCHASE.mapFirst(sql, ps.executeQuery());
 
-			return pur;
+			return metrics.success(start, pur);
+		}
+		catch (Exception ex) {
+			metrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -111,22 +261,60 @@ public class PurchaseDaoImpl implements PurchaseDAO
 		}
     }
 
+    @Override
+    public RetrieveAllResult<Purchase> retrieveAll(Connection connection, Collection<Long> ids) throws SQLException, DAOException
+    {
+    	if (ids == null) 
+			throw new DAOException("Attempting to retrieve with NULL IDs");
+    	
+    	long start = System.nanoTime();
+    	Map<Long, Purchase> loaded = new HashMap<>();
+    	for (List<Long> chunk : SqlLists.chunks(ids, SqlLists.DEFAULT_CHUNK_SIZE)) {
+    		int size = SqlLists.paddedSize(chunk.size(), SqlLists.DEFAULT_CHUNK_SIZE);
+    		PreparedStatement ps = null;
+    		try {
+    			ps = connection.prepareStatement(String.format(retrieveAllSQL, SqlLists.placeholders(size)));
+    			SqlLists.bindPadded(ps, 1, chunk, size);
+    			for (Purchase pur : RowMappers.PURCHASE.mapAll(retrieveAllSQL, ps.executeQuery())) {
+    				loaded.put(pur.getId(), pur);
+    			}
+    		}
+    		catch (Exception ex) {
+    			retrieveAllMetrics.failure(start, ex);
+    			throw ex;
+    		}
+    		finally {
+    			if (ps != null && !ps.isClosed()) {
+    				ps.close();
+    			}
+    		}
+    	}
+    	
+    	retrieveAllMetrics.success(start, loaded.size());
+    	return RetrieveAllResult.of(ids, loaded);
+    }
+
     @Override
     public int update(Connection connection, Purchase purchase) throws SQLException, DAOException
     {
     	if (purchase.getId() == null) 
 			throw new DAOException("Attempting to update non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(updateSQL);
 			ps.setDate(1, purchase.getPurchaseDate());
-			ps.setDouble(2, purchase.getPurchaseAmount());
+			Money.setCents(ps, 2, purchase.getPurchaseCents());
 			ps.setLong(3, purchase.getCustomerID());
 			ps.setLong(4, purchase.getProductID());
 			ps.setLong(5, purchase.getId());
 			
-			return ps.executeUpdate();
+			return updateMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			updateMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -141,12 +329,17 @@ public class PurchaseDaoImpl implements PurchaseDAO
     	if (id == null) 
 			throw new DAOException("Attempting to delete non-existent ID");
 		
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(deleteSQL);
 			ps.setLong(1, id);
 			
-			return ps.executeUpdate();
+			return deleteMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			deleteMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -162,25 +355,18 @@ public class PurchaseDaoImpl implements PurchaseDAO
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
         List<Purchase> list = new LinkedList<>();
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(retCusSQL);
 			ps.setLong(1, customerID);
-			ResultSet psRS = ps.executeQuery();
-			
-			while(psRS.next()) {
-				Purchase pr = new Purchase();
-				
-				pr.setId(psRS.getLong(1));
-				pr.setPurchaseDate(psRS.getDate(2));
-				pr.setPurchaseAmount(psRS.getDouble(3));
-				pr.setCustomerID(psRS.getLong(4));
-				pr.setProductID(psRS.getLong(5));
-				
-				list.add(pr);
-			}
+			RowMappers.PURCHASE.mapAll(retCusSQL, ps.executeQuery(), list);
 			
-			return list;
+			return retrieveForCustomerIDMetrics.success(start, list);
+		}
+		catch (Exception ex) {
+			retrieveForCustomerIDMetrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -196,25 +382,205 @@ public class PurchaseDaoImpl implements PurchaseDAO
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
         List<Purchase> list = new LinkedList<>();
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
 			ps = connection.prepareStatement(retProSQL);
 			ps.setLong(1, productID);
+			RowMappers.PURCHASE.mapAll(retProSQL, ps.executeQuery(), list);
+			
+			return retrieveForProductIDMetrics.success(start, list);
+		}
+		catch (Exception ex) {
+			retrieveForProductIDMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public List<Long> retrieveCustomerIDsForProductID(Connection connection, Long productID) throws SQLException, DAOException
+    {
+        if (productID == null) 
+			throw new DAOException("Attempting to retrieve non-existent ID");
+		
+        List<Long> list = new ArrayList<>();
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(retProCusSQL);
+			ps.setLong(1, productID);
 			ResultSet psRS = ps.executeQuery();
 			
 			while(psRS.next()) {
-				Purchase pr = new Purchase();
+				list.add(psRS.getLong(1));
+			}
+			
+			return retrieveCustomerIDsForProductIDMetrics.success(start, list);
+		}
+		catch (Exception ex) {
+			retrieveCustomerIDsForProductIDMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public int visitForCustomerID(Connection connection, Long customerID, int fetchSize, PurchaseVisitor visitor) throws SQLException, DAOException
+    {
+        if (customerID == null) 
+			throw new DAOException("Attempting to retrieve non-existent ID");
+        
+        long start = System.nanoTime();
+        try {
+        	return visitForCustomerIDMetrics.success(start, visit(connection, retCusSQL, customerID, fetchSize, visitor));
+        }
+        catch (Exception ex) {
+        	visitForCustomerIDMetrics.failure(start, ex);
+        	throw ex;
+        }
+    }
+
+    @Override
+    public int visitForProductID(Connection connection, Long productID, int fetchSize, PurchaseVisitor visitor) throws SQLException, DAOException
+    {
+        if (productID == null) 
+			throw new DAOException("Attempting to retrieve non-existent ID");
+        
+        long start = System.nanoTime();
+        try {
+        	return visitForProductIDMetrics.success(start, visit(connection, retProSQL, productID, fetchSize, visitor));
+        }
+        catch (Exception ex) {
+        	visitForProductIDMetrics.failure(start, ex);
+        	throw ex;
+        }
+    }
+
+    /**
+     * Runs a single-parameter purchase query through a forward-only,
+     * read-only cursor and hands each row to the visitor as it arrives.
+     * The three-argument prepareStatement bypasses the pool's statement
+     * cache, so the cursor is always closed with the statement.
+     */
+    private int visit(Connection connection, String sql, long key, int fetchSize, PurchaseVisitor visitor) throws SQLException, DAOException
+    {
+    	PreparedStatement ps = null;
+    	int count = 0;
+		try {
+			ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(fetchSize);
+			ps.setLong(1, key);
+			ResultSet psRS = ps.executeQuery();
+			int[] columns = RowMappers.PURCHASE.plan(sql, psRS);
+			
+			while(psRS.next()) {
+				Purchase pr = RowMappers.PURCHASE.map(psRS, columns);
 				
-				pr.setId(psRS.getLong(1));
-				pr.setPurchaseDate(psRS.getDate(2));
-				pr.setPurchaseAmount(psRS.getDouble(3));
-				pr.setCustomerID(psRS.getLong(4));
-				pr.setProductID(psRS.getLong(5));
+				count++;
+				if (!visitor.visit(pr)) {
+					break;
+				}
+			}
+			
+			return count;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public PurchaseColumns retrieveColumnsForCustomerID(Connection connection, Long customerID, int fetchSize) throws SQLException, DAOException
+    {
+        if (customerID == null) 
+			throw new DAOException("Attempting to retrieve non-existent ID");
+        
+        long start = System.nanoTime();
+        try {
+        	return retrieveColumnsForCustomerIDMetrics.success(start, retrieveColumns(connection, retCusColumnsSQL, customerID, fetchSize));
+        }
+        catch (Exception ex) {
+        	retrieveColumnsForCustomerIDMetrics.failure(start, ex);
+        	throw ex;
+        }
+    }
+
+    @Override
+    public PurchaseColumns retrieveColumnsForProductID(Connection connection, Long productID, int fetchSize) throws SQLException, DAOException
+    {
+        if (productID == null) 
+			throw new DAOException("Attempting to retrieve non-existent ID");
+        
+        long start = System.nanoTime();
+        try {
+        	return retrieveColumnsForProductIDMetrics.success(start, retrieveColumns(connection, retProColumnsSQL, productID, fetchSize));
+        }
+        catch (Exception ex) {
+        	retrieveColumnsForProductIDMetrics.failure(start, ex);
+        	throw ex;
+        }
+    }
+
+    private PurchaseColumns retrieveColumns(Connection connection, String sql, long key, int fetchSize) throws SQLException, DAOException
+    {
+    	PurchaseColumns columns = new PurchaseColumns();
+    	visitColumns(connection, sql, key, fetchSize, (id, customerID, productID, epochDay, cents) -> {
+    		columns.append(id, customerID, productID, epochDay, cents);
+    		return true;
+    	});
+    	return columns;
+    }
+
+    @Override
+    public int visitColumnsAfterID(Connection connection, long afterID, int fetchSize, PurchaseColumnVisitor visitor) throws SQLException, DAOException
+    {
+        long start = System.nanoTime();
+        try {
+        	return visitColumnsAfterIDMetrics.success(start, visitColumns(connection, retAfterIDSQL, afterID, fetchSize, visitor));
+        }
+        catch (Exception ex) {
+        	visitColumnsAfterIDMetrics.failure(start, ex);
+        	throw ex;
+        }
+    }
+
+    /**
+     * Same cursor handling as visit, but reads rawColumns by position and
+     * hands them to the visitor as primitives.
+     */
+    private int visitColumns(Connection connection, String sql, long key, int fetchSize, PurchaseColumnVisitor visitor) throws SQLException, DAOException
+    {
+    	PreparedStatement ps = null;
+    	int count = 0;
+		try {
+			ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(fetchSize);
+			ps.setLong(1, key);
+			ResultSet psRS = ps.executeQuery();
+			
+			while(psRS.next()) {
+				Date date = psRS.getDate(4);
+				int epochDay = date == null ? PurchaseColumnVisitor.NO_DATE : (int) date.toLocalDate().toEpochDay();
+				long cents = Money.getCents(psRS, 5);
 				
-				list.add(pr);
+				count++;
+				if (!visitor.visit(psRS.getLong(1), psRS.getLong(2), psRS.getLong(3), epochDay, cents)) {
+					break;
+				}
 			}
 			
-			return list;
+			return count;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -229,32 +595,151 @@ public class PurchaseDaoImpl implements PurchaseDAO
         if (customerID == null) 
 			throw new DAOException("Attempting to retrieve non-existent ID");
 		
-        PurchaseSummary purSum = new PurchaseSummary();
-        purSum.minPurchase = Integer.MAX_VALUE;
-        purSum.maxPurchase = Integer.MIN_VALUE;
-        purSum.avgPurchase = 0f;
-        int counter = 0;
-        
+    	long start = System.nanoTime();
     	PreparedStatement ps = null;
 		try {
-			ps = connection.prepareStatement(retCusAmtSQL);
+			ps = connection.prepareStatement(retCusSummarySQL);
 			ps.setLong(1, customerID);
 			ResultSet psRS = ps.executeQuery();
 			
+			// An aggregate without GROUP BY always returns one row; COUNT is 0 when there are no purchases
+			if(!psRS.next() || psRS.getLong(4) == 0)
+				return retrievePurchaseSummaryMetrics.success(start, null);
+			
+			return retrievePurchaseSummaryMetrics.success(start, readSummary(psRS, 1));
+		}
+		catch (Exception ex) {
+			retrievePurchaseSummaryMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public Map<Long, PurchaseSummary> retrievePurchaseSummaries(Connection connection, Collection<Long> customerIDs) throws SQLException, DAOException
+    {
+        if (customerIDs == null) 
+			throw new DAOException("Attempting to retrieve with NULL customer IDs");
+        
+        long start = System.nanoTime();
+        Map<Long, PurchaseSummary> summaries = new HashMap<>();
+        for (List<Long> chunk : SqlLists.chunks(customerIDs, SqlLists.DEFAULT_CHUNK_SIZE)) {
+        	int size = SqlLists.paddedSize(chunk.size(), SqlLists.DEFAULT_CHUNK_SIZE);
+        	PreparedStatement ps = null;
+        	try {
+        		ps = connection.prepareStatement(String.format(retSummariesSQL, SqlLists.placeholders(size)));
+        		SqlLists.bindPadded(ps, 1, chunk, size);
+        		ResultSet psRS = ps.executeQuery();
+        		
+        		while(psRS.next()) {
+        			summaries.put(psRS.getLong(1), readSummary(psRS, 2));
+        		}
+        	}
+        	catch (Exception ex) {
+        		retrievePurchaseSummariesMetrics.failure(start, ex);
+        		throw ex;
+        	}
+        	finally {
+        		if (ps != null && !ps.isClosed()) {
+        			ps.close();
+        		}
+        	}
+        }
+        
+        return retrievePurchaseSummariesMetrics.success(start, summaries);
+    }
+
+    /**
+     * Reads MIN, MAX, COUNT, SUM starting at the given column. The
+     * average is derived from the exact sum rather than read from AVG.
+     */
+    private PurchaseSummary readSummary(ResultSet rs, int firstColumn) throws SQLException
+    {
+    	return PurchaseSummary.of(rs.getLong(firstColumn + 2), Money.getCents(rs, firstColumn + 3),
+    			Money.getCents(rs, firstColumn), Money.getCents(rs, firstColumn + 1));
+    }
+
+    @Override
+    public List<ProductRanking> retrieveTopProducts(Connection connection, ProductRankingOrder order, Integer category, Date from, Date to, int limit) throws SQLException, DAOException
+    {
+    	if (order == null) 
+    		throw new DAOException("Ranking order must be NON-NULL");
+    	if (limit < 1) 
+    		throw new DAOException("Ranking limit must be positive");
+    	
+    	return retrieveRankings(connection, order, category, from, to, limit, retrieveTopProductsMetrics);
+    }
+
+    @Override
+    public List<ProductRanking> retrieveProductTotals(Connection connection, Integer category, Date from, Date to) throws SQLException, DAOException
+    {
+    	return retrieveRankings(connection, null, category, from, to, 0, retrieveProductTotalsMetrics);
+    }
+
+    /**
+     * A null order lists every product in id order, without a limit.
+     */
+    private List<ProductRanking> retrieveRankings(Connection connection, ProductRankingOrder order, Integer category, Date from, Date to, int limit, MethodMetrics metrics) throws SQLException, DAOException
+    {
+    	// One statement shape per combination of filters, each cacheable by the pool
+    	StringBuilder sql = new StringBuilder(topProductsSQL);
+    	if (category != null) {
+    		sql.append(" JOIN Product p ON p.id = pu.PRODUCT_id AND p.prod_category = ?");
+    	}
+    	sql.append(" WHERE 1 = 1");
+    	if (from != null) {
+    		sql.append(" AND pu.purchase_date >= ?");
+    	}
+    	if (to != null) {
+    		sql.append(" AND pu.purchase_date < ?");    // TIMESTAMP column: before the day after 'to'
+    	}
+    	sql.append(" GROUP BY pu.PRODUCT_id ORDER BY ");
+    	if (order != null) {
+    		sql.append(order == ProductRankingOrder.REVENUE ? "3" : "2");
+    		sql.append(" DESC, pu.PRODUCT_id LIMIT ?");
+    	}
+    	else {
+    		sql.append("pu.PRODUCT_id");
+    	}
+    	
+    	List<ProductRanking> list = new ArrayList<>();
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(sql.toString());
+			int index = 1;
+			if (category != null) {
+				ps.setInt(index++, category);
+			}
+			if (from != null) {
+				ps.setDate(index++, from);
+			}
+			if (to != null) {
+				ps.setDate(index++, Date.valueOf(to.toLocalDate().plusDays(1)));
+			}
+			if (order != null) {
+				ps.setInt(index, limit);
+			}
+			ResultSet psRS = ps.executeQuery();
+			
 			while(psRS.next()) {
-				counter++;
-				float temp = psRS.getFloat(1);
-				purSum.avgPurchase += temp;
-				if(temp > purSum.maxPurchase)
-					purSum.maxPurchase = temp;
-				if(temp < purSum.minPurchase)
-					purSum.minPurchase = temp;
+				ProductRanking ranking = new ProductRanking();
+				ranking.productID = psRS.getLong(1);
+				ranking.purchaseCount = psRS.getLong(2);
+				ranking.revenueCents = Money.getCents(psRS, 3);
+				ranking.revenue = Money.toDouble(ranking.revenueCents);
+				list.add(ranking);
 			}
-			if(counter == 0)
-				return null;
-			purSum.avgPurchase /= counter;
 			
-			return purSum;
+			return metrics.success(start, list);
+		}
+		catch (Exception ex) {
+			metrics.failure(start, ex);
+			throw ex;
 		}
 		finally {
 			if (ps != null && !ps.isClosed()) {
@@ -0,0 +1,330 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import cs4347.jdbcProject.ecomm.dao.PurchaseRollupDAO;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.services.RevenueBucket;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Money;
+
+public class PurchaseRollupDaoImpl implements PurchaseRollupDAO
+{
+
+	//General SQL statements
+	private static final String addOnDuplicate = 
+			" ON DUPLICATE KEY UPDATE "
+			+ "purchase_count = purchase_count + VALUES(purchase_count), "
+			+ "purchase_total = purchase_total + VALUES(purchase_total);";
+	
+	// Purchase days are taken in SQL, in the session time zone, on every
+	// path, so incremental deltas and rebuilt rows land on the same day.
+	// Buckets emptied by deletes are skipped, as a rebuild drops them.
+	private static final String applySQL = 
+			"INSERT INTO purchase_daily_rollup (PRODUCT_id, rollup_day, purchase_count, purchase_total) "
+			+ "VALUES (?, CAST(? AS DATE), ?, ?)"
+			+ addOnDuplicate;
+	
+	private static final String removeCustomerSQL = 
+			"INSERT INTO purchase_daily_rollup (PRODUCT_id, rollup_day, purchase_count, purchase_total) "
+			+ "SELECT PRODUCT_id, CAST(purchase_date AS DATE), -COUNT(*), -COALESCE(SUM(purchase_amt), 0) FROM purchase "
+			+ "WHERE CUSTOMER_id = ? AND purchase_date IS NOT NULL GROUP BY PRODUCT_id, CAST(purchase_date AS DATE)"
+			+ addOnDuplicate;
+	
+	private static final String monthOfDay = 
+			"TIMESTAMPADD(DAY, 1 - DAYOFMONTH(rollup_day), rollup_day)";
+	
+	private static final String dailySQL = 
+			"SELECT rollup_day, 0, purchase_count, purchase_total FROM purchase_daily_rollup "
+			+ "WHERE PRODUCT_id = ? AND rollup_day BETWEEN ? AND ? AND purchase_count <> 0 "
+			+ "UNION ALL "
+			+ "SELECT rollup_month, 1, purchase_count, purchase_total FROM purchase_monthly_rollup "
+			+ "WHERE PRODUCT_id = ? AND rollup_month BETWEEN ? AND ? AND purchase_count <> 0 "
+			+ "ORDER BY 1, 2";
+	
+	private static final String monthlySQL = 
+			"SELECT rollup_month, 1, SUM(purchase_count), SUM(purchase_total) FROM ("
+			+ "SELECT " + monthOfDay + " AS rollup_month, purchase_count, purchase_total FROM purchase_daily_rollup "
+			+ "WHERE PRODUCT_id = ? AND rollup_day BETWEEN ? AND ? "
+			+ "UNION ALL "
+			+ "SELECT rollup_month, purchase_count, purchase_total FROM purchase_monthly_rollup "
+			+ "WHERE PRODUCT_id = ? AND rollup_month BETWEEN ? AND ?"
+			+ ") r GROUP BY rollup_month HAVING SUM(purchase_count) <> 0 ORDER BY rollup_month";
+	
+	private static final String compactSQL = 
+			"INSERT INTO purchase_monthly_rollup (PRODUCT_id, rollup_month, purchase_count, purchase_total) "
+			+ "SELECT PRODUCT_id, " + monthOfDay + ", SUM(purchase_count), SUM(purchase_total) FROM purchase_daily_rollup "
+			+ "WHERE rollup_day < ? GROUP BY PRODUCT_id, " + monthOfDay
+			+ addOnDuplicate;
+	
+	private static final String deleteCompactedSQL = 
+			"DELETE FROM purchase_daily_rollup WHERE rollup_day < ?;";
+	
+	private static final String deleteDailyRangeSQL = 
+			"DELETE FROM purchase_daily_rollup WHERE PRODUCT_id BETWEEN ? AND ?;";
+	
+	private static final String deleteMonthlyRangeSQL = 
+			"DELETE FROM purchase_monthly_rollup WHERE PRODUCT_id BETWEEN ? AND ?;";
+	
+	private static final String rebuildRangeSQL = 
+			"INSERT INTO purchase_daily_rollup (PRODUCT_id, rollup_day, purchase_count, purchase_total) "
+			+ "SELECT PRODUCT_id, CAST(purchase_date AS DATE), COUNT(*), COALESCE(SUM(purchase_amt), 0) FROM purchase "
+			+ "WHERE PRODUCT_id BETWEEN ? AND ? AND purchase_date IS NOT NULL GROUP BY PRODUCT_id, CAST(purchase_date AS DATE);";
+
+	private static final MethodMetrics applyMetrics = PersistenceMetrics.register("PurchaseRollupDao.apply");
+	private static final MethodMetrics applyPurchasesMetrics = PersistenceMetrics.register("PurchaseRollupDao.applyPurchases");
+	private static final MethodMetrics removeCustomerPurchasesMetrics = PersistenceMetrics.register("PurchaseRollupDao.removeCustomerPurchases");
+	private static final MethodMetrics retrieveDailyMetrics = PersistenceMetrics.register("PurchaseRollupDao.retrieveDaily");
+	private static final MethodMetrics retrieveMonthlyMetrics = PersistenceMetrics.register("PurchaseRollupDao.retrieveMonthly");
+	private static final MethodMetrics compactBeforeMetrics = PersistenceMetrics.register("PurchaseRollupDao.compactBefore");
+	private static final MethodMetrics rebuildRangeMetrics = PersistenceMetrics.register("PurchaseRollupDao.rebuildRange");
+	
+    @Override
+    public void apply(Connection connection, Long productID, Date purchaseDate, int countDelta, long centsDelta) throws SQLException, DAOException
+    {
+    	if (productID == null) 
+			throw new DAOException("Purchase rollup has no valid parent product");
+    	if (purchaseDate == null) 
+    		return;
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(applySQL);
+			ps.setLong(1, productID);
+			ps.setDate(2, purchaseDate);
+			ps.setInt(3, countDelta);
+			Money.setCents(ps, 4, centsDelta);
+			applyMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			applyMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public void applyPurchases(Connection connection, List<Purchase> purchases) throws SQLException, DAOException
+    {
+    	List<Purchase> ordered = new ArrayList<>(purchases.size());
+    	for (Purchase purchase : purchases) {
+    		if (purchase.getProductID() == null) 
+    			throw new DAOException("Purchase rollup has no valid parent product");
+    		if (purchase.getPurchaseDate() != null) {
+    			ordered.add(purchase);
+    		}
+    	}
+    	if (ordered.isEmpty()) 
+    		return;
+    	ordered.sort(Comparator.comparing(Purchase::getProductID).thenComparing(Purchase::getPurchaseDate));
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(applySQL);
+			for (Purchase purchase : ordered) {
+				ps.setLong(1, purchase.getProductID());
+				ps.setDate(2, purchase.getPurchaseDate());
+				ps.setInt(3, 1);
+				Money.setCents(ps, 4, purchase.getPurchaseCents());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			applyPurchasesMetrics.success(start, ordered.size());
+		}
+		catch (Exception ex) {
+			applyPurchasesMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public void removeCustomerPurchases(Connection connection, Long customerID) throws SQLException, DAOException
+    {
+    	if (customerID == null) 
+			throw new DAOException("Attempting to remove purchases of NULL customer ID");
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(removeCustomerSQL);
+			ps.setLong(1, customerID);
+			removeCustomerPurchasesMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			removeCustomerPurchasesMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public List<RevenueBucket> retrieveDaily(Connection connection, Long productID, Date from, Date to) throws SQLException, DAOException
+    {
+    	long start = System.nanoTime();
+    	try {
+    		return retrieveDailyMetrics.success(start, retrieveBuckets(connection, dailySQL, productID, from, to));
+    	}
+    	catch (Exception ex) {
+    		retrieveDailyMetrics.failure(start, ex);
+    		throw ex;
+    	}
+    }
+
+    @Override
+    public List<RevenueBucket> retrieveMonthly(Connection connection, Long productID, Date from, Date to) throws SQLException, DAOException
+    {
+    	long start = System.nanoTime();
+    	try {
+    		return retrieveMonthlyMetrics.success(start, retrieveBuckets(connection, monthlySQL, productID, from, to));
+    	}
+    	catch (Exception ex) {
+    		retrieveMonthlyMetrics.failure(start, ex);
+    		throw ex;
+    	}
+    }
+
+    /**
+     * Runs a bucket query whose parameters are the day range followed by
+     * the month range of the same product.
+     */
+    private List<RevenueBucket> retrieveBuckets(Connection connection, String sql, Long productID, Date from, Date to) throws SQLException, DAOException
+    {
+    	if (productID == null) 
+			throw new DAOException("Attempting to retrieve rollups of NULL product ID");
+    	if (from == null || to == null || from.after(to)) 
+    		throw new DAOException("Rollup date range is invalid");
+    	
+    	List<RevenueBucket> list = new ArrayList<>();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(sql);
+			ps.setLong(1, productID);
+			ps.setDate(2, from);
+			ps.setDate(3, to);
+			ps.setLong(4, productID);
+			ps.setDate(5, month(from));
+			ps.setDate(6, to);
+			ResultSet rs = ps.executeQuery();
+			
+			while (rs.next()) {
+				RevenueBucket bucket = new RevenueBucket();
+				bucket.start = rs.getDate(1);
+				bucket.monthly = rs.getInt(2) == 1;
+				bucket.purchaseCount = rs.getLong(3);
+				bucket.revenueCents = Money.getCents(rs, 4);
+				bucket.revenue = Money.toDouble(bucket.revenueCents);
+				list.add(bucket);
+			}
+			return list;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public int compactBefore(Connection connection, Date before) throws SQLException, DAOException
+    {
+    	if (before == null) 
+    		throw new DAOException("Compaction cutoff must be NON-NULL");
+    	
+    	Date cutoff = month(before);
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(compactSQL);
+			ps.setDate(1, cutoff);
+			ps.executeUpdate();
+			ps.close();
+			
+			ps = connection.prepareStatement(deleteCompactedSQL);
+			ps.setDate(1, cutoff);
+			return compactBeforeMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			compactBeforeMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public int rebuildRange(Connection connection, long firstProductID, long lastProductID) throws SQLException, DAOException
+    {
+    	if (firstProductID > lastProductID) 
+			throw new DAOException("Rebuild range is empty");
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			for (String deleteSQL : new String[] { deleteDailyRangeSQL, deleteMonthlyRangeSQL }) {
+				ps = connection.prepareStatement(deleteSQL);
+				ps.setLong(1, firstProductID);
+				ps.setLong(2, lastProductID);
+				ps.executeUpdate();
+				ps.close();
+			}
+			
+			ps = connection.prepareStatement(rebuildRangeSQL);
+			ps.setLong(1, firstProductID);
+			ps.setLong(2, lastProductID);
+			return rebuildRangeMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			rebuildRangeMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    private static Date month(Date date)
+    {
+    	return Date.valueOf(date.toLocalDate().withDayOfMonth(1));
+    }
+}
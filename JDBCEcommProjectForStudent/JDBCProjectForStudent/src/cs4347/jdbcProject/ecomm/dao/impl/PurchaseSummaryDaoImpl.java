@@ -0,0 +1,263 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import cs4347.jdbcProject.ecomm.dao.PurchaseSummaryDAO;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.services.PurchaseSummary;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Money;
+
+public class PurchaseSummaryDaoImpl implements PurchaseSummaryDAO
+{
+	
+	//General SQL statements
+	private static final String applySQL = 
+			"INSERT INTO purchase_summary (CUSTOMER_id, purchase_count, purchase_total, min_purchase_amt, max_purchase_amt) "
+			+ "VALUES (?, 1, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+			+ "purchase_count = purchase_count + 1, "
+			+ "purchase_total = purchase_total + VALUES(purchase_total), "
+			+ "min_purchase_amt = LEAST(COALESCE(min_purchase_amt, VALUES(min_purchase_amt)), VALUES(min_purchase_amt)), "
+			+ "max_purchase_amt = GREATEST(COALESCE(max_purchase_amt, VALUES(max_purchase_amt)), VALUES(max_purchase_amt));";
+	
+	private static final String retrieveSQL = 
+			"SELECT purchase_count, purchase_total, min_purchase_amt, max_purchase_amt FROM purchase_summary WHERE CUSTOMER_id = ?;";
+	
+	private static final String aggregateColumns = 
+			"CUSTOMER_id, COUNT(*), COALESCE(SUM(purchase_amt), 0), MIN(purchase_amt), MAX(purchase_amt)";
+	
+	private static final String deleteInSQL = //IN list appended per chunk
+			"DELETE FROM purchase_summary WHERE CUSTOMER_id IN (%s);";
+	
+	private static final String refreshInSQL = 
+			"INSERT INTO purchase_summary (CUSTOMER_id, purchase_count, purchase_total, min_purchase_amt, max_purchase_amt) "
+			+ "SELECT " + aggregateColumns + " FROM purchase WHERE CUSTOMER_id IN (%s) GROUP BY CUSTOMER_id;";
+	
+	private static final String deleteRangeSQL = 
+			"DELETE FROM purchase_summary WHERE CUSTOMER_id BETWEEN ? AND ?;";
+	
+	private static final String rebuildRangeSQL = 
+			"INSERT INTO purchase_summary (CUSTOMER_id, purchase_count, purchase_total, min_purchase_amt, max_purchase_amt) "
+			+ "SELECT " + aggregateColumns + " FROM purchase WHERE CUSTOMER_id BETWEEN ? AND ? GROUP BY CUSTOMER_id;";
+	
+	private static final String boundsSQL = 
+			"SELECT MIN(id), MAX(id) FROM customer;";
+
+	private static final MethodMetrics applyPurchaseMetrics = PersistenceMetrics.register("PurchaseSummaryDao.applyPurchase");
+	private static final MethodMetrics applyPurchasesMetrics = PersistenceMetrics.register("PurchaseSummaryDao.applyPurchases");
+	private static final MethodMetrics refreshMetrics = PersistenceMetrics.register("PurchaseSummaryDao.refresh");
+	private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("PurchaseSummaryDao.retrieve");
+	private static final MethodMetrics rebuildRangeMetrics = PersistenceMetrics.register("PurchaseSummaryDao.rebuildRange");
+	private static final MethodMetrics retrieveCustomerIDBoundsMetrics = PersistenceMetrics.register("PurchaseSummaryDao.retrieveCustomerIDBounds");
+	
+    @Override
+    public void applyPurchase(Connection connection, Long customerID, long cents) throws SQLException, DAOException
+    {
+    	if (customerID == null) 
+			throw new DAOException("Purchase summary has no valid parent customer");
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(applySQL);
+			ps.setLong(1, customerID);
+			Money.setCents(ps, 2, cents);
+			Money.setCents(ps, 3, cents);
+			Money.setCents(ps, 4, cents);
+			applyPurchaseMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			applyPurchaseMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public void applyPurchases(Connection connection, List<Purchase> purchases) throws SQLException, DAOException
+    {
+    	List<Purchase> ordered = new ArrayList<>(purchases);
+    	for (Purchase purchase : ordered) {
+    		if (purchase.getCustomerID() == null) 
+    			throw new DAOException("Purchase summary has no valid parent customer");
+    	}
+    	ordered.sort(Comparator.comparing(Purchase::getCustomerID));
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(applySQL);
+			for (Purchase purchase : ordered) {
+				ps.setLong(1, purchase.getCustomerID());
+				Money.setCents(ps, 2, purchase.getPurchaseCents());
+				Money.setCents(ps, 3, purchase.getPurchaseCents());
+				Money.setCents(ps, 4, purchase.getPurchaseCents());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			applyPurchasesMetrics.success(start, ordered.size());
+		}
+		catch (Exception ex) {
+			applyPurchasesMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public void refresh(Connection connection, Collection<Long> customerIDs) throws SQLException, DAOException
+    {
+    	if (customerIDs == null) 
+			throw new DAOException("Attempting to refresh with NULL customer IDs");
+    	
+    	long start = System.nanoTime();
+    	int rows = 0;
+    	try {
+    		for (List<Long> chunk : SqlLists.chunks(customerIDs, SqlLists.DEFAULT_CHUNK_SIZE)) {
+    			int size = SqlLists.paddedSize(chunk.size(), SqlLists.DEFAULT_CHUNK_SIZE);
+    			String inList = SqlLists.placeholders(size);
+    			executeForIDs(connection, String.format(deleteInSQL, inList), chunk, size);
+    			rows += executeForIDs(connection, String.format(refreshInSQL, inList), chunk, size);
+    		}
+    		refreshMetrics.success(start, rows);
+    	}
+    	catch (Exception ex) {
+    		refreshMetrics.failure(start, ex);
+    		throw ex;
+    	}
+    }
+
+    private int executeForIDs(Connection connection, String sql, List<Long> ids, int paddedSize) throws SQLException
+    {
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(sql);
+			SqlLists.bindPadded(ps, 1, ids, paddedSize);
+			return ps.executeUpdate();
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public PurchaseSummary retrieve(Connection connection, Long customerID) throws SQLException, DAOException
+    {
+    	if (customerID == null) 
+			throw new DAOException("Attempting to retrieve non-existent ID");
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(retrieveSQL);
+			ps.setLong(1, customerID);
+			ResultSet sumRS = ps.executeQuery();
+			
+			PurchaseSummary purSum = null;
+			if(sumRS.next() && sumRS.getLong(1) > 0) {
+				purSum = PurchaseSummary.of(sumRS.getLong(1), Money.getCents(sumRS, 2),
+						Money.getCents(sumRS, 3), Money.getCents(sumRS, 4));
+			}
+			
+			return retrieveMetrics.success(start, purSum);
+		}
+		catch (Exception ex) {
+			retrieveMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public int rebuildRange(Connection connection, long firstCustomerID, long lastCustomerID) throws SQLException, DAOException
+    {
+    	if (firstCustomerID > lastCustomerID) 
+			throw new DAOException("Rebuild range is empty");
+    	
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(deleteRangeSQL);
+			ps.setLong(1, firstCustomerID);
+			ps.setLong(2, lastCustomerID);
+			ps.executeUpdate();
+			ps.close();
+			
+			ps = connection.prepareStatement(rebuildRangeSQL);
+			ps.setLong(1, firstCustomerID);
+			ps.setLong(2, lastCustomerID);
+			return rebuildRangeMetrics.success(start, ps.executeUpdate());
+		}
+		catch (Exception ex) {
+			rebuildRangeMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+
+    @Override
+    public long[] retrieveCustomerIDBounds(Connection connection) throws SQLException, DAOException
+    {
+    	long start = System.nanoTime();
+    	PreparedStatement ps = null;
+		try {
+			ps = connection.prepareStatement(boundsSQL);
+			ResultSet rs = ps.executeQuery();
+			
+			if(!rs.next()) 
+				return retrieveCustomerIDBoundsMetrics.success(start, null);
+			long first = rs.getLong(1);
+			if (rs.wasNull()) 
+				return retrieveCustomerIDBoundsMetrics.success(start, null);
+			return retrieveCustomerIDBoundsMetrics.success(start, new long[] { first, rs.getLong(2) });
+		}
+		catch (Exception ex) {
+			retrieveCustomerIDBoundsMetrics.failure(start, ex);
+			throw ex;
+		}
+		finally {
+			if (ps != null && !ps.isClosed()) {
+				ps.close();
+			}
+		}
+    }
+}
@@ -0,0 +1,106 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps result rows to one entity type by column label. The labels are
+ * resolved to column indexes once per statement shape and the resulting
+ * plan is cached, so mapping a row is a fixed sequence of indexed,
+ * primitive getter calls with no per-row label lookups.
+ *
+ * The shape key is the SQL constant whose select list produced the
+ * result. Statements that only differ in their WHERE clause or IN-list
+ * length can share a key as long as they select the same columns.
+ */
+abstract class RowMapper<T>
+{
+	private final String[] labels;
+	private final ConcurrentHashMap<String, int[]> plans = new ConcurrentHashMap<>();
+
+	RowMapper(String... labels)
+	{
+		this.labels = labels;
+	}
+
+	/**
+	 * Returns the column indexes of this mapper's labels in the given
+	 * result, in label order, resolving them on first use of shape.
+	 * @throws SQLException if a label is not in the result.
+	 */
+	final int[] plan(String shape, ResultSet rs) throws SQLException
+	{
+		int[] plan = plans.get(shape);
+		if (plan == null) {
+			plan = resolve(shape, rs.getMetaData());
+			plans.putIfAbsent(shape, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Maps the current row using a plan from plan().
+	 */
+	abstract T map(ResultSet rs, int[] columns) throws SQLException;
+
+	/**
+	 * Maps the first row of the result, or returns null if it is empty.
+	 */
+	final T mapFirst(String shape, ResultSet rs) throws SQLException
+	{
+		if (!rs.next()) {
+			return null;
+		}
+		return map(rs, plan(shape, rs));
+	}
+
+	/**
+	 * Maps every remaining row of the result.
+	 */
+	final List<T> mapAll(String shape, ResultSet rs, List<T> into) throws SQLException
+	{
+		int[] columns = plan(shape, rs);
+		while (rs.next()) {
+			into.add(map(rs, columns));
+		}
+		return into;
+	}
+
+	final List<T> mapAll(String shape, ResultSet rs) throws SQLException
+	{
+		return mapAll(shape, rs, new ArrayList<T>());
+	}
+
+	private int[] resolve(String shape, ResultSetMetaData meta) throws SQLException
+	{
+		int count = meta.getColumnCount();
+		int[] plan = new int[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			for (int column = 1; column <= count && plan[i] == 0; column++) {
+				if (labels[i].equalsIgnoreCase(meta.getColumnLabel(column))) {
+					plan[i] = column;
+				}
+			}
+			if (plan[i] == 0) {
+				throw new SQLException("Column " + labels[i] + " is not in the result of: " + shape);
+			}
+		}
+		return plan;
+	}
+}
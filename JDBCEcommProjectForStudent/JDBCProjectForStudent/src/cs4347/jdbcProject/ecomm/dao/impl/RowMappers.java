@@ -0,0 +1,125 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import cs4347.jdbcProject.ecomm.entity.Address;
+import cs4347.jdbcProject.ecomm.entity.CreditCard;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.entity.Product;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.util.Money;
+
+/**
+ * Row mappers for the entity tables. Each column list below is the
+ * select list the DAOs use for that table, so the SQL and the mapper
+ * always name the same columns.
+ */
+final class RowMappers
+{
+	static final String CUSTOMER_COLUMNS = "id, first_name, last_name, gender, dob, email";
+	static final String ADDRESS_COLUMNS = "address1, address2, city, state, zipcode";
+	static final String CREDIT_CARD_COLUMNS = "name, cc_number, exp_date, security_code";
+	static final String PRODUCT_COLUMNS = "id, prod_name, prod_desc, prod_category, prod_upc";
+	static final String PURCHASE_COLUMNS = "id, purchase_date, purchase_amt, CUSTOMER_id, PRODUCT_id";
+
+	private RowMappers()
+	{
+	}
+
+	static final RowMapper<Customer> CUSTOMER = new RowMapper<Customer>(labels(CUSTOMER_COLUMNS)) {
+		@Override
+		Customer map(ResultSet rs, int[] c) throws SQLException
+		{
+			Customer cr = new Customer();
+			cr.setId(rs.getLong(c[0]));
+			cr.setFirstName(rs.getString(c[1]));
+			cr.setLastName(rs.getString(c[2]));
+			cr.setGender(rs.getString(c[3]).charAt(0));
+			cr.setDob(rs.getDate(c[4]));
+			cr.setEmail(rs.getString(c[5]));
+			return cr;
+		}
+	};
+
+	static final RowMapper<Address> ADDRESS = new RowMapper<Address>(labels(ADDRESS_COLUMNS)) {
+		@Override
+		Address map(ResultSet rs, int[] c) throws SQLException
+		{
+			Address addr = new Address();
+			addr.setAddress1(rs.getString(c[0]));
+			addr.setAddress2(rs.getString(c[1]));
+			addr.setCity(rs.getString(c[2]));
+			addr.setState(rs.getString(c[3]));
+			addr.setZipcode(rs.getString(c[4]));
+			return addr;
+		}
+	};
+
+	static final RowMapper<CreditCard> CREDIT_CARD = new RowMapper<CreditCard>(labels(CREDIT_CARD_COLUMNS)) {
+		@Override
+		CreditCard map(ResultSet rs, int[] c) throws SQLException
+		{
+			CreditCard cc = new CreditCard();
+			cc.setName(rs.getString(c[0]));
+			cc.setCcNumber(rs.getString(c[1]));
+			cc.setExpDate(rs.getString(c[2]));
+			cc.setSecurityCode(rs.getString(c[3]));
+			return cc;
+		}
+	};
+
+	static final RowMapper<Product> PRODUCT = new RowMapper<Product>(labels(PRODUCT_COLUMNS)) {
+		@Override
+		Product map(ResultSet rs, int[] c) throws SQLException
+		{
+			Product pr = new Product();
+			pr.setId(rs.getLong(c[0]));
+			pr.setProdName(rs.getString(c[1]));
+			pr.setProdDescription(rs.getString(c[2]));
+			pr.setProdCategory(rs.getInt(c[3]));
+			pr.setProdUPC(rs.getString(c[4]));
+			return pr;
+		}
+	};
+
+	static final RowMapper<Purchase> PURCHASE = new RowMapper<Purchase>(labels(PURCHASE_COLUMNS)) {
+		@Override
+		Purchase map(ResultSet rs, int[] c) throws SQLException
+		{
+			Purchase pur = new Purchase();
+			pur.setId(rs.getLong(c[0]));
+			pur.setPurchaseDate(rs.getDate(c[1]));
+			pur.setPurchaseCents(Money.getCents(rs, c[2]));
+			pur.setCustomerID(rs.getLong(c[3]));
+			pur.setProductID(rs.getLong(c[4]));
+			return pur;
+		}
+	};
+
+	/**
+	 * Qualifies each column of a column list with a table alias,
+	 * e.g. "c.id, c.first_name".
+	 */
+	static String qualified(String alias, String columns)
+	{
+		return alias + "." + columns.replace(", ", ", " + alias + ".");
+	}
+
+	private static String[] labels(String columns)
+	{
+		return columns.split(", ");
+	}
+}
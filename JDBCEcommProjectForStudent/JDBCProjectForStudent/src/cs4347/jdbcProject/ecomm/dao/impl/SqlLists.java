@@ -0,0 +1,94 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.dao.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Helpers for building chunked IN-list queries.
+ */
+final class SqlLists
+{
+	/**
+	 * Keeps each statement well below the bind-parameter limits of the
+	 * drivers in use (MySQL allows 65535 placeholders per statement).
+	 */
+	static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	private SqlLists()
+	{
+	}
+
+	/**
+	 * Returns "?, ?, ..., ?" with the given number of placeholders.
+	 */
+	static String placeholders(int count)
+	{
+		StringBuilder sb = new StringBuilder(count * 3);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append('?');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Splits the distinct, non-null ids into chunks of at most chunkSize,
+	 * preserving first-seen order.
+	 */
+	static List<List<Long>> chunks(Collection<Long> ids, int chunkSize)
+	{
+		List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+		distinct.remove(null);
+		List<List<Long>> chunks = new ArrayList<>();
+		for (int from = 0; from < distinct.size(); from += chunkSize) {
+			chunks.add(distinct.subList(from, Math.min(from + chunkSize, distinct.size())));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Rounds an IN-list size up to the next power of two, at most
+	 * chunkSize, so that a handful of statement shapes cover every chunk
+	 * and stay in the pool's statement cache instead of preparing a new
+	 * statement for every distinct list length.
+	 */
+	static int paddedSize(int size, int chunkSize)
+	{
+		int padded = Integer.highestOneBit(Math.max(size, 1));
+		if (padded < size) {
+			padded <<= 1;
+		}
+		return Math.min(padded, Math.max(chunkSize, size));
+	}
+
+	/**
+	 * Binds the chunk to paddedSize placeholders starting at firstIndex.
+	 * Extra placeholders repeat the last id, which does not change the
+	 * result of an IN predicate.
+	 */
+	static void bindPadded(PreparedStatement ps, int firstIndex, List<Long> chunk, int paddedSize) throws SQLException
+	{
+		long last = chunk.get(chunk.size() - 1);
+		for (int i = 0; i < paddedSize; i++) {
+			ps.setLong(firstIndex + i, i < chunk.size() ? chunk.get(i) : last);
+		}
+	}
+}
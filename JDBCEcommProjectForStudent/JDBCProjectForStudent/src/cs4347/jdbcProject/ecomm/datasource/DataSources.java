@@ -0,0 +1,41 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Helpers used by the persistence services to borrow connections.
+ */
+public final class DataSources
+{
+	private DataSources()
+	{
+	}
+
+	/**
+	 * Borrows a connection for read-only work: from the replica side when
+	 * the DataSource supports read/write splitting, otherwise a regular
+	 * connection.
+	 */
+	public static Connection getReadConnection(DataSource dataSource) throws SQLException
+	{
+		if (dataSource instanceof ReadWriteDataSource) {
+			return ((ReadWriteDataSource) dataSource).getReadConnection();
+		}
+		return dataSource.getConnection();
+	}
+}
@@ -0,0 +1,52 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import cs4347.jdbcProject.ecomm.util.LatencyHistogram;
+
+/**
+ * This is a DTO (Data Transfer Object) that is used to return
+ * a point-in-time view of a PooledDataSource for sizing and
+ * monitoring. Latencies are in nanoseconds.
+ */
+public class PoolStats
+{
+	public int maxPoolSize;
+	public int totalConnections;
+	public int activeConnections;
+	public int idleConnections;
+	public int threadsAwaitingConnection;
+
+	public long borrowCount;
+	public long timeoutCount;
+	public long leakCount;
+	public long statementCacheHits;
+	public long statementCacheMisses;
+
+	/** Time spent waiting for a free slot in the pool */
+	public LatencyHistogram.Snapshot waitTime;
+
+	/** Total getConnection() time including validation and physical opens */
+	public LatencyHistogram.Snapshot borrowLatency;
+
+	@Override
+	public String toString()
+	{
+		return "PoolStats[total=" + totalConnections + ", active=" + activeConnections
+				+ ", idle=" + idleConnections + ", waiting=" + threadsAwaitingConnection
+				+ ", borrows=" + borrowCount + ", timeouts=" + timeoutCount
+				+ ", stmt cache hits/misses=" + statementCacheHits + "/" + statementCacheMisses
+				+ ", borrow p50/p99 (us)=" + borrowLatency.getValueAtPercentile(50) / 1000
+				+ "/" + borrowLatency.getValueAtPercentile(99) / 1000 + "]";
+	}
+}
@@ -0,0 +1,206 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A physical connection owned by a PooledDataSource together with the
+ * bookkeeping the pool needs (age, last use, borrow site). Callers never
+ * see this class; they receive a proxy handle whose close() returns the
+ * physical connection to the pool instead of closing it, and whose
+ * prepareStatement() is served from a per-connection StatementCache.
+ */
+class PooledConnection
+{
+	final Connection physical;
+	final long createdAt;
+
+	volatile long lastUsedAt;
+	volatile long borrowedAt;
+	volatile Throwable borrowSite;
+	volatile boolean leakReported;
+
+	// Session state tracked locally so redundant driver calls can be skipped
+	// and the connection can be reset before it goes back to the pool.
+	private boolean autoCommit;
+	private boolean readOnly;
+	private int defaultIsolation;
+	private boolean isolationChanged;
+	private volatile boolean broken;
+
+	private final PooledDataSource pool;
+	private final StatementCache statementCache;
+
+	PooledConnection(PooledDataSource pool, Connection physical, int statementCacheSize,
+			AtomicLong cacheHits, AtomicLong cacheMisses) throws SQLException
+	{
+		this.pool = pool;
+		this.physical = physical;
+		this.statementCache = statementCacheSize > 0
+				? new StatementCache(physical, statementCacheSize, cacheHits, cacheMisses)
+				: null;
+		this.createdAt = System.nanoTime();
+		this.lastUsedAt = createdAt;
+		this.autoCommit = physical.getAutoCommit();
+		this.readOnly = physical.isReadOnly();
+		this.defaultIsolation = physical.getTransactionIsolation();
+	}
+
+	Connection newHandle()
+	{
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Handle());
+	}
+
+	boolean isBroken()
+	{
+		return broken;
+	}
+
+	/**
+	 * Rolls back any open transaction and restores the session defaults
+	 * so the next borrower starts from a clean connection.
+	 */
+	void reset() throws SQLException
+	{
+		if (statementCache != null) {
+			statementCache.releaseAll();
+		}
+		if (!autoCommit) {
+			physical.rollback();
+			physical.setAutoCommit(true);
+			autoCommit = true;
+		}
+		if (readOnly) {
+			physical.setReadOnly(false);
+			readOnly = false;
+		}
+		if (isolationChanged) {
+			physical.setTransactionIsolation(defaultIsolation);
+			isolationChanged = false;
+		}
+		physical.clearWarnings();
+	}
+
+	void closePhysical()
+	{
+		if (statementCache != null) {
+			statementCache.closeAll();
+		}
+		try {
+			physical.close();
+		}
+		catch (SQLException ex) {
+			// Nothing useful can be done with a connection that fails to close
+		}
+	}
+
+	private void checkBroken(Throwable cause)
+	{
+		if (cause instanceof SQLException) {
+			String state = ((SQLException) cause).getSQLState();
+			if (state != null && state.startsWith("08")) {
+				broken = true;
+			}
+		}
+	}
+
+	/**
+	 * The per-borrow view of the connection. Once closed it rejects
+	 * every call so a caller holding on to a stale reference cannot
+	 * interfere with the next borrower.
+	 */
+	private class Handle implements InvocationHandler
+	{
+		private boolean closed;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			switch (name) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					pool.release(PooledConnection.this);
+				}
+				return null;
+			case "isClosed":
+				return closed;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "PooledConnection[" + physical + (closed ? ", closed]" : "]");
+			default:
+				break;
+			}
+
+			if (closed) {
+				throw new SQLException("Connection is closed", "08003");
+			}
+
+			switch (name) {
+			case "setAutoCommit":
+				boolean requested = (Boolean) args[0];
+				if (requested == autoCommit) {
+					return null;
+				}
+				physical.setAutoCommit(requested);
+				autoCommit = requested;
+				return null;
+			case "getAutoCommit":
+				return autoCommit;
+			case "setReadOnly":
+				physical.setReadOnly((Boolean) args[0]);
+				readOnly = (Boolean) args[0];
+				return null;
+			case "setTransactionIsolation":
+				physical.setTransactionIsolation((Integer) args[0]);
+				isolationChanged = true;
+				return null;
+			case "prepareStatement":
+				if (statementCache == null) {
+					break;
+				}
+				Class<?>[] params = method.getParameterTypes();
+				if (params.length == 1) {
+					return statementCache.prepare((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+				}
+				if (params.length == 2 && params[1] == int.class) {
+					return statementCache.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+				}
+				break;
+			default:
+				break;
+			}
+
+			try {
+				return method.invoke(physical, args);
+			}
+			catch (InvocationTargetException ex) {
+				checkBroken(ex.getCause());
+				throw ex.getCause();
+			}
+		}
+	}
+}
@@ -0,0 +1,437 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.util.LatencyHistogram;
+
+/**
+ * A bounded connection pool in front of a physical DataSource (for example
+ * the MySQL driver's DataSource pointed at RDS). Persistence services can
+ * take it directly in place of the physical DataSource; their
+ * getConnection() / close() pairs then borrow and return pooled connections
+ * instead of opening a new database session per call.
+ *
+ * Idle connections are reused most-recently-used first, validated on borrow
+ * unless they were used within the validation skip window, and retired by a
+ * background housekeeper once they have been idle too long or reach their
+ * maximum lifetime. The default lifetime is kept well below the MySQL / RDS
+ * wait_timeout so the server never closes a connection the pool still holds.
+ *
+ * Each physical connection keeps an LRU cache of its prepared statements,
+ * so the DAOs' prepareStatement() / close() pairs on their static SQL reuse
+ * the same prepared handle instead of re-parsing the statement every call.
+ */
+public class PooledDataSource implements DataSource, AutoCloseable
+{
+	private static final Logger logger = Logger.getLogger(PooledDataSource.class.getName());
+
+	// Shared by every pool in the process; per-pool numbers are in getStats()
+	private static final MethodMetrics getConnectionMetrics = PersistenceMetrics.register("PooledDataSource.getConnection");
+
+	private final DataSource target;
+	private final int maxPoolSize;
+	private final Semaphore permits;
+
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger totalConnections = new AtomicInteger();
+	private final AtomicInteger threadsAwaiting = new AtomicInteger();
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong leakCount = new AtomicLong();
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	private final AtomicLong statementCacheMisses = new AtomicLong();
+	private final LatencyHistogram waitTime = new LatencyHistogram();
+	private final LatencyHistogram borrowLatency = new LatencyHistogram();
+
+	private volatile long connectionTimeoutMillis = 30_000;
+	private volatile long idleTimeoutMillis = 10 * 60_000;
+	private volatile long maxLifetimeMillis = 30 * 60_000;
+	private volatile long validationSkipWindowMillis = 500;
+	private volatile int validationTimeoutSeconds = 5;
+	private volatile long leakDetectionThresholdMillis = 0;
+	private volatile int statementCacheSize = 64;
+
+	private final ScheduledExecutorService housekeeper;
+	private volatile boolean closed;
+
+	public PooledDataSource(DataSource target, int maxPoolSize)
+	{
+		if (maxPoolSize < 1) {
+			throw new IllegalArgumentException("maxPoolSize must be at least 1");
+		}
+		this.target = target;
+		this.maxPoolSize = maxPoolSize;
+		this.permits = new Semaphore(maxPoolSize, true);
+
+		this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "pool-housekeeper");
+			t.setDaemon(true);
+			return t;
+		});
+		this.housekeeper.scheduleWithFixedDelay(this::housekeep, 30, 30, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		if (closed) {
+			throw new SQLException("Pool has been closed");
+		}
+
+		long start = System.nanoTime();
+		threadsAwaiting.incrementAndGet();
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a connection", ex);
+		}
+		finally {
+			threadsAwaiting.decrementAndGet();
+		}
+		long acquiredAt = System.nanoTime();
+		waitTime.record(acquiredAt - start);
+
+		if (!acquired) {
+			timeoutCount.incrementAndGet();
+			SQLException ex = new SQLTransientConnectionException("Timed out after " + connectionTimeoutMillis
+					+ "ms waiting for a connection (pool size " + maxPoolSize + ")");
+			getConnectionMetrics.failure(start, ex);
+			throw ex;
+		}
+
+		try {
+			PooledConnection pc = takeIdleOrOpen();
+			pc.borrowedAt = System.nanoTime();
+			pc.leakReported = false;
+			pc.borrowSite = leakDetectionThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+			borrowed.add(pc);
+			borrowCount.incrementAndGet();
+			borrowLatency.record(System.nanoTime() - start);
+			getConnectionMetrics.success(start, 1);
+			return pc.newHandle();
+		}
+		catch (SQLException | RuntimeException ex) {
+			getConnectionMetrics.failure(start, ex);
+			permits.release();
+			throw ex;
+		}
+	}
+
+	private PooledConnection takeIdleOrOpen() throws SQLException
+	{
+		PooledConnection pc;
+		while ((pc = idle.pollFirst()) != null) {
+			long now = System.nanoTime();
+			if (isExpired(pc, now)) {
+				retire(pc);
+				continue;
+			}
+			if (now - pc.lastUsedAt > TimeUnit.MILLISECONDS.toNanos(validationSkipWindowMillis)
+					&& !isValid(pc)) {
+				retire(pc);
+				continue;
+			}
+			return pc;
+		}
+
+		pc = new PooledConnection(this, target.getConnection(), statementCacheSize,
+				statementCacheHits, statementCacheMisses);
+		totalConnections.incrementAndGet();
+		return pc;
+	}
+
+	private boolean isValid(PooledConnection pc)
+	{
+		try {
+			return pc.physical.isValid(validationTimeoutSeconds);
+		}
+		catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	private boolean isExpired(PooledConnection pc, long now)
+	{
+		return maxLifetimeMillis > 0 && now - pc.createdAt > TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+	}
+
+	/**
+	 * Called by a connection handle when the borrower closes it.
+	 */
+	void release(PooledConnection pc)
+	{
+		borrowed.remove(pc);
+		try {
+			if (closed || pc.isBroken() || isExpired(pc, System.nanoTime())) {
+				retire(pc);
+				return;
+			}
+			try {
+				pc.reset();
+			}
+			catch (SQLException ex) {
+				retire(pc);
+				return;
+			}
+			pc.lastUsedAt = System.nanoTime();
+			pc.borrowSite = null;
+			idle.offerFirst(pc);
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	private void retire(PooledConnection pc)
+	{
+		totalConnections.decrementAndGet();
+		pc.closePhysical();
+	}
+
+	/**
+	 * Retires idle connections that are past their idle timeout or maximum
+	 * lifetime and reports connections borrowed longer than the leak
+	 * detection threshold.
+	 */
+	void housekeep()
+	{
+		long now = System.nanoTime();
+		long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+		for (PooledConnection pc : idle) {
+			boolean stale = isExpired(pc, now) || (idleTimeoutMillis > 0 && now - pc.lastUsedAt > idleNanos);
+			// remove() fails if a borrower took the connection in the meantime
+			if (stale && idle.remove(pc)) {
+				retire(pc);
+			}
+		}
+
+		long leakMillis = leakDetectionThresholdMillis;
+		if (leakMillis > 0) {
+			long leakNanos = TimeUnit.MILLISECONDS.toNanos(leakMillis);
+			for (PooledConnection pc : borrowed) {
+				if (!pc.leakReported && now - pc.borrowedAt > leakNanos) {
+					pc.leakReported = true;
+					leakCount.incrementAndGet();
+					logger.log(Level.WARNING, "Connection held for more than " + leakMillis
+							+ "ms, possible leak", pc.borrowSite);
+				}
+			}
+		}
+	}
+
+	public PoolStats getStats()
+	{
+		PoolStats stats = new PoolStats();
+		stats.maxPoolSize = maxPoolSize;
+		stats.totalConnections = totalConnections.get();
+		stats.idleConnections = idle.size();
+		stats.activeConnections = borrowed.size();
+		stats.threadsAwaitingConnection = threadsAwaiting.get();
+		stats.borrowCount = borrowCount.get();
+		stats.timeoutCount = timeoutCount.get();
+		stats.leakCount = leakCount.get();
+		stats.statementCacheHits = statementCacheHits.get();
+		stats.statementCacheMisses = statementCacheMisses.get();
+		stats.waitTime = waitTime.snapshot();
+		stats.borrowLatency = borrowLatency.snapshot();
+		return stats;
+	}
+
+	/**
+	 * Closes all idle connections and stops the housekeeper. Connections
+	 * still borrowed are closed physically when their borrowers return them.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		housekeeper.shutdownNow();
+		PooledConnection pc;
+		while ((pc = idle.pollFirst()) != null) {
+			retire(pc);
+		}
+	}
+
+	public int getMaxPoolSize()
+	{
+		return maxPoolSize;
+	}
+
+	public long getConnectionTimeoutMillis()
+	{
+		return connectionTimeoutMillis;
+	}
+
+	/**
+	 * How long getConnection() waits for a free connection before failing.
+	 */
+	public void setConnectionTimeoutMillis(long connectionTimeoutMillis)
+	{
+		this.connectionTimeoutMillis = connectionTimeoutMillis;
+	}
+
+	public long getIdleTimeoutMillis()
+	{
+		return idleTimeoutMillis;
+	}
+
+	/**
+	 * How long a connection may sit idle before it is closed; 0 disables.
+	 */
+	public void setIdleTimeoutMillis(long idleTimeoutMillis)
+	{
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	public long getMaxLifetimeMillis()
+	{
+		return maxLifetimeMillis;
+	}
+
+	/**
+	 * Maximum age of a physical connection; 0 disables. Keep this a few
+	 * minutes below the server's wait_timeout.
+	 */
+	public void setMaxLifetimeMillis(long maxLifetimeMillis)
+	{
+		this.maxLifetimeMillis = maxLifetimeMillis;
+	}
+
+	public long getValidationSkipWindowMillis()
+	{
+		return validationSkipWindowMillis;
+	}
+
+	/**
+	 * Connections returned within this window are handed out again
+	 * without an isValid() round trip.
+	 */
+	public void setValidationSkipWindowMillis(long validationSkipWindowMillis)
+	{
+		this.validationSkipWindowMillis = validationSkipWindowMillis;
+	}
+
+	public int getValidationTimeoutSeconds()
+	{
+		return validationTimeoutSeconds;
+	}
+
+	public void setValidationTimeoutSeconds(int validationTimeoutSeconds)
+	{
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+	}
+
+	public long getLeakDetectionThresholdMillis()
+	{
+		return leakDetectionThresholdMillis;
+	}
+
+	/**
+	 * Connections borrowed for longer than this are logged together with
+	 * the stack trace of the borrow site; 0 disables leak detection.
+	 */
+	public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis)
+	{
+		this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+	}
+
+	public int getStatementCacheSize()
+	{
+		return statementCacheSize;
+	}
+
+	/**
+	 * Maximum number of prepared statements cached per physical connection;
+	 * 0 disables statement caching. Applies to connections opened afterwards.
+	 */
+	public void setStatementCacheSize(int statementCacheSize)
+	{
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		throw new SQLFeatureNotSupportedException("Pooled connections use the credentials of the target DataSource");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException
+	{
+		return target.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException
+	{
+		target.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException
+	{
+		target.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException
+	{
+		return target.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger()
+	{
+		return logger;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException
+	{
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return target.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException
+	{
+		return iface.isInstance(this) || target.isWrapperFor(iface);
+	}
+}
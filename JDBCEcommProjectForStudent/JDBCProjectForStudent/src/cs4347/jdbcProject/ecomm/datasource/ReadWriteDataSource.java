@@ -0,0 +1,32 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * A DataSource that can hand out connections for read-only work
+ * separately from connections for writes. getConnection() always
+ * returns a connection suitable for writes.
+ */
+public interface ReadWriteDataSource extends DataSource
+{
+	/**
+	 * Returns a connection for work that only reads. It may point at a
+	 * replica, so it must not be used for writes.
+	 */
+	Connection getReadConnection() throws SQLException;
+}
@@ -0,0 +1,247 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes read-only work to a replica DataSource (for example an RDS read
+ * replica behind its own PooledDataSource) and everything else to the
+ * primary. The persistence services borrow read connections through
+ * DataSources.getReadConnection(), so only their retrieve methods go to
+ * the replica.
+ *
+ * Read-your-writes: after a caller closes a primary connection, its reads
+ * keep going to the primary for the stickiness window, so a caller never
+ * reads a replica that has not yet applied the caller's own write. The
+ * window belongs to a Session, which is per thread by default; code that
+ * works for a caller on other threads (DatabaseExecutor, the group
+ * committer) binds the caller's Session there, so a write made on a pool
+ * thread still keeps the caller's next read on the primary. If the replica
+ * cannot hand out a connection, reads fall back to the primary.
+ *
+ * Any two DataSources can be routed, so two embedded database instances
+ * can stand in for the primary and the replica locally.
+ */
+public class ReadWriteRoutingDataSource implements ReadWriteDataSource
+{
+	private static final Logger logger = Logger.getLogger(ReadWriteRoutingDataSource.class.getName());
+
+	private final DataSource primary;
+	private final DataSource replica;
+
+	/**
+	 * The read-your-writes window of one logical caller. Sessions are
+	 * shared by every routing DataSource in the process, so a write
+	 * through one keeps the caller's reads on the primary of all of them.
+	 */
+	public static final class Session
+	{
+		// System.nanoTime() of the caller's last write
+		private final AtomicLong lastWrite = new AtomicLong(Long.MIN_VALUE);
+
+		public void markWrite()
+		{
+			long now = System.nanoTime();
+			lastWrite.accumulateAndGet(now, Math::max);
+		}
+	}
+
+	private static final ThreadLocal<Session> session = ThreadLocal.withInitial(Session::new);
+
+	private volatile long stickinessWindowMillis = 2_000;
+
+	private final AtomicLong primaryConnections = new AtomicLong();
+	private final AtomicLong replicaConnections = new AtomicLong();
+	private final AtomicLong stickyReads = new AtomicLong();
+	private final AtomicLong replicaFailures = new AtomicLong();
+
+	public ReadWriteRoutingDataSource(DataSource primary, DataSource replica)
+	{
+		this.primary = primary;
+		this.replica = replica;
+	}
+
+	/**
+	 * The Session of the current thread.
+	 */
+	public static Session currentSession()
+	{
+		return session.get();
+	}
+
+	/**
+	 * Makes the current thread work for the given Session, for example a
+	 * pool thread running a task on behalf of a caller.
+	 * @return the Session bound before, to restore when the work is done
+	 */
+	public static Session bindSession(Session caller)
+	{
+		Session previous = session.get();
+		session.set(caller);
+		return previous;
+	}
+
+	/**
+	 * Returns a primary connection. Closing it starts the read-your-writes
+	 * window of the Session that borrowed it.
+	 */
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		primaryConnections.incrementAndGet();
+		Connection connection = primary.getConnection();
+		Session owner = session.get();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if (method.getName().equals("close")) {
+						owner.markWrite();
+					}
+					try {
+						return method.invoke(connection, args);
+					}
+					catch (InvocationTargetException ex) {
+						throw ex.getCause();
+					}
+				});
+	}
+
+	@Override
+	public Connection getReadConnection() throws SQLException
+	{
+		long since = System.nanoTime() - session.get().lastWrite.get();
+		if (since >= 0 && since < TimeUnit.MILLISECONDS.toNanos(stickinessWindowMillis)) {
+			stickyReads.incrementAndGet();
+			primaryConnections.incrementAndGet();
+			return primary.getConnection();
+		}
+
+		try {
+			Connection connection = replica.getConnection();
+			replicaConnections.incrementAndGet();
+			return connection;
+		}
+		catch (SQLException ex) {
+			replicaFailures.incrementAndGet();
+			logger.warning("Replica unavailable, reading from primary: " + ex.getMessage());
+			primaryConnections.incrementAndGet();
+			return primary.getConnection();
+		}
+	}
+
+	/**
+	 * Starts the read-your-writes window of the current Session without
+	 * borrowing a primary connection, for callers that write elsewhere.
+	 */
+	public void markWrite()
+	{
+		session.get().markWrite();
+	}
+
+	public long getStickinessWindowMillis()
+	{
+		return stickinessWindowMillis;
+	}
+
+	/**
+	 * How long after a write the same Session keeps reading from the
+	 * primary. Should exceed the replica lag seen in practice.
+	 */
+	public void setStickinessWindowMillis(long stickinessWindowMillis)
+	{
+		this.stickinessWindowMillis = stickinessWindowMillis;
+	}
+
+	public long getPrimaryConnectionCount()
+	{
+		return primaryConnections.get();
+	}
+
+	public long getReplicaConnectionCount()
+	{
+		return replicaConnections.get();
+	}
+
+	public long getStickyReadCount()
+	{
+		return stickyReads.get();
+	}
+
+	public long getReplicaFailureCount()
+	{
+		return replicaFailures.get();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		throw new SQLFeatureNotSupportedException("Routed connections use the credentials of the target DataSources");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException
+	{
+		return primary.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException
+	{
+		primary.setLogWriter(out);
+		replica.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException
+	{
+		primary.setLoginTimeout(seconds);
+		replica.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException
+	{
+		return primary.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger()
+	{
+		return logger;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException
+	{
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return primary.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException
+	{
+		return iface.isInstance(this) || primary.isWrapperFor(iface);
+	}
+}
@@ -0,0 +1,150 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+/**
+ * Maps customer ids to shards with consistent hashing. Every shard is
+ * placed on a 64-bit hash ring at virtualNodes points derived from its
+ * name, and an id belongs to the first point at or after the id's hash.
+ * Adding or removing a shard therefore only moves the ids next to that
+ * shard's points, about 1/N of them, and the placement depends only on
+ * the shard names, so every process configured with the same names
+ * routes the same way.
+ *
+ * Shards are indexed in the iteration order of the map passed in. Any
+ * DataSources can be shards, including several embedded databases that
+ * each have the simple_company schema loaded. Moving rows after the map
+ * changes is left to the operator.
+ */
+public final class ShardMap
+{
+	public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+	private final List<String> names;
+	private final List<DataSource> dataSources;
+
+	// Ring points in ascending unsigned order and the shard owning each
+	private final long[] points;
+	private final int[] owners;
+
+	public ShardMap(Map<String, DataSource> shards)
+	{
+		this(shards, DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * @param shards shard name to DataSource; names must be unique and
+	 * stable, since they decide placement
+	 * @param virtualNodes ring points per shard; more points spread ids
+	 * more evenly
+	 */
+	public ShardMap(Map<String, DataSource> shards, int virtualNodes)
+	{
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("At least one shard is required");
+		}
+		if (virtualNodes < 1) {
+			throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+		}
+		this.names = Collections.unmodifiableList(new ArrayList<>(shards.keySet()));
+		this.dataSources = Collections.unmodifiableList(new ArrayList<>(shards.values()));
+
+		int count = names.size() * virtualNodes;
+		long[][] ring = new long[count][];
+		for (int shard = 0; shard < names.size(); shard++) {
+			for (int node = 0; node < virtualNodes; node++) {
+				long point = mix(fnv(names.get(shard) + "#" + node));
+				ring[shard * virtualNodes + node] = new long[] { point, shard };
+			}
+		}
+		Arrays.sort(ring, (a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(a[1], b[1]));
+		this.points = new long[count];
+		this.owners = new int[count];
+		for (int i = 0; i < count; i++) {
+			points[i] = ring[i][0];
+			owners[i] = (int) ring[i][1];
+		}
+	}
+
+	/**
+	 * @return the index of the shard owning the customer id
+	 */
+	public int shardFor(long customerID)
+	{
+		long hash = mix(customerID);
+		int low = 0;
+		int high = points.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(points[middle], hash) < 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return owners[low == points.length ? 0 : low];
+	}
+
+	public DataSource getDataSource(int shard)
+	{
+		return dataSources.get(shard);
+	}
+
+	public String getName(int shard)
+	{
+		return names.get(shard);
+	}
+
+	/** All shards, by index */
+	public List<DataSource> getDataSources()
+	{
+		return dataSources;
+	}
+
+	public int size()
+	{
+		return dataSources.size();
+	}
+
+	/** 64-bit FNV-1a over the UTF-8 bytes */
+	private static long fnv(String text)
+	{
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/** MurmurHash3 finalizer, so consecutive ids land far apart on the ring */
+	private static long mix(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+}
@@ -0,0 +1,37 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+/**
+ * This is a DTO (Data Transfer Object) that is used to return one
+ * entry of TracingDataSource's top-N list: the executions of one SQL
+ * shape within the current window, and the bind values of the slowest.
+ */
+public class SlowStatement
+{
+	public String shape;
+	public long executions;
+	public long slowExecutions;
+	public double meanMillis;
+	public double maxMillis;
+
+	/** Bind values of the slowest execution, sensitive columns masked */
+	public String slowestBinds;
+
+	@Override
+	public String toString()
+	{
+		return String.format("%.1f ms max, %.2f ms mean, %d executions (%d slow): %s %s",
+				maxMillis, meanMillis, executions, slowExecutions, shape, slowestBinds);
+	}
+}
@@ -0,0 +1,165 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL text helpers for TracingDataSource: reducing a statement to its
+ * shape for grouping, and working out which bind parameters feed columns
+ * whose values must not be logged.
+ */
+final class SqlShapes
+{
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private static final Pattern INSERT = Pattern.compile(
+			"(?is)^\\s*INSERT\\s+INTO\\s+\\S+\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\(");
+	private static final Pattern COMPARED_COLUMN = Pattern.compile(
+			"(?i)([\\w`\"]+)\\s*(?:=|<>|!=|<=|>=|<|>|\\bLIKE)\\s*$");
+
+	private SqlShapes()
+	{
+	}
+
+	/**
+	 * Replaces literals with ?, collapses IN lists of any length to one
+	 * placeholder and normalises whitespace, so the chunked IN-list queries
+	 * and ad-hoc statements group with their siblings.
+	 */
+	static String shape(String sql)
+	{
+		String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+		shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+		shape = IN_LIST.matcher(shape).replaceAll("IN (?...)");
+		shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+		if (shape.endsWith(";")) {
+			shape = shape.substring(0, shape.length() - 1).trim();
+		}
+		return shape;
+	}
+
+	/**
+	 * Returns, per bind parameter (0-based), whether its value must be
+	 * masked. A parameter is masked when it feeds one of the masked columns
+	 * through an INSERT column list or a comparison. Parameters that cannot
+	 * be tied to a column are masked whenever the statement mentions a
+	 * masked column at all.
+	 */
+	static boolean[] sensitiveParameters(String sql, Set<String> maskedColumns)
+	{
+		List<Integer> marks = placeholderPositions(sql);
+		boolean[] sensitive = new boolean[marks.size()];
+		if (maskedColumns.isEmpty()) {
+			return sensitive;
+		}
+
+		String lower = sql.toLowerCase(Locale.ROOT);
+		boolean mentionsMasked = false;
+		for (String column : maskedColumns) {
+			if (lower.contains(column)) {
+				mentionsMasked = true;
+				break;
+			}
+		}
+		if (!mentionsMasked) {
+			return sensitive;
+		}
+
+		int valuesEnd = -1;
+		Matcher insert = INSERT.matcher(sql);
+		if (insert.find()) {
+			String[] columns = insert.group(1).split(",");
+			List<String> values = new ArrayList<>();
+			valuesEnd = splitTopLevel(sql, insert.end(), values);
+			int mark = 0;
+			for (int i = 0; i < values.size(); i++) {
+				int count = placeholderPositions(values.get(i)).size();
+				boolean masked = i < columns.length && maskedColumns.contains(column(columns[i]));
+				for (int j = 0; j < count && mark < sensitive.length; j++) {
+					sensitive[mark++] = masked;
+				}
+			}
+		}
+
+		for (int i = 0; i < marks.size(); i++) {
+			int position = marks.get(i);
+			if (position < valuesEnd) {
+				continue;
+			}
+			Matcher compared = COMPARED_COLUMN.matcher(sql.substring(0, position));
+			sensitive[i] = compared.find() ? maskedColumns.contains(column(compared.group(1))) : true;
+		}
+		return sensitive;
+	}
+
+	private static String column(String identifier)
+	{
+		String name = identifier.trim().replace("`", "").replace("\"", "").toLowerCase(Locale.ROOT);
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 ? name.substring(dot + 1) : name;
+	}
+
+	private static List<Integer> placeholderPositions(String sql)
+	{
+		List<Integer> positions = new ArrayList<>();
+		boolean quoted = false;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '\'') {
+				quoted = !quoted;
+			}
+			else if (c == '?' && !quoted) {
+				positions.add(i);
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * Splits the comma separated list starting at from (just inside its
+	 * opening parenthesis) and returns the index of its closing parenthesis.
+	 */
+	private static int splitTopLevel(String sql, int from, List<String> items)
+	{
+		int depth = 0;
+		int itemStart = from;
+		for (int i = from; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '(') {
+				depth++;
+			}
+			else if (c == ')') {
+				if (depth == 0) {
+					items.add(sql.substring(itemStart, i));
+					return i;
+				}
+				depth--;
+			}
+			else if (c == ',' && depth == 0) {
+				items.add(sql.substring(itemStart, i));
+				itemStart = i + 1;
+			}
+		}
+		items.add(sql.substring(itemStart));
+		return sql.length();
+	}
+}
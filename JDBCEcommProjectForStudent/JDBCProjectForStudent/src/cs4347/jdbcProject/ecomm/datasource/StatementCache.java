@@ -0,0 +1,281 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of PreparedStatements for one physical connection, keyed by
+ * SQL text and generated-keys flag. The DAOs keep calling prepareStatement()
+ * and close() as before; close() on a cached statement only clears its
+ * parameters and hands it back to the cache. Prepared handles stay valid
+ * across setAutoCommit() / commit() / rollback(), so the cache lives as long
+ * as the physical connection and is emptied when the pool closes it.
+ *
+ * A connection is used by one borrower at a time, so the cache is not
+ * thread safe.
+ */
+class StatementCache
+{
+	private final Connection physical;
+	private final int maxSize;
+	private final LinkedHashMap<Key, CachedStatement> entries;
+
+	// Shared with the pool so hit rates are reported across all connections
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+	StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses)
+	{
+		this.physical = physical;
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.misses = misses;
+		this.entries = new LinkedHashMap<Key, CachedStatement>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest)
+			{
+				if (size() <= StatementCache.this.maxSize) {
+					return false;
+				}
+				eldest.getValue().evict();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns a handle on a cached statement for the given SQL, preparing
+	 * it on a miss. If the cached statement is already checked out (nested
+	 * use of the same SQL) an uncached statement is returned instead.
+	 */
+	PreparedStatement prepare(Connection handle, String sql, int autoGeneratedKeys) throws SQLException
+	{
+		Key key = new Key(sql, autoGeneratedKeys);
+		CachedStatement entry = entries.get(key);
+		if (entry != null && !entry.inUse) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+			PreparedStatement ps = autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+					? physical.prepareStatement(sql)
+					: physical.prepareStatement(sql, autoGeneratedKeys);
+			CachedStatement fresh = new CachedStatement(ps);
+			if (entry == null) {
+				entries.put(key, fresh);
+			}
+			else {
+				fresh.evicted = true;   // not cached, closed for real when returned
+			}
+			entry = fresh;
+		}
+		entry.inUse = true;
+		return entry.newHandle(handle);
+	}
+
+	/**
+	 * Returns statements the borrower forgot to close. Called before the
+	 * connection goes back to the pool.
+	 */
+	void releaseAll()
+	{
+		for (CachedStatement entry : entries.values()) {
+			if (entry.inUse) {
+				entry.release();
+			}
+		}
+	}
+
+	/**
+	 * Physically closes every cached statement. Called when the pool
+	 * closes the physical connection.
+	 */
+	void closeAll()
+	{
+		Iterator<CachedStatement> it = entries.values().iterator();
+		while (it.hasNext()) {
+			it.next().closeQuietly();
+			it.remove();
+		}
+	}
+
+	private static final class Key
+	{
+		private final String sql;
+		private final int autoGeneratedKeys;
+
+		Key(String sql, int autoGeneratedKeys)
+		{
+			this.sql = sql;
+			this.autoGeneratedKeys = autoGeneratedKeys;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return sql.hashCode() * 31 + autoGeneratedKeys;
+		}
+	}
+
+	private static final class CachedStatement
+	{
+		final PreparedStatement statement;
+		final List<ResultSet> openResults = new ArrayList<>(2);
+		boolean inUse;
+		boolean evicted;
+		Handle current;
+
+		CachedStatement(PreparedStatement statement)
+		{
+			this.statement = statement;
+		}
+
+		PreparedStatement newHandle(Connection connection)
+		{
+			current = new Handle(this, connection);
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, current);
+		}
+
+		void evict()
+		{
+			evicted = true;
+			if (!inUse) {
+				closeQuietly();
+			}
+		}
+
+		void release()
+		{
+			if (current != null) {
+				current.closed = true;
+				current = null;
+			}
+			inUse = false;
+			for (ResultSet rs : openResults) {
+				try {
+					rs.close();
+				}
+				catch (SQLException ex) {
+					// The statement itself is reset below
+				}
+			}
+			openResults.clear();
+			if (evicted) {
+				closeQuietly();
+				return;
+			}
+			try {
+				statement.clearParameters();
+				statement.clearBatch();
+			}
+			catch (SQLException ex) {
+				evicted = true;
+				closeQuietly();
+			}
+		}
+
+		void closeQuietly()
+		{
+			try {
+				statement.close();
+			}
+			catch (SQLException ex) {
+				// Nothing useful can be done with a statement that fails to close
+			}
+		}
+	}
+
+	/**
+	 * The per-checkout view of a cached statement.
+	 */
+	private static final class Handle implements InvocationHandler
+	{
+		private final CachedStatement entry;
+		private final Connection connection;
+		boolean closed;
+
+		Handle(CachedStatement entry, Connection connection)
+		{
+			this.entry = entry;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			switch (name) {
+			case "close":
+				if (!closed) {
+					entry.release();
+				}
+				return null;
+			case "isClosed":
+				return closed;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "CachedStatement[" + entry.statement + "]";
+			default:
+				break;
+			}
+
+			if (closed) {
+				throw new SQLException("Statement is closed");
+			}
+			if (name.equals("getConnection")) {
+				return connection;
+			}
+
+			Object result;
+			try {
+				result = method.invoke(entry.statement, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getCause();
+			}
+			if (result instanceof ResultSet) {
+				entry.openResults.add((ResultSet) result);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,483 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.datasource;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps a DataSource so that every statement executed on its connections
+ * is timed. Executions over the slow threshold are logged at WARNING on
+ * the "cs4347.jdbcProject.ecomm.sql.slow" logger with their bind values,
+ * and every execution feeds a per-shape top-N of the slowest statements
+ * (see getTopStatements()). Values bound to the credit card number and
+ * security code columns are masked in both.
+ *
+ * Services enable tracing by being constructed with the wrapped
+ * DataSource, e.g. new CustomerPersistenceServiceImpl(new
+ * TracingDataSource(pool)). Read connections are traced too when the
+ * target routes reads (ReadWriteDataSource).
+ *
+ * Below the threshold an execution costs two nanoTime() calls, a map
+ * lookup on the SQL string and a few counter updates; bind values are
+ * only formatted for slow executions and new per-shape maximums.
+ */
+public class TracingDataSource implements ReadWriteDataSource
+{
+	private static final Logger logger = Logger.getLogger(TracingDataSource.class.getName());
+	private static final Logger slowLog = Logger.getLogger("cs4347.jdbcProject.ecomm.sql.slow");
+
+	// Caps memory if an application builds unbounded ad-hoc SQL strings
+	private static final int MAX_TRACKED_SQL = 10_000;
+
+	private final DataSource target;
+
+	private volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(200);
+	private volatile long windowNanos = TimeUnit.MINUTES.toNanos(5);
+	private volatile int topSize = 20;
+	private volatile Set<String> maskedColumns = Collections.unmodifiableSet(
+			new HashSet<>(Arrays.asList("cc_number", "security_code")));
+
+	private final ConcurrentHashMap<String, TracedSql> bySql = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, ShapeStats> byShape = new ConcurrentHashMap<>();
+
+	public TracingDataSource(DataSource target)
+	{
+		this.target = target;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		return trace(target.getConnection());
+	}
+
+	@Override
+	public Connection getReadConnection() throws SQLException
+	{
+		return trace(DataSources.getReadConnection(target));
+	}
+
+	/**
+	 * Returns the slowest SQL shapes of the current window, slowest first.
+	 */
+	public List<SlowStatement> getTopStatements()
+	{
+		long now = System.nanoTime();
+		List<SlowStatement> result = new ArrayList<>();
+		for (ShapeStats stats : byShape.values()) {
+			SlowStatement entry = stats.snapshot(now);
+			if (entry != null) {
+				result.add(entry);
+			}
+		}
+		result.sort((a, b) -> Double.compare(b.maxMillis, a.maxMillis));
+		return result.size() > topSize ? new ArrayList<>(result.subList(0, topSize)) : result;
+	}
+
+	public void resetTopStatements()
+	{
+		bySql.clear();
+		byShape.clear();
+	}
+
+	public long getSlowThresholdMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+	}
+
+	/**
+	 * Executions taking at least this long are logged. 0 logs everything.
+	 */
+	public void setSlowThresholdMillis(long slowThresholdMillis)
+	{
+		this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+	}
+
+	public long getTopWindowMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(windowNanos);
+	}
+
+	/**
+	 * Length of the rolling window the top-N list covers. A shape's numbers
+	 * start over with its first execution after its window has elapsed.
+	 */
+	public void setTopWindowMillis(long topWindowMillis)
+	{
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(topWindowMillis);
+	}
+
+	public int getTopSize()
+	{
+		return topSize;
+	}
+
+	public void setTopSize(int topSize)
+	{
+		this.topSize = topSize;
+	}
+
+	public Set<String> getMaskedColumns()
+	{
+		return maskedColumns;
+	}
+
+	/**
+	 * Column names (case-insensitive, without table prefix) whose bound
+	 * values are never logged.
+	 */
+	public void setMaskedColumns(Set<String> maskedColumns)
+	{
+		Set<String> lower = new HashSet<>();
+		for (String column : maskedColumns) {
+			lower.add(column.toLowerCase(Locale.ROOT));
+		}
+		this.maskedColumns = Collections.unmodifiableSet(lower);
+		bySql.clear();
+	}
+
+	private Connection trace(Connection connection)
+	{
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandle(connection));
+	}
+
+	private TracedSql traced(String sql)
+	{
+		TracedSql traced = bySql.get(sql);
+		if (traced == null) {
+			ShapeStats stats = byShape.computeIfAbsent(SqlShapes.shape(sql), ShapeStats::new);
+			traced = new TracedSql(sql, stats);
+			if (bySql.size() < MAX_TRACKED_SQL) {
+				TracedSql raced = bySql.putIfAbsent(sql, traced);
+				if (raced != null) {
+					traced = raced;
+				}
+			}
+		}
+		return traced;
+	}
+
+	private void executed(String sql, long elapsed, Object[] binds, int bindCount, int batchSize)
+	{
+		TracedSql traced = traced(sql);
+		long now = System.nanoTime();
+		boolean slow = elapsed >= slowThresholdNanos;
+		if (traced.stats.record(elapsed, slow, now, windowNanos)) {
+			traced.stats.slowestBinds = formatBinds(traced, binds, bindCount, batchSize);
+		}
+		if (slow && slowLog.isLoggable(Level.WARNING)) {
+			slowLog.warning(String.format("Slow SQL (%.1f ms): %s %s", elapsed / 1e6, sql,
+					formatBinds(traced, binds, bindCount, batchSize)));
+		}
+	}
+
+	private String formatBinds(TracedSql traced, Object[] binds, int bindCount, int batchSize)
+	{
+		boolean[] sensitive = traced.sensitive(maskedColumns);
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < bindCount; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			Object value = binds[i];
+			if (i >= sensitive.length || sensitive[i]) {
+				sb.append(value == null ? "NULL" : "****");
+			}
+			else if (value == null) {
+				sb.append("NULL");
+			}
+			else if (value instanceof CharSequence) {
+				sb.append('\'').append(value).append('\'');
+			}
+			else {
+				sb.append(value);
+			}
+		}
+		sb.append(']');
+		if (batchSize > 0) {
+			sb.append(" (last of a batch of ").append(batchSize).append(')');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * A distinct SQL string with its shape's statistics and, computed on
+	 * first use, which of its parameters are masked.
+	 */
+	private static final class TracedSql
+	{
+		final String sql;
+		final ShapeStats stats;
+		private volatile boolean[] sensitive;
+		private volatile Set<String> sensitiveFor;
+
+		TracedSql(String sql, ShapeStats stats)
+		{
+			this.sql = sql;
+			this.stats = stats;
+		}
+
+		boolean[] sensitive(Set<String> maskedColumns)
+		{
+			if (sensitiveFor != maskedColumns) {
+				sensitive = SqlShapes.sensitiveParameters(sql, maskedColumns);
+				sensitiveFor = maskedColumns;
+			}
+			return sensitive;
+		}
+	}
+
+	private static final class ShapeStats
+	{
+		final String shape;
+		final LongAdder executions = new LongAdder();
+		final LongAdder slowExecutions = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final AtomicLong maxNanos = new AtomicLong();
+		final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+		volatile String slowestBinds;
+
+		ShapeStats(String shape)
+		{
+			this.shape = shape;
+		}
+
+		/**
+		 * Records one execution and returns true if it is the slowest of
+		 * the window so far.
+		 */
+		boolean record(long elapsed, boolean slow, long now, long windowNanos)
+		{
+			long started = windowStart.get();
+			if (now - started > windowNanos && windowStart.compareAndSet(started, now)) {
+				// Racing executions may land in either window, which is fine for a top-N
+				executions.reset();
+				slowExecutions.reset();
+				totalNanos.reset();
+				maxNanos.set(0);
+			}
+			executions.increment();
+			totalNanos.add(elapsed);
+			if (slow) {
+				slowExecutions.increment();
+			}
+			long max = maxNanos.get();
+			while (elapsed > max) {
+				if (maxNanos.compareAndSet(max, elapsed)) {
+					return true;
+				}
+				max = maxNanos.get();
+			}
+			return false;
+		}
+
+		SlowStatement snapshot(long now)
+		{
+			long count = executions.sum();
+			if (count == 0) {
+				return null;
+			}
+			SlowStatement entry = new SlowStatement();
+			entry.shape = shape;
+			entry.executions = count;
+			entry.slowExecutions = slowExecutions.sum();
+			entry.meanMillis = totalNanos.sum() / 1e6 / count;
+			entry.maxMillis = maxNanos.get() / 1e6;
+			entry.slowestBinds = slowestBinds;
+			return entry;
+		}
+	}
+
+	private class ConnectionHandle implements InvocationHandler
+	{
+		private final Connection connection;
+
+		ConnectionHandle(Connection connection)
+		{
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			Object result;
+			try {
+				result = method.invoke(connection, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getCause();
+			}
+			String name = method.getName();
+			if (result instanceof Statement
+					&& (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+				String sql = name.equals("createStatement") ? null : (String) args[0];
+				return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+						new Class<?>[] { method.getReturnType() },
+						new StatementHandle((Statement) result, (Connection) proxy, sql));
+			}
+			return result;
+		}
+	}
+
+	private class StatementHandle implements InvocationHandler
+	{
+		private final Statement statement;
+		private final Connection connection;
+		private final String sql;
+		private Object[] binds = new Object[8];
+		private int bindCount;
+		private int batchSize;
+
+		StatementHandle(Statement statement, Connection connection, String sql)
+		{
+			this.statement = statement;
+			this.connection = connection;
+			this.sql = sql;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (name.startsWith("execute")) {
+				String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+				long start = System.nanoTime();
+				try {
+					return method.invoke(statement, args);
+				}
+				catch (InvocationTargetException ex) {
+					throw ex.getCause();
+				}
+				finally {
+					if (executed != null) {
+						executed(executed, System.nanoTime() - start, binds, bindCount, batchSize);
+					}
+					if (name.startsWith("executeBatch") || name.startsWith("executeLargeBatch")) {
+						batchSize = 0;
+					}
+				}
+			}
+
+			if (sql != null && name.startsWith("set") && args != null && args.length >= 2
+					&& args[0] instanceof Integer && method.getDeclaringClass() != Statement.class) {
+				bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+			}
+			else if (name.equals("clearParameters")) {
+				Arrays.fill(binds, 0, bindCount, null);
+				bindCount = 0;
+			}
+			else if (name.equals("addBatch")) {
+				batchSize++;
+			}
+			else if (name.equals("clearBatch")) {
+				batchSize = 0;
+			}
+			else if (name.equals("getConnection")) {
+				return connection;
+			}
+
+			try {
+				return method.invoke(statement, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getCause();
+			}
+		}
+
+		private void bind(int index, Object value)
+		{
+			if (index < 1) {
+				return;
+			}
+			if (index > binds.length) {
+				binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+			}
+			binds[index - 1] = value;
+			bindCount = Math.max(bindCount, index);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		return trace(target.getConnection(username, password));
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException
+	{
+		return target.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException
+	{
+		target.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException
+	{
+		target.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException
+	{
+		return target.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger()
+	{
+		return logger;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException
+	{
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return target.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException
+	{
+		return iface.isInstance(this) || target.isWrapperFor(iface);
+	}
+}
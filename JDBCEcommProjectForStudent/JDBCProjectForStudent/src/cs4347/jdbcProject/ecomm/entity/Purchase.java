@@ -14,13 +14,15 @@ package cs4347.jdbcProject.ecomm.entity;
 
 import java.sql.Date;
 
+import cs4347.jdbcProject.ecomm.util.Money;
+
 public class Purchase
 {
 	private Long id;
 	private Long customerID;
 	private Long productID;
 	private Date purchaseDate;
-	private double purchaseAmount;
+	private long purchaseCents;
 
 	public Long getCustomerID()
 	{
@@ -44,12 +46,25 @@ public class Purchase
 
 	public double getPurchaseAmount()
 	{
-		return purchaseAmount;
+		return Money.toDouble(purchaseCents);
 	}
 
 	public void setPurchaseAmount(double purchaseAmount)
 	{
-		this.purchaseAmount = purchaseAmount;
+		this.purchaseCents = Money.toCents(purchaseAmount);
+	}
+
+	/**
+	 * Exact purchase amount in cents
+	 */
+	public long getPurchaseCents()
+	{
+		return purchaseCents;
+	}
+
+	public void setPurchaseCents(long purchaseCents)
+	{
+		this.purchaseCents = purchaseCents;
 	}
 
 	public Long getProductID()
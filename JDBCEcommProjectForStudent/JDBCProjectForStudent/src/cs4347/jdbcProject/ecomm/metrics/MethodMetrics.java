@@ -0,0 +1,175 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.metrics;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import cs4347.jdbcProject.ecomm.util.LatencyHistogram;
+
+/**
+ * Latency, row and error counters for one DAO or service method. Each
+ * instrumented method holds its MethodMetrics in a static field, takes
+ * System.nanoTime() on entry and reports through success() or failure().
+ * The success path only touches the lock-free histogram and LongAdders,
+ * so recording never allocates; the success() overloads return their
+ * argument so they can wrap a return expression.
+ *
+ * Errors are counted by SQLState; exceptions without one (DAOExceptions,
+ * pool timeouts) are counted under their simple class name.
+ */
+public class MethodMetrics implements MethodMetricsMXBean
+{
+	private final String name;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder rows = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final ConcurrentHashMap<String, LongAdder> errorsBySQLState = new ConcurrentHashMap<>();
+
+	MethodMetrics(String name)
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public int success(long start, int rowCount)
+	{
+		latency.record(System.nanoTime() - start);
+		rows.add(rowCount);
+		return rowCount;
+	}
+
+	/**
+	 * Records a call returning an entity or a collection. A collection or
+	 * map counts as its size, any other non-null result as one row.
+	 */
+	public <T> T success(long start, T result)
+	{
+		latency.record(System.nanoTime() - start);
+		if (result instanceof Collection) {
+			rows.add(((Collection<?>) result).size());
+		}
+		else if (result instanceof Map) {
+			rows.add(((Map<?, ?>) result).size());
+		}
+		else if (result != null) {
+			rows.increment();
+		}
+		return result;
+	}
+
+	public void failure(long start, Throwable cause)
+	{
+		latency.record(System.nanoTime() - start);
+		errors.increment();
+		errorsBySQLState.computeIfAbsent(errorKey(cause), key -> new LongAdder()).increment();
+	}
+
+	private static String errorKey(Throwable cause)
+	{
+		if (cause instanceof SQLException) {
+			String state = ((SQLException) cause).getSQLState();
+			if (state != null) {
+				return state;
+			}
+		}
+		return cause.getClass().getSimpleName();
+	}
+
+	public MethodStats snapshot()
+	{
+		MethodStats stats = new MethodStats();
+		stats.name = name;
+		stats.latency = latency.snapshot();
+		stats.count = stats.latency.getCount();
+		stats.rows = rows.sum();
+		stats.errors = errors.sum();
+		stats.errorsBySQLState = getErrorsBySQLState();
+		return stats;
+	}
+
+	@Override
+	public void reset()
+	{
+		latency.reset();
+		rows.reset();
+		errors.reset();
+		errorsBySQLState.clear();
+	}
+
+	@Override
+	public long getCount()
+	{
+		return latency.snapshot().getCount();
+	}
+
+	@Override
+	public long getRowCount()
+	{
+		return rows.sum();
+	}
+
+	@Override
+	public long getErrorCount()
+	{
+		return errors.sum();
+	}
+
+	@Override
+	public Map<String, Long> getErrorsBySQLState()
+	{
+		Map<String, Long> result = new TreeMap<>();
+		for (Map.Entry<String, LongAdder> entry : errorsBySQLState.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().sum());
+		}
+		return result;
+	}
+
+	@Override
+	public double getMeanMicros()
+	{
+		return latency.snapshot().getMean() / 1000.0;
+	}
+
+	@Override
+	public double getP50Micros()
+	{
+		return latency.snapshot().getValueAtPercentile(50) / 1000.0;
+	}
+
+	@Override
+	public double getP99Micros()
+	{
+		return latency.snapshot().getValueAtPercentile(99) / 1000.0;
+	}
+
+	@Override
+	public double getP999Micros()
+	{
+		return latency.snapshot().getValueAtPercentile(99.9) / 1000.0;
+	}
+
+	@Override
+	public double getMaxMicros()
+	{
+		return latency.snapshot().getMax() / 1000.0;
+	}
+}
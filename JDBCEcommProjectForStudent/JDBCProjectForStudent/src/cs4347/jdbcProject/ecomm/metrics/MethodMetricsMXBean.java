@@ -0,0 +1,43 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one instrumented method, registered by PersistenceMetrics as
+ * cs4347.jdbcProject.ecomm:type=PersistenceMetrics,name=&lt;method&gt;.
+ * Latencies include failed calls.
+ */
+public interface MethodMetricsMXBean
+{
+	long getCount();
+
+	long getRowCount();
+
+	long getErrorCount();
+
+	Map<String, Long> getErrorsBySQLState();
+
+	double getMeanMicros();
+
+	double getP50Micros();
+
+	double getP99Micros();
+
+	double getP999Micros();
+
+	double getMaxMicros();
+
+	void reset();
+}
@@ -0,0 +1,40 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.metrics;
+
+import java.util.Map;
+
+import cs4347.jdbcProject.ecomm.util.LatencyHistogram;
+
+/**
+ * This is a DTO (Data Transfer Object) that is used to return
+ * a point-in-time view of one instrumented method. Latencies are
+ * in nanoseconds and include failed calls.
+ */
+public class MethodStats
+{
+	public String name;
+	public long count;
+	public long rows;
+	public long errors;
+	public Map<String, Long> errorsBySQLState;
+	public LatencyHistogram.Snapshot latency;
+
+	@Override
+	public String toString()
+	{
+		return name + "[count=" + count + ", rows=" + rows + ", errors=" + errors + errorsBySQLState
+				+ ", p50/p99/max (us)=" + latency.getValueAtPercentile(50) / 1000
+				+ "/" + latency.getValueAtPercentile(99) / 1000 + "/" + latency.getMax() / 1000 + "]";
+	}
+}
@@ -0,0 +1,115 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the MethodMetrics of every instrumented DAO, service and
+ * pool method. Metrics are registered once, from static initialisers,
+ * and published as MXBeans on the platform MBean server. Snapshots are
+ * available directly through snapshot() or pushed to a MetricsReporter
+ * on a schedule.
+ */
+public final class PersistenceMetrics
+{
+	private static final Logger log = Logger.getLogger(PersistenceMetrics.class.getName());
+	private static final String DOMAIN = "cs4347.jdbcProject.ecomm";
+
+	private static final ConcurrentHashMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+	private static final ScheduledExecutorService reporters = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "persistence-metrics-reporter");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private PersistenceMetrics()
+	{
+	}
+
+	/**
+	 * Returns the metrics for the named method, creating and publishing
+	 * them on first use. Names are "Class.method", e.g. "CustomerDao.retrieve".
+	 */
+	public static MethodMetrics register(String name)
+	{
+		return methods.computeIfAbsent(name, key -> {
+			MethodMetrics metrics = new MethodMetrics(key);
+			publish(metrics);
+			return metrics;
+		});
+	}
+
+	private static void publish(MethodMetrics metrics)
+	{
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=PersistenceMetrics,name="
+					+ ObjectName.quote(metrics.getName()));
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(metrics, objectName);
+			}
+		}
+		catch (JMException | SecurityException ex) {
+			// The in-process snapshot API still works without JMX
+			log.log(Level.WARNING, "Could not register JMX metrics for " + metrics.getName(), ex);
+		}
+	}
+
+	public static Map<String, MethodStats> snapshot()
+	{
+		Map<String, MethodStats> result = new TreeMap<>();
+		for (MethodMetrics metrics : methods.values()) {
+			result.put(metrics.getName(), metrics.snapshot());
+		}
+		return result;
+	}
+
+	public static void reset()
+	{
+		for (MethodMetrics metrics : methods.values()) {
+			metrics.reset();
+		}
+	}
+
+	/**
+	 * Calls the reporter with a fresh snapshot at a fixed rate until the
+	 * returned future is cancelled. Exceptions from the reporter are logged
+	 * and do not stop the schedule.
+	 */
+	public static ScheduledFuture<?> schedule(MetricsReporter reporter, long period, TimeUnit unit)
+	{
+		return reporters.scheduleAtFixedRate(() -> {
+			try {
+				reporter.report(snapshot());
+			}
+			catch (RuntimeException ex) {
+				log.log(Level.WARNING, "Metrics reporter failed", ex);
+			}
+		}, period, period, unit);
+	}
+}
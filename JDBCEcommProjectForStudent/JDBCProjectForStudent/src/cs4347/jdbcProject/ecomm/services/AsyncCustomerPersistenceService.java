@@ -0,0 +1,48 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Non-blocking counterpart of CustomerPersistenceService. Each method
+ * has the same contract as its synchronous version; the SQLException or
+ * DAOException it would throw completes the future exceptionally instead.
+ */
+public interface AsyncCustomerPersistenceService
+{
+	CompletableFuture<Customer> create(Customer customer);
+	
+	CompletableFuture<CustomerBatchResult> createAll(List<Customer> customers);
+	
+	CompletableFuture<CustomerBatchResult> createAll(List<Customer> customers, int chunkSize);
+	
+	CompletableFuture<Customer> retrieve(Long id);
+	CompletableFuture<RetrieveAllResult<Customer>> retrieveAll(Collection<Long> ids);
+	CompletableFuture<Integer> update(Customer customer);
+	CompletableFuture<Integer> update(Customer original, Customer customer);
+	CompletableFuture<Integer> delete(Long id);
+	
+	CompletableFuture<List<Customer>> retrieveByZipCode(String zipCode);
+	
+	CompletableFuture<List<Customer>> retrieveByDOB(Date startDate, Date endDate);
+	
+	CompletableFuture<Page<Customer>> retrieveByDOBPage(Date startDate, Date endDate, String pageToken, int pageSize);
+}
@@ -0,0 +1,42 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cs4347.jdbcProject.ecomm.entity.Product;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Non-blocking counterpart of ProductPersistenceService. Each method
+ * has the same contract as its synchronous version; the SQLException or
+ * DAOException it would throw completes the future exceptionally instead.
+ */
+public interface AsyncProductPersistenceService
+{
+	CompletableFuture<Product> create(Product product);
+	
+	CompletableFuture<Product> retrieve(Long id);
+	CompletableFuture<RetrieveAllResult<Product>> retrieveAll(Collection<Long> ids);
+	CompletableFuture<Integer> update(Product product);
+	CompletableFuture<Integer> delete(Long id);
+	
+	CompletableFuture<Product> retrieveByUPC(String upc);
+
+	CompletableFuture<List<Product>> retrieveByCategory(int category);
+
+	CompletableFuture<Page<Product>> retrieveByCategoryPage(int category, String pageToken, int pageSize);
+}
@@ -0,0 +1,65 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Non-blocking counterpart of PurchasePersistenceService. Each method
+ * has the same contract as its synchronous version; the SQLException or
+ * DAOException it would throw completes the future exceptionally instead.
+ */
+public interface AsyncPurchasePersistenceService
+{
+	CompletableFuture<Purchase> create(Purchase purchase);
+	
+	CompletableFuture<Purchase> retrieve(Long id);
+	CompletableFuture<RetrieveAllResult<Purchase>> retrieveAll(Collection<Long> ids);
+	CompletableFuture<Integer> update(Purchase purchase);
+	CompletableFuture<Integer> delete(Long id);
+	
+	CompletableFuture<List<Purchase>> retrieveForCustomerID(Long customerID);
+	
+	/**
+	 * The visitor is called on the executor's thread, not the caller's.
+	 * The future completes with the number of purchases visited.
+	 */
+	CompletableFuture<Integer> visitForCustomerID(Long customerID, PurchaseVisitor visitor);
+	
+	CompletableFuture<PurchaseColumns> retrieveColumnsForCustomerID(Long customerID);
+	
+	CompletableFuture<PurchaseSummary> retrievePurchaseSummary(Long customerID);
+	
+	CompletableFuture<Map<Long, PurchaseSummary>> retrievePurchaseSummaries(Collection<Long> customerIDs);
+
+	CompletableFuture<List<Purchase>> retrieveForProductID(Long productID);
+	
+	/**
+	 * The visitor is called on the executor's thread, not the caller's.
+	 * The future completes with the number of purchases visited.
+	 */
+	CompletableFuture<Integer> visitForProductID(Long productID, PurchaseVisitor visitor);
+	
+	CompletableFuture<PurchaseColumns> retrieveColumnsForProductID(Long productID);
+	CompletableFuture<List<ProductRanking>> retrieveTopProducts(ProductRankingOrder order, Integer category, Date from, Date to, int limit);
+	CompletableFuture<List<RevenueBucket>> retrieveDailyRevenue(Long productID, Date from, Date to);
+	CompletableFuture<List<RevenueBucket>> retrieveMonthlyRevenue(Long productID, Date from, Date to);
+	CompletableFuture<Integer> compactRollups(Date before);
+}
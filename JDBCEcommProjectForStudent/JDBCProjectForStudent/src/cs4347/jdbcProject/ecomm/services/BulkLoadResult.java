@@ -0,0 +1,49 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+/**
+ * This is a DTO (Data Transfer Object) that is used to return the
+ * results of a purchase bulk load. Batches are committed independently,
+ * so rows loaded before a failure stay loaded.
+ */
+public class BulkLoadResult
+{
+	/** Data lines read from the input, header excluded */
+	public long rowsRead;
+	
+	/** Rows committed to PURCHASE */
+	public long rowsLoaded;
+	
+	/** Rows that failed parsing, id validation or their insert */
+	public long rowsRejected;
+	
+	public long elapsedNanos;
+	
+	public double getRowsPerSecond()
+	{
+		return elapsedNanos == 0 ? 0 : rowsLoaded * 1e9 / elapsedNanos;
+	}
+	
+	public boolean hasRejects()
+	{
+		return rowsRejected > 0;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("read %d, loaded %d, rejected %d in %.1f s (%.0f rows/s)",
+				rowsRead, rowsLoaded, rowsRejected, elapsedNanos / 1e9, getRowsPerSecond());
+	}
+}
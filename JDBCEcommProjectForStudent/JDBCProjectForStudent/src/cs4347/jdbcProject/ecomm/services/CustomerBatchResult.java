@@ -0,0 +1,55 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cs4347.jdbcProject.ecomm.entity.Customer;
+
+/**
+ * This is a DTO (Data Transfer Object) that is used to return
+ * the results of a batched customer create. Chunks are committed
+ * independently, so a failed chunk does not undo chunks committed
+ * before it.
+ */
+public class CustomerBatchResult
+{
+	/** Customers that were committed, with their generated IDs set */
+	public List<Customer> created = new ArrayList<>();
+	
+	/** Chunks that were rolled back, in the order they were attempted */
+	public List<FailedChunk> failedChunks = new ArrayList<>();
+	
+	public boolean hasFailures()
+	{
+		return !failedChunks.isEmpty();
+	}
+	
+	public List<Customer> getFailedCustomers()
+	{
+		List<Customer> failed = new ArrayList<>();
+		for (FailedChunk chunk : failedChunks) {
+			failed.addAll(chunk.customers);
+		}
+		return failed;
+	}
+	
+	public static class FailedChunk
+	{
+		/** Index of the first customer of this chunk in the submitted list */
+		public int firstIndex;
+		public List<Customer> customers;
+		public Exception cause;
+	}
+}
@@ -14,10 +14,13 @@ package cs4347.jdbcProject.ecomm.services;
 
 import java.sql.Date;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import cs4347.jdbcProject.ecomm.entity.Customer;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 /** 
  * Although this interface is identical to CustomerDAO, the 
@@ -33,12 +36,46 @@ public interface CustomerPersistenceService
 	 */
 	Customer create(Customer customer) throws SQLException, DAOException;
 	
+	/**
+	 * Persists the given Customers with their Address and CreditCard
+	 * using batched inserts, committing in chunks of the default size.
+	 * @throws DAOException if any given Customer has a non-null id or
+	 * is missing its Address or CreditCard; nothing is written in that case.
+	 */
+	CustomerBatchResult createAll(List<Customer> customers) throws SQLException, DAOException;
+	
+	/**
+	 * Same as createAll(customers) with an explicit chunk size. Each chunk
+	 * is inserted and committed as one transaction; a failing chunk is
+	 * rolled back and reported without affecting other chunks.
+	 */
+	CustomerBatchResult createAll(List<Customer> customers, int chunkSize) throws SQLException, DAOException;
+	
 	/**
 	 * The remaining RUD methods expect the customer to be persisted
 	 * i.e. to maintain an ID. 
 	 */
 	Customer retrieve(Long id) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the customers, with Address and CreditCard, with the given ids in as few
+	 * round trips as possible. The result follows the order of the given
+	 * ids and lists the ids that were not found.
+	 */
+	RetrieveAllResult<Customer> retrieveAll(Collection<Long> ids) throws SQLException, DAOException;
+	/**
+	 * Writes only the tables and columns of the customer graph that differ
+	 * from what is stored. Returns the number of rows written, 0 when
+	 * nothing changed or the customer does not exist.
+	 */
 	int update(Customer customer) throws SQLException, DAOException;
+	
+	/**
+	 * Writes only what differs between original, the caller's copy of the
+	 * stored customer, and customer, without reading the customer first.
+	 * Returns the number of rows written, 0 when nothing changed.
+	 */
+	int update(Customer original, Customer customer) throws SQLException, DAOException;
 	int delete(Long id) throws SQLException, DAOException;
 	
 	/**
@@ -50,4 +87,12 @@ public interface CustomerPersistenceService
 	 * Retrieve all Customer whose DOB is in the given date range.
 	 */
 	List<Customer> retrieveByDOB(Date startDate, Date endDate) throws SQLException, DAOException;
+
+	/**
+	 * Retrieve one page of Customers whose DOB is in the given date
+	 * range, ordered by DOB. Pass null for the first page and the
+	 * returned nextPageToken for each following page; every page costs
+	 * the same to fetch.
+	 */
+	Page<Customer> retrieveByDOBPage(Date startDate, Date endDate, String pageToken, int pageSize) throws SQLException, DAOException;
 }
\ No newline at end of file
@@ -13,10 +13,13 @@
 package cs4347.jdbcProject.ecomm.services;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import cs4347.jdbcProject.ecomm.entity.Product;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 /** 
  */
@@ -37,6 +40,13 @@ public interface ProductPersistenceService
 	 */
 	Product retrieve(Long id) throws SQLException, DAOException;
 	
+	/**
+	 * Retrieve the products with the given ids in as few
+	 * round trips as possible. The result follows the order of the given
+	 * ids and lists the ids that were not found.
+	 */
+	RetrieveAllResult<Product> retrieveAll(Collection<Long> ids) throws SQLException, DAOException;
+	
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * Product has a NULL id. 
@@ -58,5 +68,12 @@ public interface ProductPersistenceService
 	 * Retrive products in the given category
 	 */
 	List<Product> retrieveByCategory(int category) throws SQLException, DAOException;
+
+	/**
+	 * Retrieve one page of products in the given category, ordered by
+	 * name. Pass null for the first page and the returned nextPageToken
+	 * for each following page; every page costs the same to fetch.
+	 */
+	Page<Product> retrieveByCategoryPage(int category, String pageToken, int pageSize) throws SQLException, DAOException;
 	
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+import java.sql.SQLException;
+
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Primitive counterpart of PurchaseVisitor: receives each purchase row
+ * as plain column values, so scanning allocates no entity or boxed
+ * values per row.
+ */
+public interface PurchaseColumnVisitor
+{
+	/** epochDay passed for a NULL purchase_date */
+	int NO_DATE = Integer.MIN_VALUE;
+	
+	/**
+	 * Called once per purchase row, in result order. A NULL purchase_amt
+	 * is passed as 0 cents.
+	 * @param epochDay purchase_date as days since 1970-01-01, or NO_DATE
+	 * @param cents purchase_amt in cents
+	 * @return false to stop the scan early.
+	 */
+	boolean visit(long id, long customerID, long productID, int epochDay, long cents) throws SQLException, DAOException;
+}
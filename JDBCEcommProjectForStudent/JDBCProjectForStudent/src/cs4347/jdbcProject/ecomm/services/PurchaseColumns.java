@@ -0,0 +1,274 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Money;
+
+/**
+ * Column-oriented purchase query result. Each column is held in primitive
+ * arrays of CHUNK_SIZE rows, so filling it costs a few array allocations
+ * per chunk instead of a Purchase, a Date and four boxed values per row,
+ * and growing never copies row data.
+ *
+ * Dates are days since 1970-01-01 (PurchaseColumnVisitor.NO_DATE for a
+ * NULL purchase_date) and amounts are cents. Not thread-safe while it is
+ * being filled; safe to read from many threads afterwards.
+ */
+public final class PurchaseColumns
+{
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private long[][] ids = new long[4][];
+	private long[][] customerIDs = new long[4][];
+	private long[][] productIDs = new long[4][];
+	private int[][] epochDays = new int[4][];
+	private long[][] cents = new long[4][];
+	private int size;
+
+	/**
+	 * Appends one row, allocating a new chunk when the last one is full.
+	 */
+	public void append(long id, long customerID, long productID, int epochDay, long cents)
+	{
+		int chunk = size >>> CHUNK_SHIFT;
+		int row = size & CHUNK_MASK;
+		if (row == 0) {
+			addChunk(chunk);
+		}
+		this.ids[chunk][row] = id;
+		this.customerIDs[chunk][row] = customerID;
+		this.productIDs[chunk][row] = productID;
+		this.epochDays[chunk][row] = epochDay;
+		this.cents[chunk][row] = cents;
+		size++;
+	}
+
+	private void addChunk(int chunk)
+	{
+		if (chunk == ids.length) {
+			int capacity = chunk * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			customerIDs = Arrays.copyOf(customerIDs, capacity);
+			productIDs = Arrays.copyOf(productIDs, capacity);
+			epochDays = Arrays.copyOf(epochDays, capacity);
+			cents = Arrays.copyOf(cents, capacity);
+		}
+		ids[chunk] = new long[CHUNK_SIZE];
+		customerIDs[chunk] = new long[CHUNK_SIZE];
+		productIDs[chunk] = new long[CHUNK_SIZE];
+		epochDays[chunk] = new int[CHUNK_SIZE];
+		cents[chunk] = new long[CHUNK_SIZE];
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public long id(int row)
+	{
+		checkRow(row);
+		return ids[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+	}
+
+	public long customerID(int row)
+	{
+		checkRow(row);
+		return customerIDs[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+	}
+
+	public long productID(int row)
+	{
+		checkRow(row);
+		return productIDs[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+	}
+
+	/**
+	 * @return days since 1970-01-01, or PurchaseColumnVisitor.NO_DATE
+	 */
+	public int epochDay(int row)
+	{
+		checkRow(row);
+		return epochDays[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+	}
+
+	/**
+	 * Convenience accessor that allocates; prefer epochDay in loops.
+	 * @return the purchase date, or null if it was NULL
+	 */
+	public LocalDate purchaseDate(int row)
+	{
+		int day = epochDay(row);
+		return day == PurchaseColumnVisitor.NO_DATE ? null : LocalDate.ofEpochDay(day);
+	}
+
+	public long cents(int row)
+	{
+		checkRow(row);
+		return cents[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+	}
+
+	private void checkRow(int row)
+	{
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+		}
+	}
+
+	/**
+	 * Hands every row to the visitor in result order, chunk by chunk.
+	 * @return the number of rows visited
+	 */
+	public int forEach(PurchaseColumnVisitor visitor) throws SQLException, DAOException
+	{
+		int visited = 0;
+		for (int chunk = 0; visited < size; chunk++) {
+			int rows = Math.min(CHUNK_SIZE, size - visited);
+			long[] id = ids[chunk];
+			long[] customer = customerIDs[chunk];
+			long[] product = productIDs[chunk];
+			int[] day = epochDays[chunk];
+			long[] amount = cents[chunk];
+			for (int row = 0; row < rows; row++) {
+				visited++;
+				if (!visitor.visit(id[row], customer[row], product[row], day[row], amount[row])) {
+					return visited;
+				}
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * @return the sum of every purchase amount in cents
+	 * @throws ArithmeticException if the sum overflows
+	 */
+	public long totalCents()
+	{
+		long total = 0;
+		int remaining = size;
+		for (int chunk = 0; remaining > 0; chunk++) {
+			int rows = Math.min(CHUNK_SIZE, remaining);
+			long[] amount = cents[chunk];
+			for (int row = 0; row < rows; row++) {
+				total = Money.add(total, amount[row]);
+			}
+			remaining -= rows;
+		}
+		return total;
+	}
+
+	/**
+	 * Sum of the purchase amounts dated between fromDay and toDay
+	 * inclusive (epoch days). Rows without a date are skipped.
+	 */
+	public long totalCents(int fromDay, int toDay)
+	{
+		long total = 0;
+		int remaining = size;
+		for (int chunk = 0; remaining > 0; chunk++) {
+			int rows = Math.min(CHUNK_SIZE, remaining);
+			int[] day = epochDays[chunk];
+			long[] amount = cents[chunk];
+			for (int row = 0; row < rows; row++) {
+				if (day[row] >= fromDay && day[row] <= toDay && day[row] != PurchaseColumnVisitor.NO_DATE) {
+					total = Money.add(total, amount[row]);
+				}
+			}
+			remaining -= rows;
+		}
+		return total;
+	}
+
+	/**
+	 * Number of purchases dated between fromDay and toDay inclusive.
+	 */
+	public int count(int fromDay, int toDay)
+	{
+		int count = 0;
+		int remaining = size;
+		for (int chunk = 0; remaining > 0; chunk++) {
+			int rows = Math.min(CHUNK_SIZE, remaining);
+			int[] day = epochDays[chunk];
+			for (int row = 0; row < rows; row++) {
+				if (day[row] >= fromDay && day[row] <= toDay && day[row] != PurchaseColumnVisitor.NO_DATE) {
+					count++;
+				}
+			}
+			remaining -= rows;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the smallest purchase amount in cents, or 0 when empty
+	 */
+	public long minCents()
+	{
+		if (size == 0) {
+			return 0;
+		}
+		long min = Long.MAX_VALUE;
+		int remaining = size;
+		for (int chunk = 0; remaining > 0; chunk++) {
+			int rows = Math.min(CHUNK_SIZE, remaining);
+			long[] amount = cents[chunk];
+			for (int row = 0; row < rows; row++) {
+				min = Math.min(min, amount[row]);
+			}
+			remaining -= rows;
+		}
+		return min;
+	}
+
+	/**
+	 * @return the largest purchase amount in cents, or 0 when empty
+	 */
+	public long maxCents()
+	{
+		if (size == 0) {
+			return 0;
+		}
+		long max = Long.MIN_VALUE;
+		int remaining = size;
+		for (int chunk = 0; remaining > 0; chunk++) {
+			int rows = Math.min(CHUNK_SIZE, remaining);
+			long[] amount = cents[chunk];
+			for (int row = 0; row < rows; row++) {
+				max = Math.max(max, amount[row]);
+			}
+			remaining -= rows;
+		}
+		return max;
+	}
+
+	/**
+	 * @return the mean purchase amount in cents, or 0 when empty
+	 */
+	public double averageCents()
+	{
+		return size == 0 ? 0 : (double) totalCents() / size;
+	}
+}
@@ -12,11 +12,15 @@
 
 package cs4347.jdbcProject.ecomm.services;
 
+import java.sql.Date;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import cs4347.jdbcProject.ecomm.entity.Purchase;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 /** 
  * 
@@ -38,6 +42,13 @@ public interface PurchasePersistenceService
 	 */
 	Purchase retrieve(Long id) throws SQLException, DAOException;
 	
+	/**
+	 * Retrieve the purchases with the given ids in as few
+	 * round trips as possible. The result follows the order of the given
+	 * ids and lists the ids that were not found.
+	 */
+	RetrieveAllResult<Purchase> retrieveAll(Collection<Long> ids) throws SQLException, DAOException;
+	
 	/**
 	 * The update method must throw DAOException if the provided 
 	 * Purchase has a NULL id. 
@@ -55,13 +66,74 @@ public interface PurchasePersistenceService
 	 */
 	List<Purchase> retrieveForCustomerID(Long customerID) throws SQLException, DAOException;
 	
+	/**
+	 * Stream purchases made by the given customer to the visitor one row
+	 * at a time. The connection is held only until this method returns.
+	 * @return the number of purchases visited
+	 */
+	int visitForCustomerID(Long customerID, PurchaseVisitor visitor) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve purchases made by the given customer as primitive columns,
+	 * for analytics over large results.
+	 */
+	PurchaseColumns retrieveColumnsForCustomerID(Long customerID) throws SQLException, DAOException;
+	
 	/**
 	 * Produce a purchase summary report for the given customer.
 	 */
 	PurchaseSummary retrievePurchaseSummary(Long customerID) throws SQLException, DAOException;
+	
+	/**
+	 * Produce purchase summary reports for many customers at once, keyed
+	 * by customer id. Customers without purchases have no entry.
+	 */
+	Map<Long, PurchaseSummary> retrievePurchaseSummaries(Collection<Long> customerIDs) throws SQLException, DAOException;
 
 	/**
 	 * Retrieve purchases made for the given product.
 	 */
 	List<Purchase> retrieveForProductID(Long productID) throws SQLException, DAOException;
-}
\ No newline at end of file
+	
+	/**
+	 * Stream purchases made for the given product to the visitor one row
+	 * at a time. The connection is held only until this method returns.
+	 * @return the number of purchases visited
+	 */
+	int visitForProductID(Long productID, PurchaseVisitor visitor) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve purchases made for the given product as primitive columns,
+	 * for analytics over large results.
+	 */
+	PurchaseColumns retrieveColumnsForProductID(Long productID) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the limit best-selling products by revenue or purchase
+	 * count, optionally restricted to a product category and an inclusive
+	 * purchase date range (null for no restriction). Results may be served
+	 * from a short-lived cache, so they can lag recent purchases by up to
+	 * its TTL. The returned list must not be modified.
+	 */
+	List<ProductRanking> retrieveTopProducts(ProductRankingOrder order, Integer category, Date from, Date to, int limit) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the product's purchase count and revenue per day between
+	 * from and to inclusive, read from the rollup tables only. Months that
+	 * were compacted come back as one bucket each.
+	 */
+	List<RevenueBucket> retrieveDailyRevenue(Long productID, Date from, Date to) throws SQLException, DAOException;
+	
+	/**
+	 * Retrieve the product's purchase count and revenue per month between
+	 * from and to inclusive, read from the rollup tables only.
+	 */
+	List<RevenueBucket> retrieveMonthlyRevenue(Long productID, Date from, Date to) throws SQLException, DAOException;
+	
+	/**
+	 * Folds the daily rollups of every month before the month of "before"
+	 * into monthly rollups.
+	 * @return the number of daily rollup rows folded
+	 */
+	int compactRollups(Date before) throws SQLException, DAOException;
+}
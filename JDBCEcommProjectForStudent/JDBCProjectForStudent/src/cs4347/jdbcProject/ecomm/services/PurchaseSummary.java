@@ -12,14 +12,65 @@
 
 package cs4347.jdbcProject.ecomm.services;
 
+import cs4347.jdbcProject.ecomm.util.Money;
+
 /**
  * This is a DTO (Data Transfer Object) that is 
  * used to return the results of the purchase summary
  * operation. 
+ * 
+ * The *Cents fields are exact; the float and double fields are derived
+ * from them for existing callers.
  */
 public class PurchaseSummary
 {
 	public float minPurchase;
 	public float maxPurchase;
 	public float avgPurchase;
+	public long purchaseCount;
+	public double totalPurchase;
+	
+	public long minPurchaseCents;
+	public long maxPurchaseCents;
+	public long totalPurchaseCents;
+	
+	public static PurchaseSummary of(long purchaseCount, long totalCents, long minCents, long maxCents)
+	{
+		PurchaseSummary summary = new PurchaseSummary();
+		summary.purchaseCount = purchaseCount;
+		summary.totalPurchaseCents = totalCents;
+		summary.minPurchaseCents = minCents;
+		summary.maxPurchaseCents = maxCents;
+		summary.derive();
+		return summary;
+	}
+	
+	/**
+	 * Adds one purchase amount.
+	 * @throws ArithmeticException if the total overflows
+	 */
+	public void add(long cents)
+	{
+		totalPurchaseCents = Money.add(totalPurchaseCents, cents);
+		minPurchaseCents = purchaseCount == 0 ? cents : Math.min(minPurchaseCents, cents);
+		maxPurchaseCents = purchaseCount == 0 ? cents : Math.max(maxPurchaseCents, cents);
+		purchaseCount++;
+		derive();
+	}
+	
+	/**
+	 * @return the mean purchase in cents, or 0 with no purchases
+	 */
+	public double getAveragePurchaseCents()
+	{
+		return purchaseCount == 0 ? 0 : (double) totalPurchaseCents / purchaseCount;
+	}
+	
+	private void derive()
+	{
+		minPurchase = (float) Money.toDouble(minPurchaseCents);
+		maxPurchase = (float) Money.toDouble(maxPurchaseCents);
+		avgPurchase = (float) (getAveragePurchaseCents() / 100);
+		totalPurchase = Money.toDouble(totalPurchaseCents);
+	}
 }
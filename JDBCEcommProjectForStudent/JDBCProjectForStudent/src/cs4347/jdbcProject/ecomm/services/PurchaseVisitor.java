@@ -0,0 +1,32 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services;
+
+import java.sql.SQLException;
+
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Row callback used to stream purchases one at a time instead of
+ * materializing the whole result in a List. 
+ */
+public interface PurchaseVisitor
+{
+	/**
+	 * Called once per purchase row, in result order. The Purchase
+	 * is not retained by the caller.
+	 * @return false to stop the scan early.
+	 */
+	boolean visit(Purchase purchase) throws SQLException, DAOException;
+}
@@ -0,0 +1,108 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.services.AsyncCustomerPersistenceService;
+import cs4347.jdbcProject.ecomm.services.CustomerBatchResult;
+import cs4347.jdbcProject.ecomm.services.CustomerPersistenceService;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Runs each call of the wrapped CustomerPersistenceService on a
+ * DatabaseExecutor. Transactions, metrics and read routing are those of
+ * the wrapped service.
+ */
+public class AsyncCustomerPersistenceServiceImpl implements AsyncCustomerPersistenceService
+{
+	private final CustomerPersistenceService service;
+	private final DatabaseExecutor executor;
+
+	public AsyncCustomerPersistenceServiceImpl(CustomerPersistenceService service, DatabaseExecutor executor)
+	{
+		this.service = service;
+		this.executor = executor;
+	}
+
+	@Override
+	public CompletableFuture<Customer> create(Customer customer)
+	{
+		return executor.submit(() -> service.create(customer));
+	}
+
+	@Override
+	public CompletableFuture<CustomerBatchResult> createAll(List<Customer> customers)
+	{
+		return executor.submit(() -> service.createAll(customers));
+	}
+
+	@Override
+	public CompletableFuture<CustomerBatchResult> createAll(List<Customer> customers, int chunkSize)
+	{
+		return executor.submit(() -> service.createAll(customers, chunkSize));
+	}
+
+	@Override
+	public CompletableFuture<Customer> retrieve(Long id)
+	{
+		return executor.submit(() -> service.retrieve(id));
+	}
+
+	@Override
+	public CompletableFuture<RetrieveAllResult<Customer>> retrieveAll(Collection<Long> ids)
+	{
+		return executor.submit(() -> service.retrieveAll(ids));
+	}
+
+	@Override
+	public CompletableFuture<Integer> update(Customer customer)
+	{
+		return executor.submit(() -> service.update(customer));
+	}
+
+	@Override
+	public CompletableFuture<Integer> update(Customer original, Customer customer)
+	{
+		return executor.submit(() -> service.update(original, customer));
+	}
+
+	@Override
+	public CompletableFuture<Integer> delete(Long id)
+	{
+		return executor.submit(() -> service.delete(id));
+	}
+
+	@Override
+	public CompletableFuture<List<Customer>> retrieveByZipCode(String zipCode)
+	{
+		return executor.submit(() -> service.retrieveByZipCode(zipCode));
+	}
+
+	@Override
+	public CompletableFuture<List<Customer>> retrieveByDOB(Date startDate, Date endDate)
+	{
+		return executor.submit(() -> service.retrieveByDOB(startDate, endDate));
+	}
+
+	@Override
+	public CompletableFuture<Page<Customer>> retrieveByDOBPage(Date startDate, Date endDate, String pageToken, int pageSize)
+	{
+		return executor.submit(() -> service.retrieveByDOBPage(startDate, endDate, pageToken, pageSize));
+	}
+}
@@ -0,0 +1,88 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cs4347.jdbcProject.ecomm.entity.Product;
+import cs4347.jdbcProject.ecomm.services.AsyncProductPersistenceService;
+import cs4347.jdbcProject.ecomm.services.ProductPersistenceService;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Runs each call of the wrapped ProductPersistenceService on a
+ * DatabaseExecutor. Transactions, metrics, read routing and the product
+ * cache are those of the wrapped service.
+ */
+public class AsyncProductPersistenceServiceImpl implements AsyncProductPersistenceService
+{
+	private final ProductPersistenceService service;
+	private final DatabaseExecutor executor;
+
+	public AsyncProductPersistenceServiceImpl(ProductPersistenceService service, DatabaseExecutor executor)
+	{
+		this.service = service;
+		this.executor = executor;
+	}
+
+	@Override
+	public CompletableFuture<Product> create(Product product)
+	{
+		return executor.submit(() -> service.create(product));
+	}
+
+	@Override
+	public CompletableFuture<Product> retrieve(Long id)
+	{
+		return executor.submit(() -> service.retrieve(id));
+	}
+
+	@Override
+	public CompletableFuture<RetrieveAllResult<Product>> retrieveAll(Collection<Long> ids)
+	{
+		return executor.submit(() -> service.retrieveAll(ids));
+	}
+
+	@Override
+	public CompletableFuture<Integer> update(Product product)
+	{
+		return executor.submit(() -> service.update(product));
+	}
+
+	@Override
+	public CompletableFuture<Integer> delete(Long id)
+	{
+		return executor.submit(() -> service.delete(id));
+	}
+
+	@Override
+	public CompletableFuture<Product> retrieveByUPC(String upc)
+	{
+		return executor.submit(() -> service.retrieveByUPC(upc));
+	}
+
+	@Override
+	public CompletableFuture<List<Product>> retrieveByCategory(int category)
+	{
+		return executor.submit(() -> service.retrieveByCategory(category));
+	}
+
+	@Override
+	public CompletableFuture<Page<Product>> retrieveByCategoryPage(int category, String pageToken, int pageSize)
+	{
+		return executor.submit(() -> service.retrieveByCategoryPage(category, pageToken, pageSize));
+	}
+}
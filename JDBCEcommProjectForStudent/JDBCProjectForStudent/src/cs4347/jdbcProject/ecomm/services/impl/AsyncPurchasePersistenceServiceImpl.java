@@ -0,0 +1,149 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.services.AsyncPurchasePersistenceService;
+import cs4347.jdbcProject.ecomm.services.ProductRanking;
+import cs4347.jdbcProject.ecomm.services.ProductRankingOrder;
+import cs4347.jdbcProject.ecomm.services.PurchasePersistenceService;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumns;
+import cs4347.jdbcProject.ecomm.services.PurchaseSummary;
+import cs4347.jdbcProject.ecomm.services.PurchaseVisitor;
+import cs4347.jdbcProject.ecomm.services.RevenueBucket;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Runs each call of the wrapped PurchasePersistenceService on a
+ * DatabaseExecutor. Transactions, metrics and read routing are those of
+ * the wrapped service.
+ */
+public class AsyncPurchasePersistenceServiceImpl implements AsyncPurchasePersistenceService
+{
+	private final PurchasePersistenceService service;
+	private final DatabaseExecutor executor;
+
+	public AsyncPurchasePersistenceServiceImpl(PurchasePersistenceService service, DatabaseExecutor executor)
+	{
+		this.service = service;
+		this.executor = executor;
+	}
+
+	@Override
+	public CompletableFuture<Purchase> create(Purchase purchase)
+	{
+		return executor.submit(() -> service.create(purchase));
+	}
+
+	@Override
+	public CompletableFuture<Purchase> retrieve(Long id)
+	{
+		return executor.submit(() -> service.retrieve(id));
+	}
+
+	@Override
+	public CompletableFuture<RetrieveAllResult<Purchase>> retrieveAll(Collection<Long> ids)
+	{
+		return executor.submit(() -> service.retrieveAll(ids));
+	}
+
+	@Override
+	public CompletableFuture<Integer> update(Purchase purchase)
+	{
+		return executor.submit(() -> service.update(purchase));
+	}
+
+	@Override
+	public CompletableFuture<Integer> delete(Long id)
+	{
+		return executor.submit(() -> service.delete(id));
+	}
+
+	@Override
+	public CompletableFuture<List<Purchase>> retrieveForCustomerID(Long customerID)
+	{
+		return executor.submit(() -> service.retrieveForCustomerID(customerID));
+	}
+
+	@Override
+	public CompletableFuture<Integer> visitForCustomerID(Long customerID, PurchaseVisitor visitor)
+	{
+		return executor.submit(() -> service.visitForCustomerID(customerID, visitor));
+	}
+
+	@Override
+	public CompletableFuture<PurchaseColumns> retrieveColumnsForCustomerID(Long customerID)
+	{
+		return executor.submit(() -> service.retrieveColumnsForCustomerID(customerID));
+	}
+
+	@Override
+	public CompletableFuture<PurchaseSummary> retrievePurchaseSummary(Long customerID)
+	{
+		return executor.submit(() -> service.retrievePurchaseSummary(customerID));
+	}
+
+	@Override
+	public CompletableFuture<Map<Long, PurchaseSummary>> retrievePurchaseSummaries(Collection<Long> customerIDs)
+	{
+		return executor.submit(() -> service.retrievePurchaseSummaries(customerIDs));
+	}
+
+	@Override
+	public CompletableFuture<List<Purchase>> retrieveForProductID(Long productID)
+	{
+		return executor.submit(() -> service.retrieveForProductID(productID));
+	}
+
+	@Override
+	public CompletableFuture<Integer> visitForProductID(Long productID, PurchaseVisitor visitor)
+	{
+		return executor.submit(() -> service.visitForProductID(productID, visitor));
+	}
+
+	@Override
+	public CompletableFuture<PurchaseColumns> retrieveColumnsForProductID(Long productID)
+	{
+		return executor.submit(() -> service.retrieveColumnsForProductID(productID));
+	}
+
+	@Override
+	public CompletableFuture<List<ProductRanking>> retrieveTopProducts(ProductRankingOrder order, Integer category, Date from, Date to, int limit)
+	{
+		return executor.submit(() -> service.retrieveTopProducts(order, category, from, to, limit));
+	}
+
+	@Override
+	public CompletableFuture<List<RevenueBucket>> retrieveDailyRevenue(Long productID, Date from, Date to)
+	{
+		return executor.submit(() -> service.retrieveDailyRevenue(productID, from, to));
+	}
+
+	@Override
+	public CompletableFuture<List<RevenueBucket>> retrieveMonthlyRevenue(Long productID, Date from, Date to)
+	{
+		return executor.submit(() -> service.retrieveMonthlyRevenue(productID, from, to));
+	}
+
+	@Override
+	public CompletableFuture<Integer> compactRollups(Date before)
+	{
+		return executor.submit(() -> service.compactRollups(before));
+	}
+}
@@ -0,0 +1,101 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.IdBlockDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.IdBlockDaoImpl;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Hands out globally unique ids for sharded mode, where a row's id has to
+ * be known before its shard can be chosen and each shard's AUTO_INCREMENT
+ * would collide with the others. Ids are reserved blockSize at a time
+ * from the ID_BLOCK table on one designated DataSource, so only one call
+ * in blockSize touches the database. Ids left in a block when the process
+ * stops are never used; gaps are expected.
+ *
+ * Uses a ReentrantLock rather than synchronized so a virtual thread that
+ * refills the block does not pin its carrier.
+ */
+public class BlockIdAllocator
+{
+	public static final String CUSTOMER_SEQUENCE = "CUSTOMER";
+	public static final String PURCHASE_SEQUENCE = "PURCHASE";
+
+	private final DataSource dataSource;
+	private final String sequence;
+	private final int blockSize;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private long next;
+	private long limit;
+
+	/**
+	 * @param dataSource holds the ID_BLOCK table; the same one for every
+	 * process sharing the sequence
+	 */
+	public BlockIdAllocator(DataSource dataSource, String sequence, int blockSize)
+	{
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+		}
+		this.dataSource = dataSource;
+		this.sequence = sequence;
+		this.blockSize = blockSize;
+	}
+
+	public long next() throws SQLException, DAOException
+	{
+		lock.lock();
+		try {
+			if (next == limit) {
+				next = reserve();
+				limit = next + blockSize;
+			}
+			return next++;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private long reserve() throws SQLException, DAOException
+	{
+		IdBlockDAO idBlockDAO = new IdBlockDaoImpl();
+		Connection connection = dataSource.getConnection();
+		try {
+			connection.setAutoCommit(false);  // Row lock held only for this transaction
+			long first = idBlockDAO.reserve(connection, sequence, blockSize);
+			connection.commit();
+			return first;
+		}
+		catch (Exception ex) {
+			connection.rollback();
+			throw ex;
+		}
+		finally {
+			if (connection != null) {
+				connection.setAutoCommit(true);
+			}
+			if (connection != null && !connection.isClosed()) {
+				connection.close();
+			}
+		}
+	}
+}
@@ -15,6 +15,8 @@ package cs4347.jdbcProject.ecomm.services.impl;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.sql.DataSource;
@@ -22,20 +24,42 @@ import javax.sql.DataSource;
 import cs4347.jdbcProject.ecomm.dao.AddressDAO;
 import cs4347.jdbcProject.ecomm.dao.CreditCardDAO;
 import cs4347.jdbcProject.ecomm.dao.CustomerDAO;
+import cs4347.jdbcProject.ecomm.dao.CustomerGraphDAO;
 import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseRollupDAO;
 import cs4347.jdbcProject.ecomm.dao.impl.AddressDaoImpl;
 import cs4347.jdbcProject.ecomm.dao.impl.CreditCardDaoImpl;
 import cs4347.jdbcProject.ecomm.dao.impl.CustomerDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.CustomerGraphDaoImpl;
 import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseRollupDaoImpl;
+import cs4347.jdbcProject.ecomm.datasource.DataSources;
 import cs4347.jdbcProject.ecomm.entity.Address;
 import cs4347.jdbcProject.ecomm.entity.CreditCard;
 import cs4347.jdbcProject.ecomm.entity.Customer;
 import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.services.CustomerBatchResult;
 import cs4347.jdbcProject.ecomm.services.CustomerPersistenceService;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 public class CustomerPersistenceServiceImpl implements CustomerPersistenceService
 {
+	static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+
+	private static final MethodMetrics createMetrics = PersistenceMetrics.register("CustomerService.create");
+	private static final MethodMetrics createAllMetrics = PersistenceMetrics.register("CustomerService.createAll");
+	private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("CustomerService.retrieve");
+	private static final MethodMetrics retrieveAllMetrics = PersistenceMetrics.register("CustomerService.retrieveAll");
+	private static final MethodMetrics updateMetrics = PersistenceMetrics.register("CustomerService.update");
+	private static final MethodMetrics deleteMetrics = PersistenceMetrics.register("CustomerService.delete");
+	private static final MethodMetrics retrieveByZipCodeMetrics = PersistenceMetrics.register("CustomerService.retrieveByZipCode");
+	private static final MethodMetrics retrieveByDOBMetrics = PersistenceMetrics.register("CustomerService.retrieveByDOB");
+	private static final MethodMetrics retrieveByDOBPageMetrics = PersistenceMetrics.register("CustomerService.retrieveByDOBPage");
+	
     /**
      * This method provided as an example of transaction support across multiple inserts.
      * 
@@ -47,15 +71,30 @@ public class CustomerPersistenceServiceImpl implements CustomerPersistenceServic
      */
     @Override
     public Customer create(Customer customer) throws SQLException, DAOException
+    {
+    	return insert(customer, false);
+    }
+
+    /**
+     * create() for a customer whose ID was already assigned, used by
+     * ShardedCustomerPersistenceServiceImpl.
+     */
+    Customer createWithID(Customer customer) throws SQLException, DAOException
+    {
+    	return insert(customer, true);
+    }
+
+    private Customer insert(Customer customer, boolean assignedID) throws SQLException, DAOException
     {
         CustomerDAO customerDAO = new CustomerDaoImpl();
         AddressDAO addressDAO = new AddressDaoImpl();
         CreditCardDAO creditCardDAO = new CreditCardDaoImpl();
 
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
-            Customer cust = customerDAO.create(connection, customer);
+            Customer cust = assignedID ? customerDAO.createWithID(connection, customer) : customerDAO.create(connection, customer);
             Long custID = cust.getId();
 
             if (cust.getAddress() == null) {
@@ -71,9 +110,10 @@ public class CustomerPersistenceServiceImpl implements CustomerPersistenceServic
             creditCardDAO.create(connection, creditCard, custID);
 
             connection.commit();
-            return cust;
+            return createMetrics.success(start, cust);
         }
         catch (Exception ex) {
+            createMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -88,71 +128,208 @@ public class CustomerPersistenceServiceImpl implements CustomerPersistenceServic
     }
 
     @Override
-    public Customer retrieve(Long id) throws SQLException, DAOException
+    public CustomerBatchResult createAll(List<Customer> customers) throws SQLException, DAOException
     {
-    	if (id == null) {
-			throw new DAOException("Attempting to retrieve non-existent ID");
+    	return createAll(customers, DEFAULT_BATCH_CHUNK_SIZE);
+    }
+
+    /**
+     * Batched counterpart of create(). Each chunk inserts its customers,
+     * then their addresses, then their credit cards as three JDBC batches
+     * and commits once. With rewriteBatchedStatements=true on the MySQL
+     * connection URL each batch is sent as a multi-row INSERT. A failing
+     * chunk is rolled back, its customers' IDs are cleared again, and it
+     * is reported in the result; chunks already committed stay committed.
+     */
+    @Override
+    public CustomerBatchResult createAll(List<Customer> customers, int chunkSize) throws SQLException, DAOException
+    {
+    	checkNewCustomers(customers, chunkSize);
+    	return insertAll(customers, chunkSize, false);
+    }
+
+    /**
+     * createAll() for customers whose IDs were already assigned, used by
+     * ShardedCustomerPersistenceServiceImpl after it validated them with
+     * checkNewCustomers. IDs of failed chunks are cleared as well.
+     */
+    CustomerBatchResult createAllWithIDs(List<Customer> customers, int chunkSize) throws SQLException, DAOException
+    {
+    	return insertAll(customers, chunkSize, true);
+    }
+
+    static void checkNewCustomers(List<Customer> customers, int chunkSize) throws DAOException
+    {
+    	if (chunkSize < 1) {
+    		throw new DAOException("Chunk size must be positive");
+    	}
+    	for (Customer cust : customers) {
+    		if (cust.getId() != null) {
+    			throw new DAOException("Trying to insert Customer with NON-NULL ID");
+    		}
+    		if (cust.getAddress() == null) {
+                throw new DAOException("Customers must include an Address instance.");
+            }
+    		if (cust.getCreditCard() == null) {
+                throw new DAOException("Customers must include an CreditCard instance.");
+            }
     	}
+    }
+
+    private CustomerBatchResult insertAll(List<Customer> customers, int chunkSize, boolean assignedIDs) throws SQLException, DAOException
+    {
     	
     	CustomerDAO customerDAO = new CustomerDaoImpl();
         AddressDAO addressDAO = new AddressDaoImpl();
         CreditCardDAO creditCardDAO = new CreditCardDaoImpl();
+        CustomerBatchResult result = new CustomerBatchResult();
 
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
-        
         try {
-        	connection.setAutoCommit(false);  // Starts new Transaction on Connection
-            Customer cust = customerDAO.retrieve(connection, id);
-            
-            cust.setAddress(addressDAO.retrieveForCustomerID(connection, id));
-            cust.setCreditCard(creditCardDAO.retrieveForCustomerID(connection, id));
-            
+            connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            for (int from = 0; from < customers.size(); from += chunkSize) {
+            	List<Customer> chunk = customers.subList(from, Math.min(from + chunkSize, customers.size()));
+            	try {
+            		if (assignedIDs) {
+            			customerDAO.createAllWithIDs(connection, chunk);
+            		}
+            		else {
+            			customerDAO.createAll(connection, chunk);
+            		}
+            		addressDAO.createAll(connection, chunk);
+            		creditCardDAO.createAll(connection, chunk);
+            		connection.commit();
+            		result.created.addAll(chunk);
+            	}
+            	catch (Exception ex) {
+            		connection.rollback();
+            		for (Customer cust : chunk) {
+            			cust.setId(null);
+            		}
+            		CustomerBatchResult.FailedChunk failed = new CustomerBatchResult.FailedChunk();
+            		failed.firstIndex = from;
+            		failed.customers = new ArrayList<>(chunk);
+            		failed.cause = ex;
+            		result.failedChunks.add(failed);
+            	}
+            }
+            createAllMetrics.success(start, result.created.size());
+            return result;
+        }
+        catch (Exception ex) {
+            createAllMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Loads the customer, address and credit card in a single joined
+     * query. A lone SELECT needs no explicit transaction, so this is one
+     * round trip on the connection.
+     */
+    @Override
+    public Customer retrieve(Long id) throws SQLException, DAOException
+    {
+    	if (id == null) {
+			throw new DAOException("Attempting to retrieve non-existent ID");
+    	}
+    	
+    	CustomerGraphDAO customerGraphDAO = new CustomerGraphDaoImpl();
+
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            return retrieveMetrics.success(start, customerGraphDAO.retrieve(connection, id));
+        }
+        catch (Exception ex) {
+            retrieveMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+        	if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Loads customers with their Address and CreditCard through the joined
+     * graph query, so each chunk of ids costs one statement rather than
+     * three per customer.
+     */
+    @Override
+    public RetrieveAllResult<Customer> retrieveAll(Collection<Long> ids) throws SQLException, DAOException
+    {
+    	if(ids == null) {
+			throw new DAOException("ids must be NON-NULL");
+		}
+    	
+        long start = System.nanoTime();
+    	CustomerGraphDAO customerGraphDAO = new CustomerGraphDaoImpl();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);  // One snapshot across all chunks
+            RetrieveAllResult<Customer> result = customerGraphDAO.retrieveAll(connection, ids);
             connection.commit();
             
-            return cust;
+            retrieveAllMetrics.success(start, result.found.size());
+            return result;
         }
-        catch(Exception ex){
-        	connection.rollback();
+        catch (Exception ex) {
+            retrieveAllMetrics.failure(start, ex);
+            connection.rollback();
             throw ex;
         }
         finally {
-        	if (connection != null) {
+            if (connection != null) {
                 connection.setAutoCommit(true);
             }
-        	if (connection != null && !connection.isClosed()) {
+            if (connection != null && !connection.isClosed()) {
                 connection.close();
             }
         }
     }
 
+    /**
+     * Locks and loads the stored customer graph inside the transaction and
+     * writes only the tables and columns that differ from it. Returns the
+     * number of rows written, 0 when nothing changed or the customer does
+     * not exist.
+     */
     @Override
     public int update(Customer customer) throws SQLException, DAOException
     {
     	if(customer.getId() == null) 
 			throw new DAOException("Customer must have a NON-NULL ID");
     	
-    	CustomerDAO customerDAO = new CustomerDaoImpl();
-    	AddressDAO addressDAO = new AddressDaoImpl();
-        CreditCardDAO creditCardDAO = new CreditCardDaoImpl();
+    	CustomerGraphDAO customerGraphDAO = new CustomerGraphDaoImpl();
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             
-            int rows = customerDAO.update(connection, customer);
-            
-            Long custID = customer.getId();
-            addressDAO.deleteForCustomerID(connection, custID);
-            creditCardDAO.deleteForCustomerID(connection, custID);
-            
-            addressDAO.create(connection, customer.getAddress(), custID);
-            creditCardDAO.create(connection, customer.getCreditCard(), custID);
+            Customer original = customerGraphDAO.retrieveForUpdate(connection, customer.getId());
+            int rows = 0;
+            if (original != null) {
+            	rows = writeChanges(connection, original, customer);
+            }
             
             connection.commit();
             
-            return rows;
+            return updateMetrics.success(start, rows);
         }
         
         catch (Exception ex) {
+            updateMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -167,23 +344,33 @@ public class CustomerPersistenceServiceImpl implements CustomerPersistenceServic
         }
     }
 
+    /**
+     * Same as update(Customer) but diffs against the caller's copy of the
+     * stored customer instead of reading it again. Returns the number of
+     * rows written, 0 when nothing changed.
+     */
     @Override
-    public int delete(Long id) throws SQLException, DAOException
+    public int update(Customer original, Customer customer) throws SQLException, DAOException
     {
-    	if(id == null) 
-			throw new DAOException("ID must be a NON-NULL ID");
-		
-    	CustomerDAO customerDAO = new CustomerDaoImpl();
+    	if(customer.getId() == null) 
+			throw new DAOException("Customer must have a NON-NULL ID");
+    	if(original == null || !customer.getId().equals(original.getId())) 
+			throw new DAOException("Original must be the stored version of the same customer");
+    	
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
-            int rows = customerDAO.delete(connection, id);
+            
+            int rows = writeChanges(connection, original, customer);
+            
             connection.commit();
             
-            return rows;
+            return updateMetrics.success(start, rows);
         }
         
         catch (Exception ex) {
+            updateMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -198,32 +385,69 @@ public class CustomerPersistenceServiceImpl implements CustomerPersistenceServic
         }
     }
 
-    @Override
-    public List<Customer> retrieveByZipCode(String zipCode) throws SQLException, DAOException
+    /**
+     * Writes the difference between original and customer: changed columns
+     * are updated in place, a child row is inserted or deleted only when it
+     * appears or disappears, and untouched tables get no statement.
+     */
+    private int writeChanges(Connection connection, Customer original, Customer customer) throws SQLException, DAOException
     {
-    	if(zipCode == null) 
-			throw new DAOException("zipCode must be a NON-NULL ID");
-		
     	CustomerDAO customerDAO = new CustomerDaoImpl();
     	AddressDAO addressDAO = new AddressDaoImpl();
         CreditCardDAO creditCardDAO = new CreditCardDaoImpl();
-    	List<Customer> list;
+        Long custID = customer.getId();
+        
+        int rows = customerDAO.updateChanged(connection, original, customer);
+        
+        Address address = customer.getAddress();
+        if (original.getAddress() == null && address != null) {
+        	addressDAO.create(connection, address, custID);
+        	rows++;
+        }
+        else if (original.getAddress() != null && address == null) {
+        	addressDAO.deleteForCustomerID(connection, custID);
+        	rows++;
+        }
+        else if (address != null) {
+        	rows += addressDAO.updateChanged(connection, original.getAddress(), address, custID);
+        }
+        
+        CreditCard creditCard = customer.getCreditCard();
+        if (original.getCreditCard() == null && creditCard != null) {
+        	creditCardDAO.create(connection, creditCard, custID);
+        	rows++;
+        }
+        else if (original.getCreditCard() != null && creditCard == null) {
+        	creditCardDAO.deleteForCustomerID(connection, custID);
+        	rows++;
+        }
+        else if (creditCard != null) {
+        	rows += creditCardDAO.updateChanged(connection, original.getCreditCard(), creditCard, custID);
+        }
+        return rows;
+    }
+
+    @Override
+    public int delete(Long id) throws SQLException, DAOException
+    {
+    	if(id == null) 
+			throw new DAOException("ID must be a NON-NULL ID");
+		
+    	CustomerDAO customerDAO = new CustomerDaoImpl();
+    	PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
-            list = customerDAO.retrieveByZipCode(connection, zipCode);
-            
-            for(Customer cust: list) {
-            	cust.setAddress(addressDAO.retrieveForCustomerID(connection, cust.getId()));
-            	cust.setCreditCard(creditCardDAO.retrieveForCustomerID(connection, cust.getId()));
-            }
-            
+            rollupDAO.removeCustomerPurchases(connection, id);    // PURCHASE rows cascade with the customer
+            int rows = customerDAO.delete(connection, id);
             connection.commit();
             
-            return list;
+            return deleteMetrics.success(start, rows);
         }
         
         catch (Exception ex) {
+            deleteMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -238,6 +462,29 @@ public class CustomerPersistenceServiceImpl implements CustomerPersistenceServic
         }
     }
 
+    @Override
+    public List<Customer> retrieveByZipCode(String zipCode) throws SQLException, DAOException
+    {
+    	if(zipCode == null) 
+			throw new DAOException("zipCode must be a NON-NULL ID");
+		
+    	CustomerGraphDAO customerGraphDAO = new CustomerGraphDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            return retrieveByZipCodeMetrics.success(start, customerGraphDAO.retrieveByZipCode(connection, zipCode));
+        }
+        catch (Exception ex) {
+            retrieveByZipCodeMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
     @Override
     public List<Customer> retrieveByDOB(Date startDate, Date endDate) throws SQLException, DAOException
     {
@@ -245,33 +492,43 @@ public class CustomerPersistenceServiceImpl implements CustomerPersistenceServic
 			throw new DAOException("Start date is later than end date");
     	}
     	
-    	CustomerDAO customerDAO = new CustomerDaoImpl();
-        AddressDAO addressDAO = new AddressDaoImpl();
-        CreditCardDAO creditCardDAO = new CreditCardDaoImpl();
-
-        Connection connection = dataSource.getConnection();
-        
+    	CustomerGraphDAO customerGraphDAO = new CustomerGraphDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
-        	connection.setAutoCommit(false);  // Starts new Transaction on Connection
-            List<Customer> custLis = customerDAO.retrieveByDOB(connection, startDate, endDate);
-            
-            for(Customer cust: custLis) {
-            	cust.setAddress(addressDAO.retrieveForCustomerID(connection, cust.getId()));
-            	cust.setCreditCard(creditCardDAO.retrieveForCustomerID(connection, cust.getId()));
-            }
-            
-            connection.commit();
-            
-            return custLis;
+            return retrieveByDOBMetrics.success(start, customerGraphDAO.retrieveByDOB(connection, startDate, endDate));
         }
-        catch(Exception ex){
-        	connection.rollback();
+        catch (Exception ex) {
+            retrieveByDOBMetrics.failure(start, ex);
             throw ex;
         }
         finally {
-        	if (connection != null) {
-                connection.setAutoCommit(true);
+        	if (connection != null && !connection.isClosed()) {
+                connection.close();
             }
+        }
+    }
+
+    @Override
+    public Page<Customer> retrieveByDOBPage(Date startDate, Date endDate, String pageToken, int pageSize) throws SQLException, DAOException
+    {
+    	if (startDate.compareTo(endDate) > 0) {
+			throw new DAOException("Start date is later than end date");
+    	}
+    	
+    	CustomerGraphDAO customerGraphDAO = new CustomerGraphDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            Page<Customer> page = customerGraphDAO.retrieveByDOBPage(connection, startDate, endDate, pageToken, pageSize);
+            retrieveByDOBPageMetrics.success(start, page.items.size());
+            return page;
+        }
+        catch (Exception ex) {
+            retrieveByDOBPageMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
         	if (connection != null && !connection.isClosed()) {
                 connection.close();
             }
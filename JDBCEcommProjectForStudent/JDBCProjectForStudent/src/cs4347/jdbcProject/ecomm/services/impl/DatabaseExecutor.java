@@ -0,0 +1,215 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cs4347.jdbcProject.ecomm.datasource.ReadWriteRoutingDataSource;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Runs blocking persistence calls off the caller's thread and hands back
+ * CompletableFutures. On a JVM with virtual threads (Java 21+) every task
+ * gets its own virtual thread; on older JVMs a fixed pool of daemon
+ * platform threads is used instead.
+ *
+ * Virtual threads are cheap, connections are not, so a fair Semaphore
+ * bounds how many tasks may be inside the database at once. Size it at or
+ * below the connection pool's maxPoolSize: excess tasks then park on the
+ * semaphore, which unmounts a virtual thread from its carrier, instead of
+ * queueing inside the pool or timing out there.
+ *
+ * Nothing here holds a monitor while a task runs, so a task that blocks on
+ * a socket read does not pin its carrier thread. Tasks run on a different
+ * thread than the caller; the caller's ReadWriteRoutingDataSource Session
+ * is bound on that thread for the task, so a write in one task and a read
+ * in the next, or on the caller's own thread, still read the caller's
+ * writes. Other ThreadLocal state does not carry over.
+ */
+public class DatabaseExecutor implements AutoCloseable
+{
+	/**
+	 * A unit of database work. Same checked exceptions as the
+	 * persistence services.
+	 */
+	public interface Task<T>
+	{
+		T call() throws SQLException, DAOException;
+	}
+
+	private static final ThreadLocal<Boolean> taskThread = new ThreadLocal<>();
+
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final int maxConcurrentCalls;
+	private final boolean virtualThreads;
+
+	/**
+	 * @param maxConcurrentCalls upper bound on tasks using a connection at
+	 * the same time, normally the connection pool size.
+	 */
+	public DatabaseExecutor(int maxConcurrentCalls)
+	{
+		if (maxConcurrentCalls < 1) {
+			throw new IllegalArgumentException("maxConcurrentCalls must be positive: " + maxConcurrentCalls);
+		}
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.permits = new Semaphore(maxConcurrentCalls, true);
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		this.virtualThreads = virtual != null;
+		this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrentCalls, new DaemonThreadFactory());
+	}
+
+	/**
+	 * Runs the task asynchronously. The returned future completes with the
+	 * task's result, or exceptionally with the SQLException / DAOException
+	 * it threw. If the executor has been closed the future fails with
+	 * RejectedExecutionException.
+	 */
+	public <T> CompletableFuture<T> submit(Task<T> task)
+	{
+		CompletableFuture<T> result = new CompletableFuture<>();
+		ReadWriteRoutingDataSource.Session caller = ReadWriteRoutingDataSource.currentSession();
+		try {
+			executor.execute(() -> run(task, result, caller));
+		}
+		catch (RejectedExecutionException ex) {
+			result.completeExceptionally(ex);
+		}
+		return result;
+	}
+
+	private <T> void run(Task<T> task, CompletableFuture<T> result, ReadWriteRoutingDataSource.Session caller)
+	{
+		if (result.isDone()) {
+			return;    // cancelled while queued
+		}
+		try {
+			permits.acquire();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			result.completeExceptionally(new DAOException("Interrupted waiting for a database slot", ex));
+			return;
+		}
+		ReadWriteRoutingDataSource.Session previous = ReadWriteRoutingDataSource.bindSession(caller);
+		taskThread.set(Boolean.TRUE);
+		try {
+			if (!result.isDone()) {
+				result.complete(task.call());
+			}
+		}
+		catch (Throwable ex) {
+			result.completeExceptionally(ex);
+		}
+		finally {
+			taskThread.remove();
+			ReadWriteRoutingDataSource.bindSession(previous);
+			permits.release();
+		}
+	}
+
+	/**
+	 * True while the calling thread runs a task of any DatabaseExecutor.
+	 * A task must not submit more tasks and wait for them: once every slot
+	 * (or, on Java 8, every pool thread) is held by a waiting task, the
+	 * tasks it waits for never start. Code that fans out should do the
+	 * work inline instead when this returns true.
+	 */
+	public static boolean isTaskThread()
+	{
+		return taskThread.get() != null;
+	}
+
+	public int getMaxConcurrentCalls()
+	{
+		return maxConcurrentCalls;
+	}
+
+	/** Tasks currently holding a database slot */
+	public int getActiveCalls()
+	{
+		return maxConcurrentCalls - permits.availablePermits();
+	}
+
+	/** Estimated number of tasks parked waiting for a database slot */
+	public int getWaitingCalls()
+	{
+		return permits.getQueueLength();
+	}
+
+	public boolean isUsingVirtualThreads()
+	{
+		return virtualThreads;
+	}
+
+	/**
+	 * Stops accepting tasks and waits up to the given time for running
+	 * ones to finish.
+	 * @return true if every task finished in time
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		executor.shutdown();
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Stops accepting tasks. Tasks already submitted still run.
+	 */
+	@Override
+	public void close()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively
+	 * so the project still compiles and runs on Java 8.
+	 */
+	private static ExecutorService newVirtualThreadExecutor()
+	{
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException ex) {
+			return null;
+		}
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory
+	{
+		private static final AtomicInteger poolCount = new AtomicInteger();
+		private final int poolId = poolCount.incrementAndGet();
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "db-executor-" + poolId + "-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
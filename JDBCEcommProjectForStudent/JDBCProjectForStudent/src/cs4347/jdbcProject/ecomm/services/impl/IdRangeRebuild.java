@@ -0,0 +1,152 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Rebuilds a derived table over an id space split into fixed-size ranges.
+ * The ranges are rebuilt in parallel, each in its own transaction on its
+ * own connection, so no single transaction locks the whole table. Shared
+ * by PurchaseSummaryRebuildJob and PurchaseRollupRebuildJob.
+ */
+final class IdRangeRebuild
+{
+	/**
+	 * Returns the lowest and highest id to rebuild, or null if there are none.
+	 */
+	interface Bounds
+	{
+		long[] retrieve(Connection connection) throws SQLException, DAOException;
+	}
+
+	/**
+	 * Rebuilds the inclusive id range and returns the number of rows written.
+	 */
+	interface Range
+	{
+		int rebuild(Connection connection, long firstID, long lastID) throws SQLException, DAOException;
+	}
+
+	private final DataSource dataSource;
+	private final int threads;
+	private final int idsPerChunk;
+	private final String rows;
+	private final Bounds bounds;
+	private final Range range;
+
+	/**
+	 * @param rows what is rebuilt, for error messages, e.g. "purchase summaries"
+	 */
+	IdRangeRebuild(DataSource dataSource, int threads, int idsPerChunk, String rows, Bounds bounds, Range range)
+	{
+		this.dataSource = dataSource;
+		this.threads = threads;
+		this.idsPerChunk = idsPerChunk;
+		this.rows = rows;
+		this.bounds = bounds;
+		this.range = range;
+	}
+
+	/**
+	 * Runs the rebuild and blocks until every range is done.
+	 * @return the number of rows written
+	 * @throws SQLException or DAOException from the first range that failed;
+	 * ranges that completed before the failure stay committed.
+	 */
+	int run() throws SQLException, DAOException
+	{
+		long[] ids;
+		Connection connection = dataSource.getConnection();
+		try {
+			ids = bounds.retrieve(connection);
+		}
+		finally {
+			if (connection != null && !connection.isClosed()) {
+				connection.close();
+			}
+		}
+		if (ids == null) {
+			return 0;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (long first = ids[0]; first <= ids[1]; first += idsPerChunk) {
+				long last = Math.min(first + idsPerChunk - 1, ids[1]);
+				futures.add(executor.submit(rebuildTask(first, last)));
+			}
+
+			int written = 0;
+			for (Future<Integer> future : futures) {
+				written += future.get();
+			}
+			return written;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DAOException("Interrupted while rebuilding " + rows, ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			if (cause instanceof DAOException) {
+				throw (DAOException) cause;
+			}
+			throw new DAOException("Rebuilding " + rows + " failed", cause);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Callable<Integer> rebuildTask(long firstID, long lastID)
+	{
+		return () -> {
+			Connection connection = dataSource.getConnection();
+			try {
+				connection.setAutoCommit(false);  // Starts new Transaction on Connection
+				int written = range.rebuild(connection, firstID, lastID);
+				connection.commit();
+				return written;
+			}
+			catch (Exception ex) {
+				connection.rollback();
+				throw ex;
+			}
+			finally {
+				if (connection != null) {
+					connection.setAutoCommit(true);
+				}
+				if (connection != null && !connection.isClosed()) {
+					connection.close();
+				}
+			}
+		};
+	}
+}
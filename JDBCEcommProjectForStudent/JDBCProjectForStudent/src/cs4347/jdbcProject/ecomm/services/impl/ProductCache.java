@@ -0,0 +1,239 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import cs4347.jdbcProject.ecomm.entity.Product;
+
+/**
+ * In-process near-cache for the product catalog, used by
+ * ProductPersistenceServiceImpl. Products are held in an LRU map keyed by
+ * id with secondary indexes on UPC and category. A category index entry
+ * holds the complete id list of one retrieveByCategory result and is only
+ * served while every listed product is still cached.
+ *
+ * The service invalidates entries after it commits a create, update or
+ * delete. Loads record the cache generation before going to the database
+ * and are dropped if an invalidation happened in the meantime, so a slow
+ * reader cannot put back a product that was just changed. Loads that
+ * start within the replica lag of an invalidation are not cached either,
+ * since they may have read a replica that has not applied the write yet.
+ * Writes made by other processes are not seen until the entry is evicted.
+ *
+ * Callers always receive copies, so mutating a returned Product does not
+ * change the cached one. Critical sections never include database calls.
+ */
+public class ProductCache
+{
+	private final int maxSize;
+	private final LinkedHashMap<Long, Product> byId;
+	private final Map<String, Long> idByUPC = new HashMap<>();
+	private final Map<Integer, List<Long>> idsByCategory = new HashMap<>();
+	private long generation;
+	private long invalidatedAt;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public ProductCache(int maxSize)
+	{
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxSize = maxSize;
+		this.byId = new LinkedHashMap<Long, Product>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Product> eldest)
+			{
+				if (size() <= ProductCache.this.maxSize) {
+					return false;
+				}
+				idByUPC.remove(eldest.getValue().getProdUPC());
+				evictions.increment();
+				return true;
+			}
+		};
+	}
+
+	synchronized Product get(Long id)
+	{
+		return count(copy(byId.get(id)));
+	}
+
+	synchronized Product getByUPC(String upc)
+	{
+		Long id = idByUPC.get(upc);
+		return count(id == null ? null : copy(byId.get(id)));
+	}
+
+	/**
+	 * Returns the cached listing of the category, or null if it is not
+	 * cached or one of its products has since been evicted.
+	 */
+	synchronized List<Product> getByCategory(int category)
+	{
+		List<Long> ids = idsByCategory.get(category);
+		if (ids == null) {
+			misses.increment();
+			return null;
+		}
+		List<Product> products = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			Product product = byId.get(id);
+			if (product == null) {
+				idsByCategory.remove(category);
+				misses.increment();
+				return null;
+			}
+			products.add(copy(product));
+		}
+		hits.increment();
+		return products;
+	}
+
+	/**
+	 * Returns the current generation; pass it to put() after loading.
+	 * Within replicaLagNanos of the last invalidation the load may read
+	 * the old row from a replica, so a value put() never accepts is
+	 * returned instead.
+	 */
+	synchronized long generation(long replicaLagNanos)
+	{
+		if (generation > 0 && System.nanoTime() - invalidatedAt < replicaLagNanos) {
+			return -1;
+		}
+		return generation;
+	}
+
+	synchronized void put(Product product, long loadedAtGeneration)
+	{
+		if (product == null || loadedAtGeneration != generation) {
+			return;
+		}
+		putProduct(product);
+	}
+
+	synchronized void putCategory(int category, List<Product> products, long loadedAtGeneration)
+	{
+		if (loadedAtGeneration != generation || products.size() > maxSize) {
+			return;
+		}
+		List<Long> ids = new ArrayList<>(products.size());
+		for (Product product : products) {
+			putProduct(product);
+			ids.add(product.getId());
+		}
+		idsByCategory.put(category, ids);
+	}
+
+	private void putProduct(Product product)
+	{
+		Product previous = byId.put(product.getId(), copy(product));
+		if (previous != null && !previous.getProdUPC().equals(product.getProdUPC())) {
+			idByUPC.remove(previous.getProdUPC());
+		}
+		idByUPC.put(product.getProdUPC(), product.getId());
+	}
+
+	/**
+	 * Drops the product with the given id and every category listing
+	 * that contains it or that it may have joined.
+	 */
+	synchronized void invalidate(Long id, Integer newCategory)
+	{
+		generation++;
+		invalidatedAt = System.nanoTime();
+		Product previous = byId.remove(id);
+		if (previous != null) {
+			idByUPC.remove(previous.getProdUPC());
+		}
+		if (newCategory != null) {
+			idsByCategory.remove(newCategory);
+		}
+		Iterator<List<Long>> it = idsByCategory.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().contains(id)) {
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized void clear()
+	{
+		generation++;
+		invalidatedAt = System.nanoTime();
+		byId.clear();
+		idByUPC.clear();
+		idsByCategory.clear();
+	}
+
+	public synchronized int size()
+	{
+		return byId.size();
+	}
+
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	public long getEvictionCount()
+	{
+		return evictions.sum();
+	}
+
+	public double getHitRate()
+	{
+		long hit = hits.sum();
+		long total = hit + misses.sum();
+		return total == 0 ? 0.0 : (double) hit / total;
+	}
+
+	private Product count(Product product)
+	{
+		if (product == null) {
+			misses.increment();
+		}
+		else {
+			hits.increment();
+		}
+		return product;
+	}
+
+	private static Product copy(Product product)
+	{
+		if (product == null) {
+			return null;
+		}
+		Product copy = new Product();
+		copy.setId(product.getId());
+		copy.setProdName(product.getProdName());
+		copy.setProdDescription(product.getProdDescription());
+		copy.setProdCategory(product.getProdCategory());
+		copy.setProdUPC(product.getProdUPC());
+		return copy;
+	}
+}
@@ -17,21 +17,43 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
 import cs4347.jdbcProject.ecomm.dao.ProductDAO;
 import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseSummaryDAO;
 import cs4347.jdbcProject.ecomm.dao.impl.ProductDaoImpl;
 import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseSummaryDaoImpl;
+import cs4347.jdbcProject.ecomm.datasource.DataSources;
+import cs4347.jdbcProject.ecomm.datasource.ReadWriteRoutingDataSource;
 import cs4347.jdbcProject.ecomm.entity.Product;
 import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
 import cs4347.jdbcProject.ecomm.services.ProductPersistenceService;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
 
 public class ProductPersistenceServiceImpl implements ProductPersistenceService
 {
+	private static final MethodMetrics createMetrics = PersistenceMetrics.register("ProductService.create");
+	private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("ProductService.retrieve");
+	private static final MethodMetrics retrieveAllMetrics = PersistenceMetrics.register("ProductService.retrieveAll");
+	private static final MethodMetrics updateMetrics = PersistenceMetrics.register("ProductService.update");
+	private static final MethodMetrics deleteMetrics = PersistenceMetrics.register("ProductService.delete");
+	private static final MethodMetrics retrieveByUPCMetrics = PersistenceMetrics.register("ProductService.retrieveByUPC");
+	private static final MethodMetrics retrieveByCategoryMetrics = PersistenceMetrics.register("ProductService.retrieveByCategory");
+	private static final MethodMetrics retrieveByCategoryPageMetrics = PersistenceMetrics.register("ProductService.retrieveByCategoryPage");
+
 	@Override
     public Product create(Product product) throws SQLException, DAOException
     {
@@ -40,15 +62,20 @@ public class ProductPersistenceServiceImpl implements ProductPersistenceService
 		}
 		ProductDAO productDAO = new ProductDaoImpl();
 		Product pur;
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             pur = productDAO.create(connection, product);
             connection.commit();
+            if (productCache != null) {
+            	productCache.invalidate(pur.getId(), pur.getProdCategory());
+            }
             
-            return pur;
+            return createMetrics.success(start, pur);
         }
         catch (Exception ex) {
+            createMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -69,16 +96,89 @@ public class ProductPersistenceServiceImpl implements ProductPersistenceService
 			throw new DAOException("ID must be a NON-NULL ID");
 		}
     	
+    	long start = System.nanoTime();
+    	if (productCache != null) {
+    		Product cached = productCache.get(id);
+    		if (cached != null) {
+    			return retrieveMetrics.success(start, cached);
+    		}
+    	}
+    	long generation = productCache != null ? productCache.generation(replicaLagNanos()) : 0;
+    	
     	ProductDAO productDAO = new ProductDaoImpl();
 		Product prod;
-        Connection connection = dataSource.getConnection();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             prod = productDAO.retrieve(connection, id);
             connection.commit();
-            return prod;
+            if (productCache != null) {
+            	productCache.put(prod, generation);
+            }
+            return retrieveMetrics.success(start, prod);
+        }
+        catch (Exception ex) {
+            retrieveMetrics.failure(start, ex);
+            connection.rollback();
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Cached products are served from the cache; only the remaining ids
+     * go to the database.
+     */
+    @Override
+    public RetrieveAllResult<Product> retrieveAll(Collection<Long> ids) throws SQLException, DAOException
+    {
+    	if(ids == null) {
+			throw new DAOException("ids must be NON-NULL");
+		}
+    	
+    	long start = System.nanoTime();
+    	Map<Long, Product> loaded = new HashMap<>();
+    	List<Long> misses = new ArrayList<>(ids.size());
+    	for (Long id : ids) {
+    		Product cached = productCache != null && id != null ? productCache.get(id) : null;
+    		if (cached != null) {
+    			loaded.put(id, cached);
+    		}
+    		else {
+    			misses.add(id);
+    		}
+    	}
+    	if (misses.isEmpty()) {
+    		retrieveAllMetrics.success(start, loaded.size());
+    		return RetrieveAllResult.of(ids, loaded);
+    	}
+    	long generation = productCache != null ? productCache.generation(replicaLagNanos()) : 0;
+    	
+    	ProductDAO productDAO = new ProductDaoImpl();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);  // One snapshot across all chunks
+            RetrieveAllResult<Product> result = productDAO.retrieveAll(connection, misses);
+            connection.commit();
+            for (Product prod : result.found) {
+            	if (productCache != null) {
+            		productCache.put(prod, generation);
+            	}
+            	loaded.put(prod.getId(), prod);
+            }
+            
+            retrieveAllMetrics.success(start, loaded.size());
+            return RetrieveAllResult.of(ids, loaded);
         }
         catch (Exception ex) {
+            retrieveAllMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -101,14 +201,19 @@ public class ProductPersistenceServiceImpl implements ProductPersistenceService
     	
     	ProductDAO ProductDAO = new ProductDaoImpl();
     	int result;
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             result = ProductDAO.update(connection, product);
             connection.commit();
-            return result;
+            if (productCache != null) {
+            	productCache.invalidate(product.getId(), product.getProdCategory());
+            }
+            return updateMetrics.success(start, result);
         }
         catch (Exception ex) {
+            updateMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -130,15 +235,26 @@ public class ProductPersistenceServiceImpl implements ProductPersistenceService
 		}
     	
     	ProductDAO productDAO = new ProductDaoImpl();
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+    	PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
     	int result;
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            
+            // Deleting a product cascades to its purchases, so the buyers' summaries must be recomputed
+            List<Long> buyers = purchaseDAO.retrieveCustomerIDsForProductID(connection, id);
             result = productDAO.delete(connection, id);
+            summaryDAO.refresh(connection, buyers);
             connection.commit();
-            return result;
+            if (productCache != null) {
+            	productCache.invalidate(id, null);
+            }
+            return deleteMetrics.success(start, result);
         }
         catch (Exception ex) {
+            deleteMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -159,16 +275,29 @@ public class ProductPersistenceServiceImpl implements ProductPersistenceService
 			throw new DAOException("UPC must be a NON-NULL String");
 		}
     	
+    	long start = System.nanoTime();
+    	if (productCache != null) {
+    		Product cached = productCache.getByUPC(upc);
+    		if (cached != null) {
+    			return retrieveByUPCMetrics.success(start, cached);
+    		}
+    	}
+    	long generation = productCache != null ? productCache.generation(replicaLagNanos()) : 0;
+    	
     	ProductDAO productDAO = new ProductDaoImpl();
     	Product prod = new Product();
-        Connection connection = dataSource.getConnection();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             prod = productDAO.retrieveByUPC(connection, upc);
             connection.commit();
-            return prod;
+            if (productCache != null) {
+            	productCache.put(prod, generation);
+            }
+            return retrieveByUPCMetrics.success(start, prod);
         }
         catch (Exception ex) {
+            retrieveByUPCMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -189,16 +318,29 @@ public class ProductPersistenceServiceImpl implements ProductPersistenceService
 			throw new DAOException("UPC must be a NON-NULL String");
 		}
     	
+    	long start = System.nanoTime();
+    	if (productCache != null) {
+    		List<Product> cached = productCache.getByCategory(category);
+    		if (cached != null) {
+    			return retrieveByCategoryMetrics.success(start, cached);
+    		}
+    	}
+    	long generation = productCache != null ? productCache.generation(replicaLagNanos()) : 0;
+    	
     	ProductDAO productDAO = new ProductDaoImpl();
     	List<Product> prod;
-        Connection connection = dataSource.getConnection();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             prod = productDAO.retrieveByCategory(connection, category);
             connection.commit();
-            return prod;
+            if (productCache != null) {
+            	productCache.putCategory(category, prod, generation);
+            }
+            return retrieveByCategoryMetrics.success(start, prod);
         }
         catch (Exception ex) {
+            retrieveByCategoryMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -212,11 +354,78 @@ public class ProductPersistenceServiceImpl implements ProductPersistenceService
         }
     }
 
+    /**
+     * Pages are not cached as a whole, but the products on them warm the
+     * cache for retrieve and retrieveByUPC. A single SELECT needs no
+     * explicit transaction, so the page costs one borrow and one round trip.
+     */
+    @Override
+    public Page<Product> retrieveByCategoryPage(int category, String pageToken, int pageSize) throws SQLException, DAOException
+    {
+    	if(category <0) {
+			throw new DAOException("Category must not be negative");
+		}
+    	
+    	ProductDAO productDAO = new ProductDaoImpl();
+    	long start = System.nanoTime();
+    	long generation = productCache != null ? productCache.generation(replicaLagNanos()) : 0;
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            Page<Product> page = productDAO.retrieveByCategoryPage(connection, category, pageToken, pageSize);
+            if (productCache != null) {
+            	for (Product prod : page.items) {
+            		productCache.put(prod, generation);
+            	}
+            }
+            retrieveByCategoryPageMetrics.success(start, page.items.size());
+            return page;
+        }
+        catch (Exception ex) {
+            retrieveByCategoryPageMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+        	if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
     private DataSource dataSource;
+    private ProductCache productCache;
 
 	public ProductPersistenceServiceImpl(DataSource dataSource)
+	{
+		this(dataSource, null);
+	}
+
+	/**
+	 * Serves retrieve, retrieveByUPC and retrieveByCategory from the given
+	 * cache, which this service keeps in step with its own writes. Share one
+	 * cache between all service instances using the same database.
+	 */
+	public ProductPersistenceServiceImpl(DataSource dataSource, ProductCache productCache)
 	{
 		this.dataSource = dataSource;
+		this.productCache = productCache;
+	}
+
+	public ProductCache getProductCache()
+	{
+		return productCache;
+	}
+
+	/**
+	 * How far a replica may lag behind this service's writes: the read
+	 * routing's stickiness window, which is sized above the replica lag.
+	 * The router may sit behind wrappers such as TracingDataSource.
+	 */
+	private long replicaLagNanos() throws SQLException
+	{
+		if (dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)) {
+			return TimeUnit.MILLISECONDS.toNanos(dataSource.unwrap(ReadWriteRoutingDataSource.class).getStickinessWindowMillis());
+		}
+		return 0;
 	}
 
 }
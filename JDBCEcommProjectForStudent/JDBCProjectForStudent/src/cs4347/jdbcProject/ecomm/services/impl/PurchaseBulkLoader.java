@@ -0,0 +1,569 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.CustomerDAO;
+import cs4347.jdbcProject.ecomm.dao.ProductDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseRollupDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseSummaryDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.CustomerDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.ProductDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseRollupDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseSummaryDaoImpl;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.services.BulkLoadResult;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Money;
+
+/**
+ * Loads purchases from CSV exports much faster than calling
+ * PurchasePersistenceService.create per row.
+ *
+ * The calling thread streams the file line by line, parses each row and
+ * checks its CUSTOMER_id and PRODUCT_id against sorted id arrays read
+ * once up front, so no row costs a lookup query. Valid rows are handed
+ * in batches over a bounded queue to a fixed number of writer threads.
+ * Each batch is one JDBC batch INSERT (a multi-row INSERT with
+ * rewriteBatchedStatements=true) plus the matching PURCHASE_SUMMARY
+ * and daily rollup upserts, committed on a connection borrowed from the
+ * pool. The bounded queue keeps the reader at most two batches per
+ * writer ahead, so memory use does not grow with the file.
+ *
+ * A batch that fails is rolled back and its rows are retried one by one,
+ * so only the offending rows are rejected. Rejected rows are written to
+ * the reject writer, if set, as "line number,reason,original line".
+ *
+ * The input may start with a header naming purchase_date, purchase_amt,
+ * CUSTOMER_id and PRODUCT_id in any order (an id column is ignored, ids
+ * are regenerated); without a header the columns are expected in that
+ * order. purchase_date may be a date (yyyy-mm-dd) or a timestamp as
+ * exported from the TIMESTAMP column (yyyy-mm-dd hh:mm:ss[.f]); like every
+ * other purchase write, only its date is stored.
+ */
+public class PurchaseBulkLoader
+{
+	/**
+	 * Receives a snapshot of the counters every progress interval and
+	 * once more when the load ends.
+	 */
+	public interface ProgressListener
+	{
+		void progress(BulkLoadResult progress);
+	}
+
+	private static final MethodMetrics loadMetrics = PersistenceMetrics.register("PurchaseBulkLoader.load");
+
+	/** Tells a writer thread that no more batches follow */
+	private static final List<Row> END = Collections.emptyList();
+
+	private static final String[] COLUMNS = { "purchase_date", "purchase_amt", "customer_id", "product_id" };
+
+	private final DataSource dataSource;
+	private final int threads;
+	private final int batchSize;
+	private Writer rejectWriter;
+	private ProgressListener progressListener;
+	private long progressIntervalNanos = TimeUnit.SECONDS.toNanos(5);
+	private boolean maintainSummary = true;
+
+	/**
+	 * @param threads writer threads, each using one pooled connection at a time
+	 * @param batchSize rows per INSERT batch and transaction
+	 */
+	public PurchaseBulkLoader(DataSource dataSource, int threads, int batchSize)
+	{
+		if (threads < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("threads and batchSize must be positive");
+		}
+		this.dataSource = dataSource;
+		this.threads = threads;
+		this.batchSize = batchSize;
+	}
+
+	public void setRejectWriter(Writer rejectWriter)
+	{
+		this.rejectWriter = rejectWriter;
+	}
+
+	public void setProgressListener(ProgressListener progressListener, long interval, TimeUnit unit)
+	{
+		this.progressListener = progressListener;
+		this.progressIntervalNanos = unit.toNanos(interval);
+	}
+
+	/**
+	 * When false, PURCHASE_SUMMARY and the purchase rollups are not
+	 * touched and the caller is expected to run PurchaseSummaryRebuildJob
+	 * and PurchaseRollupRebuildJob after the load.
+	 */
+	public void setMaintainSummary(boolean maintainSummary)
+	{
+		this.maintainSummary = maintainSummary;
+	}
+
+	public BulkLoadResult load(Path file) throws IOException, SQLException, DAOException
+	{
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return load(in);
+		}
+	}
+
+	/**
+	 * Loads every row of the input and blocks until all batches are
+	 * committed.
+	 * @throws SQLException or DAOException if the id sets cannot be read or
+	 * a writer cannot get a connection; batches committed before that
+	 * stay committed.
+	 */
+	public BulkLoadResult load(BufferedReader in) throws IOException, SQLException, DAOException
+	{
+		long start = System.nanoTime();
+		Run run = new Run(start);
+		try {
+			loadIDs(run);
+			ExecutorService writers = Executors.newFixedThreadPool(threads);
+			BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(threads * 2);
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(writers.submit(() -> write(queue, run)));
+			}
+			try {
+				read(in, queue, run);
+			}
+			finally {
+				for (int i = 0; i < threads; i++) {
+					put(queue, END);
+				}
+				writers.shutdown();
+			}
+			for (Future<Void> future : futures) {
+				await(future);
+			}
+			if (run.failure != null) {
+				throw run.failure;
+			}
+
+			BulkLoadResult result = run.snapshot();
+			if (progressListener != null) {
+				progressListener.progress(result);
+			}
+			loadMetrics.success(start, (int) Math.min(result.rowsLoaded, Integer.MAX_VALUE));
+			return result;
+		}
+		catch (Exception ex) {
+			loadMetrics.failure(start, ex);
+			throw ex;
+		}
+	}
+
+	private void loadIDs(Run run) throws SQLException, DAOException
+	{
+		CustomerDAO customerDAO = new CustomerDaoImpl();
+		ProductDAO productDAO = new ProductDaoImpl();
+		Connection connection = dataSource.getConnection();
+		try {
+			connection.setAutoCommit(false);  // One snapshot for both id sets
+			run.customerIDs = customerDAO.retrieveIDs(connection);
+			run.productIDs = productDAO.retrieveIDs(connection);
+			connection.commit();
+		}
+		catch (Exception ex) {
+			connection.rollback();
+			throw ex;
+		}
+		finally {
+			if (connection != null) {
+				connection.setAutoCommit(true);
+			}
+			if (connection != null && !connection.isClosed()) {
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * Parses and validates the input on the calling thread and queues
+	 * full batches for the writers. Stops early if a writer failed.
+	 */
+	private void read(BufferedReader in, BlockingQueue<List<Row>> queue, Run run) throws IOException, DAOException
+	{
+		int[] columns = { 0, 1, 2, 3 };
+		List<Row> batch = new ArrayList<>(batchSize);
+		long lineNumber = 0;
+		long nextProgress = System.nanoTime() + progressIntervalNanos;
+		String line;
+		while ((line = in.readLine()) != null && run.failure == null) {
+			lineNumber++;
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			List<String> fields = split(line);
+			if (lineNumber == 1 && isHeader(fields)) {
+				columns = headerColumns(fields);
+				continue;
+			}
+			run.read.incrementAndGet();
+
+			Row row = new Row(lineNumber, line);
+			String reason = parse(row, fields, columns, run);
+			if (reason != null) {
+				reject(row, reason, run);
+			}
+			else {
+				batch.add(row);
+				if (batch.size() == batchSize) {
+					put(queue, batch);
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+
+			if (progressListener != null && System.nanoTime() - nextProgress >= 0) {
+				progressListener.progress(run.snapshot());
+				nextProgress = System.nanoTime() + progressIntervalNanos;
+			}
+		}
+		if (!batch.isEmpty()) {
+			put(queue, batch);
+		}
+	}
+
+	/**
+	 * Parses a date or timestamp field to its date.
+	 * @throws IllegalArgumentException if it is neither
+	 */
+	private static Date parseDate(String text)
+	{
+		if (text.length() > 10) {
+			return Date.valueOf(Timestamp.valueOf(text).toLocalDateTime().toLocalDate());
+		}
+		return Date.valueOf(text);
+	}
+
+	/**
+	 * Fills row.purchase from the fields.
+	 * @return the reason the row is rejected, or null if it is valid
+	 */
+	private static String parse(Row row, List<String> fields, int[] columns, Run run)
+	{
+		for (int column : columns) {
+			if (column >= fields.size()) {
+				return "missing column";
+			}
+		}
+		Purchase purchase = new Purchase();
+		try {
+			purchase.setPurchaseDate(parseDate(fields.get(columns[0]).trim()));
+		}
+		catch (IllegalArgumentException ex) {
+			return "invalid purchase_date";
+		}
+		try {
+			long cents = Money.parse(fields.get(columns[1]));
+			if (cents < 0) {
+				return "invalid purchase_amt";
+			}
+			purchase.setPurchaseCents(cents);
+		}
+		catch (NumberFormatException | ArithmeticException ex) {
+			return "invalid purchase_amt";
+		}
+		try {
+			purchase.setCustomerID(Long.parseLong(fields.get(columns[2]).trim()));
+			purchase.setProductID(Long.parseLong(fields.get(columns[3]).trim()));
+		}
+		catch (NumberFormatException ex) {
+			return "invalid id";
+		}
+		if (Arrays.binarySearch(run.customerIDs, purchase.getCustomerID()) < 0) {
+			return "unknown CUSTOMER_id " + purchase.getCustomerID();
+		}
+		if (Arrays.binarySearch(run.productIDs, purchase.getProductID()) < 0) {
+			return "unknown PRODUCT_id " + purchase.getProductID();
+		}
+		row.purchase = purchase;
+		return null;
+	}
+
+	/**
+	 * Writer thread: commits batches until END. After a fatal error it
+	 * keeps draining the queue so the reader never blocks on a full one.
+	 */
+	private Void write(BlockingQueue<List<Row>> queue, Run run) throws InterruptedException
+	{
+		List<Row> batch;
+		while ((batch = queue.take()) != END) {
+			if (run.failure != null) {
+				continue;
+			}
+			try {
+				commit(batch);
+				run.loaded.addAndGet(batch.size());
+			}
+			catch (Exception ex) {
+				if (!retryRows(batch, run)) {
+					run.fail(ex);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Retries each row of a failed batch in its own transaction.
+	 * @return false if no connection could be obtained at all
+	 */
+	private boolean retryRows(List<Row> batch, Run run)
+	{
+		for (Row row : batch) {
+			row.purchase.setId(null);    // keys from the rolled back batch
+		}
+		for (Row row : batch) {
+			try {
+				commit(Collections.singletonList(row));
+				run.loaded.incrementAndGet();
+			}
+			catch (Exception ex) {
+				if (row == batch.get(0) && isConnectionFailure(ex)) {
+					return false;
+				}
+				row.purchase.setId(null);
+				reject(row, String.valueOf(ex.getMessage()), run);
+			}
+		}
+		return true;
+	}
+
+	private void commit(List<Row> rows) throws SQLException, DAOException
+	{
+		List<Purchase> purchases = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			purchases.add(row.purchase);
+		}
+		PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+		PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
+		PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
+		Connection connection = dataSource.getConnection();
+		try {
+			connection.setAutoCommit(false);  // Starts new Transaction on Connection
+			purchaseDAO.createAll(connection, purchases);
+			if (maintainSummary) {
+				summaryDAO.applyPurchases(connection, purchases);
+				rollupDAO.applyPurchases(connection, purchases);
+			}
+			connection.commit();
+		}
+		catch (Exception ex) {
+			connection.rollback();
+			throw ex;
+		}
+		finally {
+			if (connection != null) {
+				connection.setAutoCommit(true);
+			}
+			if (connection != null && !connection.isClosed()) {
+				connection.close();
+			}
+		}
+	}
+
+	/** SQLState class 08 is a connection exception */
+	private static boolean isConnectionFailure(Exception ex)
+	{
+		String state = ex instanceof SQLException ? ((SQLException) ex).getSQLState() : null;
+		return state != null && state.startsWith("08");
+	}
+
+	private void reject(Row row, String reason, Run run)
+	{
+		run.rejected.incrementAndGet();
+		if (rejectWriter == null) {
+			return;
+		}
+		synchronized (rejectWriter) {
+			try {
+				rejectWriter.write(row.lineNumber + ",\"" + reason.replace("\"", "\"\"") + "\"," + row.line + System.lineSeparator());
+			}
+			catch (IOException ex) {
+				run.fail(new DAOException("Cannot write rejected row", ex));
+			}
+		}
+	}
+
+	private static void put(BlockingQueue<List<Row>> queue, List<Row> batch) throws DAOException
+	{
+		try {
+			queue.put(batch);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DAOException("Interrupted while queueing a batch", ex);
+		}
+	}
+
+	private static void await(Future<Void> future) throws DAOException
+	{
+		try {
+			future.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DAOException("Interrupted waiting for writers", ex);
+		}
+		catch (ExecutionException ex) {
+			throw new DAOException("Writer thread failed", ex.getCause());
+		}
+	}
+
+	private static boolean isHeader(List<String> fields)
+	{
+		for (String field : fields) {
+			if (field.trim().equalsIgnoreCase("purchase_amt")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] headerColumns(List<String> fields) throws DAOException
+	{
+		int[] columns = new int[COLUMNS.length];
+		for (int i = 0; i < COLUMNS.length; i++) {
+			columns[i] = -1;
+			for (int j = 0; j < fields.size(); j++) {
+				if (fields.get(j).trim().toLowerCase(Locale.ROOT).equals(COLUMNS[i])) {
+					columns[i] = j;
+				}
+			}
+			if (columns[i] < 0) {
+				throw new DAOException("Header has no " + COLUMNS[i] + " column");
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Splits one CSV line. Fields may be double-quoted, with "" standing
+	 * for a quote inside a quoted field; quoted line breaks are not
+	 * supported.
+	 */
+	private static List<String> split(String line)
+	{
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				}
+				else if (c == '"') {
+					quoted = false;
+				}
+				else {
+					field.append(c);
+				}
+			}
+			else if (c == '"') {
+				quoted = true;
+			}
+			else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static final class Row
+	{
+		final long lineNumber;
+		final String line;
+		Purchase purchase;
+
+		Row(long lineNumber, String line)
+		{
+			this.lineNumber = lineNumber;
+			this.line = line;
+		}
+	}
+
+	/** State shared by the reader and the writers during one load */
+	private static final class Run
+	{
+		final long start;
+		final AtomicLong read = new AtomicLong();
+		final AtomicLong loaded = new AtomicLong();
+		final AtomicLong rejected = new AtomicLong();
+		long[] customerIDs;
+		long[] productIDs;
+		volatile DAOException failure;
+
+		Run(long start)
+		{
+			this.start = start;
+		}
+
+		void fail(Exception cause)
+		{
+			if (failure == null) {
+				failure = cause instanceof DAOException ? (DAOException) cause : new DAOException("Bulk load aborted", cause);
+			}
+		}
+
+		BulkLoadResult snapshot()
+		{
+			BulkLoadResult result = new BulkLoadResult();
+			result.rowsRead = read.get();
+			result.rowsLoaded = loaded.get();
+			result.rowsRejected = rejected.get();
+			result.elapsedNanos = System.nanoTime() - start;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseRollupDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseSummaryDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseRollupDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseSummaryDaoImpl;
+import cs4347.jdbcProject.ecomm.datasource.ReadWriteRoutingDataSource;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Group commit for purchase creation. Concurrent create calls are queued
+ * and a single flusher thread writes them as one batched INSERT plus one
+ * batched summary update in a single transaction, so a burst of N
+ * purchases costs one commit (one log flush on the server) instead of N.
+ *
+ * The PURCHASE_SUMMARY and daily rollup rows of the group are updated in
+ * the same transaction.
+ *
+ * A group is closed when it reaches maxBatchSize or when maxDelay has
+ * passed since its first purchase arrived; calls that arrive while a
+ * group is being written wait for the next one. With a maxDelay of zero
+ * only the purchases that queued up during the previous commit are
+ * grouped, which adds no latency when traffic is light.
+ *
+ * If a group fails, its transaction is rolled back and every purchase in
+ * it is retried in its own transaction on the same connection, so one bad
+ * row (for example an unknown PRODUCT_id) fails only its own caller. An
+ * Error thrown while writing fails the group's callers but not the
+ * flusher thread.
+ */
+public class PurchaseGroupCommitter implements AutoCloseable
+{
+	private static final MethodMetrics flushMetrics = PersistenceMetrics.register("PurchaseGroupCommitter.flush");
+	private static final AtomicInteger committerCount = new AtomicInteger();
+
+	private final DataSource dataSource;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+	private final Thread flusher;
+	private volatile boolean closed;
+
+	private static final class Pending
+	{
+		final Purchase purchase;
+		final CompletableFuture<Purchase> result = new CompletableFuture<>();
+		final ReadWriteRoutingDataSource.Session caller = ReadWriteRoutingDataSource.currentSession();
+
+		Pending(Purchase purchase)
+		{
+			this.purchase = purchase;
+		}
+	}
+
+	/**
+	 * @param maxBatchSize most purchases written in one transaction
+	 * @param maxDelay longest a purchase waits for others to join its group
+	 */
+	public PurchaseGroupCommitter(DataSource dataSource, int maxBatchSize, long maxDelay, TimeUnit unit)
+	{
+		if (maxBatchSize < 1 || maxDelay < 0) {
+			throw new IllegalArgumentException("maxBatchSize must be positive and maxDelay non-negative");
+		}
+		this.dataSource = dataSource;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.flusher = new Thread(this::flushLoop, "purchase-group-commit-" + committerCount.incrementAndGet());
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Queues the purchase for the next group. The returned future completes
+	 * with the same Purchase, its ID set, once the group has committed, or
+	 * exceptionally with the SQLException / DAOException of its insert.
+	 */
+	public CompletableFuture<Purchase> submit(Purchase purchase)
+	{
+		Pending pending = new Pending(purchase);
+		if (purchase.getId() != null) {
+			pending.result.completeExceptionally(new DAOException("Purchase must have NULL ID"));
+			return pending.result;
+		}
+		if (closed) {
+			pending.result.completeExceptionally(new RejectedExecutionException("Group committer is closed"));
+			return pending.result;
+		}
+		queue.add(pending);
+
+		// close() may have drained the queue between the check above and the add
+		if (closed && queue.remove(pending)) {
+			pending.result.completeExceptionally(new RejectedExecutionException("Group committer is closed"));
+		}
+		return pending.result;
+	}
+
+	/**
+	 * Blocking form of submit for use behind PurchasePersistenceService.create.
+	 */
+	public Purchase create(Purchase purchase) throws SQLException, DAOException
+	{
+		try {
+			return submit(purchase).get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DAOException("Interrupted waiting for group commit", ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			if (cause instanceof DAOException) {
+				throw (DAOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new DAOException("Group commit failed", cause);
+		}
+	}
+
+	public int getMaxBatchSize()
+	{
+		return maxBatchSize;
+	}
+
+	/** Purchases waiting for a group */
+	public int getQueuedCount()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Stops accepting purchases, writes the ones already queued and waits
+	 * for the flusher thread to finish.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		try {
+			flusher.join();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		List<Pending> leftovers = new ArrayList<>();
+		queue.drainTo(leftovers);
+		for (Pending pending : leftovers) {
+			pending.result.completeExceptionally(new RejectedExecutionException("Group committer is closed"));
+		}
+	}
+
+	private void flushLoop()
+	{
+		List<Pending> group = new ArrayList<>(maxBatchSize);
+		while (!closed || !queue.isEmpty()) {
+			try {
+				Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				group.add(first);
+				fill(group, System.nanoTime() + maxDelayNanos);
+			}
+			catch (InterruptedException ex) {
+				// only close() ends the loop; write what was collected
+			}
+			if (!group.isEmpty()) {
+				try {
+					flush(group);
+				}
+				catch (Throwable ex) {
+					// keep the flusher alive; callers of this group would otherwise wait forever
+					fail(group, ex);
+				}
+				finally {
+					group.clear();
+				}
+			}
+		}
+	}
+
+	private void fill(List<Pending> group, long deadline) throws InterruptedException
+	{
+		while (group.size() < maxBatchSize) {
+			queue.drainTo(group, maxBatchSize - group.size());
+			long remaining = deadline - System.nanoTime();
+			if (group.size() >= maxBatchSize || remaining <= 0) {
+				return;
+			}
+			Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+			if (next == null) {
+				return;
+			}
+			group.add(next);
+		}
+	}
+
+	private void flush(List<Pending> group)
+	{
+		List<Purchase> purchases = new ArrayList<>(group.size());
+		for (Pending pending : group) {
+			purchases.add(pending.purchase);
+		}
+
+		long start = System.nanoTime();
+		Connection connection;
+		try {
+			connection = dataSource.getConnection();
+		}
+		catch (Exception ex) {
+			flushMetrics.failure(start, ex);
+			fail(group, ex);
+			return;
+		}
+		try {
+			connection.setAutoCommit(false);  // Starts new Transaction on Connection
+			try {
+				write(connection, purchases);
+				flushMetrics.success(start, purchases.size());
+			}
+			catch (Exception ex) {
+				flushMetrics.failure(start, ex);
+				if (group.size() == 1) {
+					fail(group, ex);
+					return;
+				}
+				// retry on the connection already held rather than waiting on the pool once per row
+				for (Pending pending : group) {
+					pending.purchase.setId(null);    // keys from the rolled back batch
+					try {
+						write(connection, Collections.singletonList(pending.purchase));
+					}
+					catch (Exception single) {
+						pending.purchase.setId(null);
+						pending.result.completeExceptionally(single);
+					}
+				}
+			}
+		}
+		catch (SQLException ex) {
+			flushMetrics.failure(start, ex);
+			fail(group, ex);
+			return;
+		}
+		finally {
+			close(connection);
+		}
+		for (Pending pending : group) {
+			if (!pending.result.isDone()) {
+				pending.caller.markWrite();    // the write ran on the flusher's Session
+				pending.result.complete(pending.purchase);
+			}
+		}
+	}
+
+	/**
+	 * Writes the purchases and their summary and rollup deltas in one
+	 * transaction on the given connection, rolling back on any failure.
+	 */
+	private void write(Connection connection, List<Purchase> purchases) throws SQLException, DAOException
+	{
+		PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+		PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
+		PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
+		try {
+			purchaseDAO.createAll(connection, purchases);
+			summaryDAO.applyPurchases(connection, purchases);
+			rollupDAO.applyPurchases(connection, purchases);
+			connection.commit();
+		}
+		catch (Throwable ex) {
+			connection.rollback();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Fails every purchase of the group that has not completed yet.
+	 */
+	private static void fail(List<Pending> group, Throwable ex)
+	{
+		for (Pending pending : group) {
+			if (!pending.result.isDone()) {
+				pending.purchase.setId(null);
+				pending.result.completeExceptionally(ex);
+			}
+		}
+	}
+
+	/**
+	 * Returns the flusher's connection. Every transaction on it has already
+	 * committed or rolled back, so a failure here cannot change the outcome
+	 * of the group and is not reported to its callers.
+	 */
+	private static void close(Connection connection)
+	{
+		try {
+			connection.setAutoCommit(true);
+		}
+		catch (SQLException ex) {
+			// the close below still returns or discards the connection
+		}
+		try {
+			if (!connection.isClosed()) {
+				connection.close();
+			}
+		}
+		catch (SQLException ex) {
+			// nothing left to clean up
+		}
+	}
+}
@@ -14,8 +14,16 @@ package cs4347.jdbcProject.ecomm.services.impl;
 
 import java.sql.Connection;
 
+import java.sql.Date;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
@@ -23,37 +31,106 @@ import cs4347.jdbcProject.ecomm.dao.AddressDAO;
 import cs4347.jdbcProject.ecomm.dao.CreditCardDAO;
 import cs4347.jdbcProject.ecomm.dao.CustomerDAO;
 import cs4347.jdbcProject.ecomm.dao.PurchaseDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseRollupDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseSummaryDAO;
 import cs4347.jdbcProject.ecomm.dao.impl.AddressDaoImpl;
 import cs4347.jdbcProject.ecomm.dao.impl.CreditCardDaoImpl;
 import cs4347.jdbcProject.ecomm.dao.impl.CustomerDaoImpl;
 import cs4347.jdbcProject.ecomm.dao.impl.PurchaseDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseRollupDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseSummaryDaoImpl;
+import cs4347.jdbcProject.ecomm.datasource.DataSources;
 import cs4347.jdbcProject.ecomm.entity.Address;
 import cs4347.jdbcProject.ecomm.entity.CreditCard;
 import cs4347.jdbcProject.ecomm.entity.Customer;
 import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.metrics.MethodMetrics;
+import cs4347.jdbcProject.ecomm.metrics.PersistenceMetrics;
+import cs4347.jdbcProject.ecomm.services.ProductRanking;
+import cs4347.jdbcProject.ecomm.services.ProductRankingOrder;
 import cs4347.jdbcProject.ecomm.services.PurchasePersistenceService;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumns;
 import cs4347.jdbcProject.ecomm.services.PurchaseSummary;
+import cs4347.jdbcProject.ecomm.services.PurchaseVisitor;
+import cs4347.jdbcProject.ecomm.services.RevenueBucket;
 import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+import cs4347.jdbcProject.ecomm.util.TtlCache;
 
 public class PurchasePersistenceServiceImpl implements PurchasePersistenceService
 {
+	private static final MethodMetrics createMetrics = PersistenceMetrics.register("PurchaseService.create");
+	private static final MethodMetrics retrieveMetrics = PersistenceMetrics.register("PurchaseService.retrieve");
+	private static final MethodMetrics retrieveAllMetrics = PersistenceMetrics.register("PurchaseService.retrieveAll");
+	private static final MethodMetrics updateMetrics = PersistenceMetrics.register("PurchaseService.update");
+	private static final MethodMetrics deleteMetrics = PersistenceMetrics.register("PurchaseService.delete");
+	private static final MethodMetrics retrieveForCustomerIDMetrics = PersistenceMetrics.register("PurchaseService.retrieveForCustomerID");
+	private static final MethodMetrics visitForCustomerIDMetrics = PersistenceMetrics.register("PurchaseService.visitForCustomerID");
+	private static final MethodMetrics retrieveColumnsForCustomerIDMetrics = PersistenceMetrics.register("PurchaseService.retrieveColumnsForCustomerID");
+	private static final MethodMetrics retrievePurchaseSummaryMetrics = PersistenceMetrics.register("PurchaseService.retrievePurchaseSummary");
+	private static final MethodMetrics retrievePurchaseSummariesMetrics = PersistenceMetrics.register("PurchaseService.retrievePurchaseSummaries");
+	private static final MethodMetrics retrieveForProductIDMetrics = PersistenceMetrics.register("PurchaseService.retrieveForProductID");
+	private static final MethodMetrics visitForProductIDMetrics = PersistenceMetrics.register("PurchaseService.visitForProductID");
+	private static final MethodMetrics retrieveColumnsForProductIDMetrics = PersistenceMetrics.register("PurchaseService.retrieveColumnsForProductID");
+	private static final MethodMetrics retrieveTopProductsMetrics = PersistenceMetrics.register("PurchaseService.retrieveTopProducts");
+	private static final MethodMetrics retrieveProductTotalsMetrics = PersistenceMetrics.register("PurchaseService.retrieveProductTotals");
+	private static final MethodMetrics retrieveDailyRevenueMetrics = PersistenceMetrics.register("PurchaseService.retrieveDailyRevenue");
+	private static final MethodMetrics retrieveMonthlyRevenueMetrics = PersistenceMetrics.register("PurchaseService.retrieveMonthlyRevenue");
+	private static final MethodMetrics compactRollupsMetrics = PersistenceMetrics.register("PurchaseService.compactRollups");
+
+	private static final int MAX_RANKING_LIMIT = 1000;
+
 	@Override
     public Purchase create(Purchase purchase) throws SQLException, DAOException
     {
 		if(purchase.getId() != null) {
 			throw new DAOException("Purchase must have NULL ID");
 		}
+		return insert(purchase, false);
+    }
+
+	/**
+	 * create() for a purchase whose ID was already assigned, used by
+	 * ShardedPurchasePersistenceServiceImpl. Never goes through the group
+	 * committer.
+	 */
+	Purchase createWithID(Purchase purchase) throws SQLException, DAOException
+	{
+		if(purchase.getId() == null) {
+			throw new DAOException("Purchase must have a NON-NULL ID");
+		}
+		return insert(purchase, true);
+	}
+
+	private Purchase insert(Purchase purchase, boolean assignedID) throws SQLException, DAOException
+	{
+		if(groupCommitter != null && !assignedID) {
+			long start = System.nanoTime();
+			try {
+				return createMetrics.success(start, groupCommitter.create(purchase));
+			}
+			catch (Exception ex) {
+				createMetrics.failure(start, ex);
+				throw ex;
+			}
+		}
 		PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+		PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
+		PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
 		Purchase pur;
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
-            pur = purchaseDAO.create(connection, purchase);
+            pur = assignedID ? purchaseDAO.createWithID(connection, purchase) : purchaseDAO.create(connection, purchase);
+            summaryDAO.applyPurchase(connection, pur.getCustomerID(), pur.getPurchaseCents());
+            rollupDAO.apply(connection, pur.getProductID(), pur.getPurchaseDate(), 1, pur.getPurchaseCents());
             connection.commit();
             
-            return pur;
+            return createMetrics.success(start, pur);
         }
         catch (Exception ex) {
+            createMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -76,15 +153,50 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
     	
     	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
 		Purchase pur;
-        Connection connection = dataSource.getConnection();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             pur = purchaseDAO.retrieve(connection, id);
             connection.commit();
             
-            return pur;
+            return retrieveMetrics.success(start, pur);
         }
         catch (Exception ex) {
+            retrieveMetrics.failure(start, ex);
+            connection.rollback();
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public RetrieveAllResult<Purchase> retrieveAll(Collection<Long> ids) throws SQLException, DAOException
+    {
+    	if(ids == null) {
+			throw new DAOException("ids must be NON-NULL");
+		}
+    	
+        long start = System.nanoTime();
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);  // One snapshot across all chunks
+            RetrieveAllResult<Purchase> result = purchaseDAO.retrieveAll(connection, ids);
+            connection.commit();
+            
+            retrieveAllMetrics.success(start, result.found.size());
+            return result;
+        }
+        catch (Exception ex) {
+            retrieveAllMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -106,16 +218,34 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
 		}
     	
     	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+    	PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
+    	PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
     	int result;
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            // Locked, so no concurrent update or delete moves the row before our deltas apply
+            Purchase old = purchaseDAO.retrieveForUpdate(connection, purchase.getId());
             result = purchaseDAO.update(connection, purchase);
+            
+            if (old != null && result > 0) {
+            	// Move the purchase from its old (product, day) bucket to the new one
+            	rollupDAO.apply(connection, old.getProductID(), old.getPurchaseDate(), -1, -old.getPurchaseCents());
+            	rollupDAO.apply(connection, purchase.getProductID(), purchase.getPurchaseDate(), 1, purchase.getPurchaseCents());
+            	
+            	// The purchase may have moved between customers; refresh both summaries
+            	Set<Long> affected = new HashSet<>();
+            	affected.add(purchase.getCustomerID());
+            	affected.add(old.getCustomerID());
+            	summaryDAO.refresh(connection, affected);
+            }
             connection.commit();
             
-            return result;
+            return updateMetrics.success(start, result);
         }
         catch (Exception ex) {
+            updateMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -137,16 +267,25 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
 		}
     	
     	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+    	PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
+    	PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
     	int result;
+        long start = System.nanoTime();
         Connection connection = dataSource.getConnection();
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            Purchase old = purchaseDAO.retrieveForUpdate(connection, id);
             result = purchaseDAO.delete(connection, id);
+            if (old != null && result > 0) {
+            	summaryDAO.refresh(connection, Collections.singleton(old.getCustomerID()));
+            	rollupDAO.apply(connection, old.getProductID(), old.getPurchaseDate(), -1, -old.getPurchaseCents());
+            }
             connection.commit();
             
-            return result;
+            return deleteMetrics.success(start, result);
         }
         catch (Exception ex) {
+            deleteMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -169,15 +308,86 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
     	
     	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
     	List<Purchase> list;
-        Connection connection = dataSource.getConnection();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             list = purchaseDAO.retrieveForCustomerID(connection, customerID);
             connection.commit();
             
-            return list;
+            return retrieveForCustomerIDMetrics.success(start, list);
+        }
+        catch (Exception ex) {
+            retrieveForCustomerIDMetrics.failure(start, ex);
+            connection.rollback();
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public int visitForCustomerID(Long customerID, PurchaseVisitor visitor) throws SQLException, DAOException
+    {
+    	if(customerID == null) {
+			throw new DAOException("customerID must be a NON-NULL ID");
+		}
+    	
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            int count = purchaseDAO.visitForCustomerID(connection, customerID, streamFetchSize, visitor);
+            connection.commit();
+            
+            return visitForCustomerIDMetrics.success(start, count);
+        }
+        catch (Exception ex) {
+            visitForCustomerIDMetrics.failure(start, ex);
+            connection.rollback();
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Same rows as retrieveForCustomerID, streamed streamFetchSize at a
+     * time into primitive columns instead of Purchase objects.
+     */
+    @Override
+    public PurchaseColumns retrieveColumnsForCustomerID(Long customerID) throws SQLException, DAOException
+    {
+    	if(customerID == null) {
+			throw new DAOException("customerID must be a NON-NULL ID");
+		}
+    	
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            PurchaseColumns columns = purchaseDAO.retrieveColumnsForCustomerID(connection, customerID, streamFetchSize);
+            connection.commit();
+            
+            retrieveColumnsForCustomerIDMetrics.success(start, columns.size());
+            return columns;
         }
         catch (Exception ex) {
+            retrieveColumnsForCustomerIDMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -191,6 +401,11 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
         }
     }
 
+    /**
+     * Reads the customer's row of the PURCHASE_SUMMARY table, which
+     * create, update and delete keep current, so this is a single
+     * primary-key lookup regardless of how many purchases the customer has.
+     */
     @Override
     public PurchaseSummary retrievePurchaseSummary(Long customerID) throws SQLException, DAOException
     {
@@ -198,17 +413,42 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
 			throw new DAOException("customerID must be a NON-NULL ID");
 		}
     	
+    	PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            return retrievePurchaseSummaryMetrics.success(start, summaryDAO.retrieve(connection, customerID));
+        }
+        catch (Exception ex) {
+            retrievePurchaseSummaryMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public Map<Long, PurchaseSummary> retrievePurchaseSummaries(Collection<Long> customerIDs) throws SQLException, DAOException
+    {
+    	if(customerIDs == null) {
+			throw new DAOException("customerIDs must be NON-NULL");
+		}
+    	
     	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
-    	PurchaseSummary summary;
-        Connection connection = dataSource.getConnection();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
-            summary = purchaseDAO.retrievePurchaseSummary(connection, customerID);
+            Map<Long, PurchaseSummary> summaries = purchaseDAO.retrievePurchaseSummaries(connection, customerIDs);
             connection.commit();
             
-            return summary;
+            return retrievePurchaseSummariesMetrics.success(start, summaries);
         }
         catch (Exception ex) {
+            retrievePurchaseSummariesMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -231,15 +471,245 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
     	
     	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
     	List<Purchase> list;
-        Connection connection = dataSource.getConnection();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
         try {
             connection.setAutoCommit(false);  // Starts new Transaction on Connection
             list = purchaseDAO.retrieveForProductID(connection, productID);
             connection.commit();
             
-            return list;
+            return retrieveForProductIDMetrics.success(start, list);
+        }
+        catch (Exception ex) {
+            retrieveForProductIDMetrics.failure(start, ex);
+            connection.rollback();
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public int visitForProductID(Long productID, PurchaseVisitor visitor) throws SQLException, DAOException
+    {
+    	if(productID == null) {
+			throw new DAOException("productID must be a NON-NULL ID");
+		}
+    	
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            int count = purchaseDAO.visitForProductID(connection, productID, streamFetchSize, visitor);
+            connection.commit();
+            
+            return visitForProductIDMetrics.success(start, count);
+        }
+        catch (Exception ex) {
+            visitForProductIDMetrics.failure(start, ex);
+            connection.rollback();
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Same rows as retrieveForProductID, streamed streamFetchSize at a
+     * time into primitive columns instead of Purchase objects.
+     */
+    @Override
+    public PurchaseColumns retrieveColumnsForProductID(Long productID) throws SQLException, DAOException
+    {
+    	if(productID == null) {
+			throw new DAOException("productID must be a NON-NULL ID");
+		}
+    	
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);  // Starts new Transaction on Connection
+            PurchaseColumns columns = purchaseDAO.retrieveColumnsForProductID(connection, productID, streamFetchSize);
+            connection.commit();
+            
+            retrieveColumnsForProductIDMetrics.success(start, columns.size());
+            return columns;
+        }
+        catch (Exception ex) {
+            retrieveColumnsForProductIDMetrics.failure(start, ex);
+            connection.rollback();
+            throw ex;
+        }
+        finally {
+            if (connection != null) {
+                connection.setAutoCommit(true);
+            }
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Served from rankingCache, keyed by all arguments, so repeated widget
+     * renders within the TTL share one aggregation query.
+     */
+    @Override
+    public List<ProductRanking> retrieveTopProducts(ProductRankingOrder order, Integer category, Date from, Date to, int limit) throws SQLException, DAOException
+    {
+    	checkRanking(order, limit);
+    	
+        long start = System.nanoTime();
+        try {
+        	TtlCache<List<Object>, List<ProductRanking>> cache = rankingCache;
+        	List<ProductRanking> rankings = cache == null
+        			? loadTopProducts(order, category, from, to, limit)
+        			: cache.get(Arrays.asList(order, category, from, to, limit), () -> loadTopProducts(order, category, from, to, limit));
+        	return retrieveTopProductsMetrics.success(start, rankings);
+        }
+        catch (Exception ex) {
+        	retrieveTopProductsMetrics.failure(start, ex);
+        	throw ex;
+        }
+    }
+
+    static void checkRanking(ProductRankingOrder order, int limit) throws DAOException
+    {
+    	if(order == null) {
+			throw new DAOException("order must be NON-NULL");
+		}
+    	if(limit < 1 || limit > MAX_RANKING_LIMIT) {
+			throw new DAOException("limit must be between 1 and " + MAX_RANKING_LIMIT);
+		}
+    }
+
+    /**
+     * Count and revenue of every product matching the filters, used by
+     * ShardedPurchasePersistenceServiceImpl to rank across shards. Shares
+     * rankingCache with retrieveTopProducts. The returned list and its
+     * entries must not be modified.
+     */
+    List<ProductRanking> retrieveProductTotals(Integer category, Date from, Date to) throws SQLException, DAOException
+    {
+        long start = System.nanoTime();
+        try {
+        	TtlCache<List<Object>, List<ProductRanking>> cache = rankingCache;
+        	List<ProductRanking> totals = cache == null
+        			? loadProductTotals(category, from, to)
+        			: cache.get(Arrays.asList("totals", category, from, to), () -> loadProductTotals(category, from, to));
+        	return retrieveProductTotalsMetrics.success(start, totals);
+        }
+        catch (Exception ex) {
+        	retrieveProductTotalsMetrics.failure(start, ex);
+        	throw ex;
+        }
+    }
+
+    private List<ProductRanking> loadProductTotals(Integer category, Date from, Date to) throws SQLException, DAOException
+    {
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            return Collections.unmodifiableList(purchaseDAO.retrieveProductTotals(connection, category, from, to));
+        }
+        finally {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    private List<ProductRanking> loadTopProducts(ProductRankingOrder order, Integer category, Date from, Date to, int limit) throws SQLException, DAOException
+    {
+    	PurchaseDAO purchaseDAO = new PurchaseDaoImpl();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            return Collections.unmodifiableList(purchaseDAO.retrieveTopProducts(connection, order, category, from, to, limit));
+        }
+        finally {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public List<RevenueBucket> retrieveDailyRevenue(Long productID, Date from, Date to) throws SQLException, DAOException
+    {
+    	if(productID == null) {
+			throw new DAOException("productID must be NON-NULL");
+		}
+    	
+    	PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            return retrieveDailyRevenueMetrics.success(start, rollupDAO.retrieveDaily(connection, productID, from, to));
+        }
+        catch (Exception ex) {
+            retrieveDailyRevenueMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public List<RevenueBucket> retrieveMonthlyRevenue(Long productID, Date from, Date to) throws SQLException, DAOException
+    {
+    	if(productID == null) {
+			throw new DAOException("productID must be NON-NULL");
+		}
+    	
+    	PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = DataSources.getReadConnection(dataSource);
+        try {
+            return retrieveMonthlyRevenueMetrics.success(start, rollupDAO.retrieveMonthly(connection, productID, from, to));
+        }
+        catch (Exception ex) {
+            retrieveMonthlyRevenueMetrics.failure(start, ex);
+            throw ex;
+        }
+        finally {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public int compactRollups(Date before) throws SQLException, DAOException
+    {
+    	PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();
+        long start = System.nanoTime();
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);  // Fold and delete together
+            int rows = rollupDAO.compactBefore(connection, before);
+            connection.commit();
+            
+            return compactRollupsMetrics.success(start, rows);
         }
         catch (Exception ex) {
+            compactRollupsMetrics.failure(start, ex);
             connection.rollback();
             throw ex;
         }
@@ -254,10 +724,44 @@ public class PurchasePersistenceServiceImpl implements PurchasePersistenceServic
     }
 
     private DataSource dataSource;
+    private int streamFetchSize = 1000;
+    private TtlCache<List<Object>, List<ProductRanking>> rankingCache = new TtlCache<>(10, TimeUnit.SECONDS, 256);
+    private PurchaseGroupCommitter groupCommitter;
 
 	public PurchasePersistenceServiceImpl(DataSource dataSource)
 	{
 		this.dataSource = dataSource;
 	}
+	
+	/**
+	 * Rows fetched per round trip by the visitFor* and retrieveColumnsFor*
+	 * methods. With MySQL a positive value needs useCursorFetch=true on
+	 * the connection URL; Integer.MIN_VALUE selects the driver's
+	 * row-by-row streaming mode.
+	 */
+	public void setStreamFetchSize(int streamFetchSize)
+	{
+		this.streamFetchSize = streamFetchSize;
+	}
+	
+	/**
+	 * Opt-in group commit: when set, create hands each purchase to the
+	 * committer and blocks until the group it joined has committed. The
+	 * caller owns the committer and closes it on shutdown. Null turns
+	 * group commit off again.
+	 */
+	public void setGroupCommitter(PurchaseGroupCommitter groupCommitter)
+	{
+		this.groupCommitter = groupCommitter;
+	}
+	
+	/**
+	 * How long retrieveTopProducts results are reused. Zero turns the
+	 * cache off.
+	 */
+	public void setRankingCacheTtl(long ttl, TimeUnit unit)
+	{
+		this.rankingCache = ttl > 0 ? new TtlCache<>(ttl, unit, 256) : null;
+	}
 
 }
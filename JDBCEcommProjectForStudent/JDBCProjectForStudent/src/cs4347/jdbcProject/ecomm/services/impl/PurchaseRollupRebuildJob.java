@@ -0,0 +1,58 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.ProductDAO;
+import cs4347.jdbcProject.ecomm.dao.PurchaseRollupDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.ProductDaoImpl;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseRollupDaoImpl;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Recomputes the PURCHASE_DAILY_ROLLUP table from PURCHASE and empties
+ * PURCHASE_MONTHLY_ROLLUP. Used to backfill the rollups after they are
+ * first created or after a bulk load, and to repair drift; run
+ * PurchasePersistenceService.compactRollups afterwards to fold old days
+ * into months again. Product id ranges are rebuilt in parallel by
+ * IdRangeRebuild.
+ */
+public class PurchaseRollupRebuildJob
+{
+	private final IdRangeRebuild rebuild;
+
+	public PurchaseRollupRebuildJob(DataSource dataSource, int threads, int productsPerChunk)
+	{
+		if (threads < 1 || productsPerChunk < 1) {
+			throw new IllegalArgumentException("threads and productsPerChunk must be positive");
+		}
+		ProductDAO productDAO = new ProductDaoImpl();
+		PurchaseRollupDAO rollupDAO = new PurchaseRollupDaoImpl();    // stateless, shared by the range tasks
+		this.rebuild = new IdRangeRebuild(dataSource, threads, productsPerChunk, "purchase rollups",
+				productDAO::retrieveIDBounds, rollupDAO::rebuildRange);
+	}
+
+	/**
+	 * Runs the rebuild and blocks until every range is done.
+	 * @return the number of day rows written
+	 * @throws SQLException or DAOException from the first range that failed;
+	 * ranges that completed before the failure stay committed.
+	 */
+	public int run() throws SQLException, DAOException
+	{
+		return rebuild.run();
+	}
+}
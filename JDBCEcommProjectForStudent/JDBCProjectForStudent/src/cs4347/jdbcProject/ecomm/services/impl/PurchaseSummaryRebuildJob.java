@@ -0,0 +1,53 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import cs4347.jdbcProject.ecomm.dao.PurchaseSummaryDAO;
+import cs4347.jdbcProject.ecomm.dao.impl.PurchaseSummaryDaoImpl;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Recomputes the whole PURCHASE_SUMMARY table from PURCHASE. Used to
+ * backfill the table after it is first created or after a bulk load,
+ * and to repair drift. Customer id ranges are rebuilt in parallel by
+ * IdRangeRebuild.
+ */
+public class PurchaseSummaryRebuildJob
+{
+	private final IdRangeRebuild rebuild;
+
+	public PurchaseSummaryRebuildJob(DataSource dataSource, int threads, int customersPerChunk)
+	{
+		if (threads < 1 || customersPerChunk < 1) {
+			throw new IllegalArgumentException("threads and customersPerChunk must be positive");
+		}
+		PurchaseSummaryDAO summaryDAO = new PurchaseSummaryDaoImpl();    // stateless, shared by the range tasks
+		this.rebuild = new IdRangeRebuild(dataSource, threads, customersPerChunk, "purchase summaries",
+				summaryDAO::retrieveCustomerIDBounds, summaryDAO::rebuildRange);
+	}
+
+	/**
+	 * Runs the rebuild and blocks until every range is done.
+	 * @return the number of summary rows written
+	 * @throws SQLException or DAOException from the first range that failed;
+	 * ranges that completed before the failure stay committed.
+	 */
+	public int run() throws SQLException, DAOException
+	{
+		return rebuild.run();
+	}
+}
@@ -0,0 +1,131 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import cs4347.jdbcProject.ecomm.datasource.ShardMap;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+
+/**
+ * Scatter-gather over the per-shard services of the sharded service
+ * implementations. Each shard's call runs on the DatabaseExecutor, so the
+ * shards are queried in parallel and the slowest shard sets the latency.
+ *
+ * A fan-out that itself runs as a DatabaseExecutor task, for example a
+ * sharded service behind an Async* wrapper, queries the shards one after
+ * another on its own thread instead. Waiting there for legs queued on the
+ * executor would hold a slot per waiting fan-out, and with
+ * maxConcurrentCalls fan-outs in flight no leg could ever start.
+ */
+final class ShardFanOut
+{
+	/**
+	 * A call against one shard's service.
+	 */
+	interface ShardCall<S, T>
+	{
+		T call(S shard) throws SQLException, DAOException;
+	}
+
+	private ShardFanOut()
+	{
+	}
+
+	/**
+	 * Splits ids by owning shard, keeping their order within each shard.
+	 * Null ids are dropped.
+	 */
+	static List<List<Long>> partition(ShardMap shardMap, Collection<Long> ids)
+	{
+		List<List<Long>> parts = new ArrayList<>(shardMap.size());
+		for (int shard = 0; shard < shardMap.size(); shard++) {
+			parts.add(new ArrayList<>());
+		}
+		for (Long id : ids) {
+			if (id != null) {
+				parts.get(shardMap.shardFor(id)).add(id);
+			}
+		}
+		return parts;
+	}
+
+	/**
+	 * Runs the call on every given shard in parallel and returns the
+	 * results in shard order. Waits for all shards before failing, so no
+	 * call is left running, then rethrows the first shard's failure. A
+	 * single shard, or a caller that is already a DatabaseExecutor task,
+	 * runs the calls inline and stops at the first failure.
+	 */
+	static <S, T> List<T> gather(DatabaseExecutor executor, List<S> shards, ShardCall<S, T> call) throws SQLException, DAOException
+	{
+		if (shards.size() == 1 || DatabaseExecutor.isTaskThread()) {
+			List<T> results = new ArrayList<>(shards.size());
+			for (S shard : shards) {
+				results.add(call.call(shard));
+			}
+			return results;
+		}
+		List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+		for (S shard : shards) {
+			futures.add(executor.submit(() -> call.call(shard)));
+		}
+		List<T> results = new ArrayList<>(shards.size());
+		Throwable failure = null;
+		for (CompletableFuture<T> future : futures) {
+			try {
+				results.add(future.get());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new DAOException("Interrupted waiting for shards", ex);
+			}
+			catch (ExecutionException ex) {
+				if (failure == null) {
+					failure = ex.getCause();
+				}
+			}
+		}
+		if (failure instanceof SQLException) {
+			throw (SQLException) failure;
+		}
+		if (failure instanceof DAOException) {
+			throw (DAOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure != null) {
+			throw new DAOException("Shard call failed", failure);
+		}
+		return results;
+	}
+
+	static <T> List<T> concat(List<List<T>> parts)
+	{
+		int size = 0;
+		for (List<T> part : parts) {
+			size += part.size();
+		}
+		List<T> all = new ArrayList<>(size);
+		for (List<T> part : parts) {
+			all.addAll(part);
+		}
+		return all;
+	}
+}
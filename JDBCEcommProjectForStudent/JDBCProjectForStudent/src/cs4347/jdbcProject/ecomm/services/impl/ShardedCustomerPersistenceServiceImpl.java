@@ -0,0 +1,226 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cs4347.jdbcProject.ecomm.datasource.ShardMap;
+import cs4347.jdbcProject.ecomm.entity.Customer;
+import cs4347.jdbcProject.ecomm.services.CustomerBatchResult;
+import cs4347.jdbcProject.ecomm.services.CustomerPersistenceService;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Page;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Sharded mode of CustomerPersistenceServiceImpl: customers are spread
+ * over the shards of a ShardMap by customer id, and each shard is served
+ * by its own CustomerPersistenceServiceImpl, so transactions, metrics and
+ * read routing per shard are unchanged. A customer's ADDRESS and
+ * CREDITCARD rows, and through ShardedPurchasePersistenceServiceImpl its
+ * PURCHASE rows, live on the customer's shard, so every single-customer
+ * call is a local transaction on one shard.
+ *
+ * New customers get their id from a BlockIdAllocator before insert,
+ * because the id decides the shard. retrieveByZipCode and retrieveByDOB
+ * query all shards in parallel on the DatabaseExecutor, or one after
+ * another when the call is itself a DatabaseExecutor task (see
+ * ShardFanOut), and concatenate the results in shard order.
+ * retrieveByDOBPage is not supported: its
+ * page tokens are per database.
+ */
+public class ShardedCustomerPersistenceServiceImpl implements CustomerPersistenceService
+{
+	private final ShardMap shardMap;
+	private final BlockIdAllocator customerIDs;
+	private final DatabaseExecutor executor;
+	private final List<CustomerPersistenceServiceImpl> shards = new ArrayList<>();
+
+	/**
+	 * @param customerIDs allocator over BlockIdAllocator.CUSTOMER_SEQUENCE
+	 * @param executor runs the per-shard legs of cross-shard calls
+	 */
+	public ShardedCustomerPersistenceServiceImpl(ShardMap shardMap, BlockIdAllocator customerIDs, DatabaseExecutor executor)
+	{
+		this.shardMap = shardMap;
+		this.customerIDs = customerIDs;
+		this.executor = executor;
+		for (int shard = 0; shard < shardMap.size(); shard++) {
+			shards.add(new CustomerPersistenceServiceImpl(shardMap.getDataSource(shard)));
+		}
+	}
+
+	private CustomerPersistenceServiceImpl shardFor(Long customerID) throws DAOException
+	{
+		if (customerID == null) {
+			throw new DAOException("Customer must have a NON-NULL ID");
+		}
+		return shards.get(shardMap.shardFor(customerID));
+	}
+
+	@Override
+	public Customer create(Customer customer) throws SQLException, DAOException
+	{
+		if (customer.getId() != null) {
+			throw new DAOException("Trying to insert Customer with NON-NULL ID");
+		}
+		customer.setId(customerIDs.next());
+		try {
+			return shardFor(customer.getId()).createWithID(customer);
+		}
+		catch (Exception ex) {
+			customer.setId(null);
+			throw ex;
+		}
+	}
+
+	@Override
+	public CustomerBatchResult createAll(List<Customer> customers) throws SQLException, DAOException
+	{
+		return createAll(customers, CustomerPersistenceServiceImpl.DEFAULT_BATCH_CHUNK_SIZE);
+	}
+
+	/**
+	 * Assigns ids, then runs createAll on every shard in parallel with
+	 * that shard's customers. Chunks are per shard, so created lists the
+	 * customers shard by shard and a failed chunk's firstIndex points at
+	 * its first customer in the submitted list.
+	 */
+	@Override
+	public CustomerBatchResult createAll(List<Customer> customers, int chunkSize) throws SQLException, DAOException
+	{
+		CustomerPersistenceServiceImpl.checkNewCustomers(customers, chunkSize);
+
+		List<List<Integer>> indexes = new ArrayList<>();
+		for (int shard = 0; shard < shards.size(); shard++) {
+			indexes.add(new ArrayList<>());
+		}
+		for (int i = 0; i < customers.size(); i++) {
+			Customer customer = customers.get(i);
+			customer.setId(customerIDs.next());
+			indexes.get(shardMap.shardFor(customer.getId())).add(i);
+		}
+
+		List<Integer> shardOrder = new ArrayList<>();
+		for (int shard = 0; shard < shards.size(); shard++) {
+			if (!indexes.get(shard).isEmpty()) {
+				shardOrder.add(shard);
+			}
+		}
+		List<CustomerBatchResult> results = ShardFanOut.gather(executor, shardOrder, shard -> {
+			List<Customer> own = new ArrayList<>(indexes.get(shard).size());
+			for (int i : indexes.get(shard)) {
+				own.add(customers.get(i));
+			}
+			return shards.get(shard).createAllWithIDs(own, chunkSize);
+		});
+
+		CustomerBatchResult result = new CustomerBatchResult();
+		for (int i = 0; i < results.size(); i++) {
+			List<Integer> own = indexes.get(shardOrder.get(i));
+			result.created.addAll(results.get(i).created);
+			for (CustomerBatchResult.FailedChunk failed : results.get(i).failedChunks) {
+				failed.firstIndex = own.get(failed.firstIndex);
+				result.failedChunks.add(failed);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Customer retrieve(Long id) throws SQLException, DAOException
+	{
+		return shardFor(id).retrieve(id);
+	}
+
+	/**
+	 * Splits the ids by shard and loads each shard's part in parallel.
+	 */
+	@Override
+	public RetrieveAllResult<Customer> retrieveAll(Collection<Long> ids) throws SQLException, DAOException
+	{
+		if (ids == null) {
+			throw new DAOException("ids must be NON-NULL");
+		}
+		List<List<Long>> parts = ShardFanOut.partition(shardMap, ids);
+		List<Integer> shardOrder = new ArrayList<>();
+		for (int shard = 0; shard < parts.size(); shard++) {
+			if (!parts.get(shard).isEmpty()) {
+				shardOrder.add(shard);
+			}
+		}
+		Map<Long, Customer> loaded = new HashMap<>();
+		for (RetrieveAllResult<Customer> part : ShardFanOut.gather(executor, shardOrder,
+				shard -> shards.get(shard).retrieveAll(parts.get(shard)))) {
+			for (Customer customer : part.found) {
+				loaded.put(customer.getId(), customer);
+			}
+		}
+		return RetrieveAllResult.of(ids, loaded);
+	}
+
+	@Override
+	public int update(Customer customer) throws SQLException, DAOException
+	{
+		return shardFor(customer.getId()).update(customer);
+	}
+
+	@Override
+	public int update(Customer original, Customer customer) throws SQLException, DAOException
+	{
+		return shardFor(customer.getId()).update(original, customer);
+	}
+
+	/**
+	 * The customer's addresses, credit card and purchases are on the same
+	 * shard, so the usual cascade removes them in the same transaction.
+	 */
+	@Override
+	public int delete(Long id) throws SQLException, DAOException
+	{
+		if (id == null) {
+			throw new DAOException("ID must be a NON-NULL ID");
+		}
+		return shardFor(id).delete(id);
+	}
+
+	@Override
+	public List<Customer> retrieveByZipCode(String zipCode) throws SQLException, DAOException
+	{
+		if (zipCode == null) {
+			throw new DAOException("zipCode must be a NON-NULL ID");
+		}
+		return ShardFanOut.concat(ShardFanOut.gather(executor, shards, shard -> shard.retrieveByZipCode(zipCode)));
+	}
+
+	@Override
+	public List<Customer> retrieveByDOB(Date startDate, Date endDate) throws SQLException, DAOException
+	{
+		if (startDate.compareTo(endDate) > 0) {
+			throw new DAOException("Start date is later than end date");
+		}
+		return ShardFanOut.concat(ShardFanOut.gather(executor, shards, shard -> shard.retrieveByDOB(startDate, endDate)));
+	}
+
+	@Override
+	public Page<Customer> retrieveByDOBPage(Date startDate, Date endDate, String pageToken, int pageSize) throws SQLException, DAOException
+	{
+		throw new DAOException("retrieveByDOBPage is not supported across shards; use retrieveByDOB");
+	}
+}
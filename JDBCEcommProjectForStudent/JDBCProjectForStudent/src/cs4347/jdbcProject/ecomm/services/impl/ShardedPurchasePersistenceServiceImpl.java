@@ -0,0 +1,354 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.services.impl;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cs4347.jdbcProject.ecomm.datasource.ShardMap;
+import cs4347.jdbcProject.ecomm.entity.Purchase;
+import cs4347.jdbcProject.ecomm.services.ProductRanking;
+import cs4347.jdbcProject.ecomm.services.ProductRankingOrder;
+import cs4347.jdbcProject.ecomm.services.PurchaseColumns;
+import cs4347.jdbcProject.ecomm.services.PurchasePersistenceService;
+import cs4347.jdbcProject.ecomm.services.PurchaseSummary;
+import cs4347.jdbcProject.ecomm.services.PurchaseVisitor;
+import cs4347.jdbcProject.ecomm.services.RevenueBucket;
+import cs4347.jdbcProject.ecomm.util.DAOException;
+import cs4347.jdbcProject.ecomm.util.Money;
+import cs4347.jdbcProject.ecomm.util.RetrieveAllResult;
+
+/**
+ * Sharded mode of PurchasePersistenceServiceImpl. Purchases live on the
+ * shard of their customer (see ShardedCustomerPersistenceServiceImpl),
+ * together with that customer's PURCHASE_SUMMARY row, so creates and
+ * customer-keyed reads go to one shard's PurchasePersistenceServiceImpl.
+ * Every shard needs the PRODUCT rows its purchases refer to.
+ *
+ * Purchase ids come from a BlockIdAllocator so they are unique across
+ * shards. Calls keyed only by purchase or product id, and the rollup
+ * queries, fan out to all shards in parallel on the DatabaseExecutor and
+ * merge the results; when the call is itself a DatabaseExecutor task the
+ * shards are queried one after another instead (see ShardFanOut).
+ * retrieveTopProducts cannot merge per-shard top-N lists, which do not add
+ * up to the global top-N; it merges every product's totals instead.
+ */
+public class ShardedPurchasePersistenceServiceImpl implements PurchasePersistenceService
+{
+	private final ShardMap shardMap;
+	private final BlockIdAllocator purchaseIDs;
+	private final DatabaseExecutor executor;
+	private final List<PurchasePersistenceServiceImpl> shards = new ArrayList<>();
+
+	/**
+	 * @param purchaseIDs allocator over BlockIdAllocator.PURCHASE_SEQUENCE
+	 * @param executor runs the per-shard legs of cross-shard calls
+	 */
+	public ShardedPurchasePersistenceServiceImpl(ShardMap shardMap, BlockIdAllocator purchaseIDs, DatabaseExecutor executor)
+	{
+		this.shardMap = shardMap;
+		this.purchaseIDs = purchaseIDs;
+		this.executor = executor;
+		for (int shard = 0; shard < shardMap.size(); shard++) {
+			shards.add(new PurchasePersistenceServiceImpl(shardMap.getDataSource(shard)));
+		}
+	}
+
+	/**
+	 * The per-shard service, for settings such as setStreamFetchSize or
+	 * setRankingCacheTtl.
+	 */
+	public PurchasePersistenceServiceImpl getShard(int shard)
+	{
+		return shards.get(shard);
+	}
+
+	private PurchasePersistenceServiceImpl shardFor(Long customerID) throws DAOException
+	{
+		if (customerID == null) {
+			throw new DAOException("customerID must be a NON-NULL ID");
+		}
+		return shards.get(shardMap.shardFor(customerID));
+	}
+
+	@Override
+	public Purchase create(Purchase purchase) throws SQLException, DAOException
+	{
+		if (purchase.getId() != null) {
+			throw new DAOException("Purchase must have NULL ID");
+		}
+		PurchasePersistenceServiceImpl shard = shardFor(purchase.getCustomerID());
+		purchase.setId(purchaseIDs.next());
+		try {
+			return shard.createWithID(purchase);
+		}
+		catch (Exception ex) {
+			purchase.setId(null);
+			throw ex;
+		}
+	}
+
+	@Override
+	public Purchase retrieve(Long id) throws SQLException, DAOException
+	{
+		if (id == null) {
+			throw new DAOException("ID must be a NON-NULL ID");
+		}
+		for (Purchase purchase : ShardFanOut.gather(executor, shards, shard -> shard.retrieve(id))) {
+			if (purchase != null) {
+				return purchase;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public RetrieveAllResult<Purchase> retrieveAll(Collection<Long> ids) throws SQLException, DAOException
+	{
+		if (ids == null) {
+			throw new DAOException("ids must be NON-NULL");
+		}
+		Map<Long, Purchase> loaded = new HashMap<>();
+		for (RetrieveAllResult<Purchase> part : ShardFanOut.gather(executor, shards, shard -> shard.retrieveAll(ids))) {
+			for (Purchase purchase : part.found) {
+				loaded.put(purchase.getId(), purchase);
+			}
+		}
+		return RetrieveAllResult.of(ids, loaded);
+	}
+
+	/**
+	 * Updates the purchase on its customer's shard. Moving a purchase to a
+	 * customer on another shard would need a cross-shard transaction and
+	 * is rejected.
+	 */
+	@Override
+	public int update(Purchase purchase) throws SQLException, DAOException
+	{
+		if (purchase.getId() == null) {
+			throw new DAOException("Purchase must have a NON-NULL ID");
+		}
+		PurchasePersistenceServiceImpl target = shardFor(purchase.getCustomerID());
+		int rows = target.update(purchase);
+		if (rows == 0) {
+			for (PurchasePersistenceServiceImpl shard : shards) {
+				if (shard != target && shard.retrieve(purchase.getId()) != null) {
+					throw new DAOException("Purchase " + purchase.getId() + " belongs to a customer on another shard");
+				}
+			}
+		}
+		return rows;
+	}
+
+	@Override
+	public int delete(Long id) throws SQLException, DAOException
+	{
+		if (id == null) {
+			throw new DAOException("ID must be a NON-NULL ID");
+		}
+		int rows = 0;
+		for (int deleted : ShardFanOut.gather(executor, shards, shard -> shard.delete(id))) {
+			rows += deleted;
+		}
+		return rows;
+	}
+
+	@Override
+	public List<Purchase> retrieveForCustomerID(Long customerID) throws SQLException, DAOException
+	{
+		return shardFor(customerID).retrieveForCustomerID(customerID);
+	}
+
+	@Override
+	public int visitForCustomerID(Long customerID, PurchaseVisitor visitor) throws SQLException, DAOException
+	{
+		return shardFor(customerID).visitForCustomerID(customerID, visitor);
+	}
+
+	@Override
+	public PurchaseColumns retrieveColumnsForCustomerID(Long customerID) throws SQLException, DAOException
+	{
+		return shardFor(customerID).retrieveColumnsForCustomerID(customerID);
+	}
+
+	@Override
+	public PurchaseSummary retrievePurchaseSummary(Long customerID) throws SQLException, DAOException
+	{
+		return shardFor(customerID).retrievePurchaseSummary(customerID);
+	}
+
+	@Override
+	public Map<Long, PurchaseSummary> retrievePurchaseSummaries(Collection<Long> customerIDs) throws SQLException, DAOException
+	{
+		if (customerIDs == null) {
+			throw new DAOException("customerIDs must be NON-NULL");
+		}
+		List<List<Long>> parts = ShardFanOut.partition(shardMap, customerIDs);
+		List<Integer> shardOrder = new ArrayList<>();
+		for (int shard = 0; shard < parts.size(); shard++) {
+			if (!parts.get(shard).isEmpty()) {
+				shardOrder.add(shard);
+			}
+		}
+		Map<Long, PurchaseSummary> summaries = new HashMap<>();
+		for (Map<Long, PurchaseSummary> part : ShardFanOut.gather(executor, shardOrder,
+				shard -> shards.get(shard).retrievePurchaseSummaries(parts.get(shard)))) {
+			summaries.putAll(part);
+		}
+		return summaries;
+	}
+
+	@Override
+	public List<Purchase> retrieveForProductID(Long productID) throws SQLException, DAOException
+	{
+		if (productID == null) {
+			throw new DAOException("productID must be a NON-NULL ID");
+		}
+		return ShardFanOut.concat(ShardFanOut.gather(executor, shards, shard -> shard.retrieveForProductID(productID)));
+	}
+
+	/**
+	 * Streams one shard after the other, so the visitor is never called
+	 * concurrently.
+	 */
+	@Override
+	public int visitForProductID(Long productID, PurchaseVisitor visitor) throws SQLException, DAOException
+	{
+		if (productID == null) {
+			throw new DAOException("productID must be a NON-NULL ID");
+		}
+		boolean[] stopped = new boolean[1];
+		int count = 0;
+		for (PurchasePersistenceServiceImpl shard : shards) {
+			count += shard.visitForProductID(productID, purchase -> {
+				stopped[0] = !visitor.visit(purchase);
+				return !stopped[0];
+			});
+			if (stopped[0]) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public PurchaseColumns retrieveColumnsForProductID(Long productID) throws SQLException, DAOException
+	{
+		if (productID == null) {
+			throw new DAOException("productID must be a NON-NULL ID");
+		}
+		PurchaseColumns all = new PurchaseColumns();
+		for (PurchaseColumns part : ShardFanOut.gather(executor, shards, shard -> shard.retrieveColumnsForProductID(productID))) {
+			part.forEach((id, customerID, product, epochDay, cents) -> {
+				all.append(id, customerID, product, epochDay, cents);
+				return true;
+			});
+		}
+		return all;
+	}
+
+	/**
+	 * Adds up every product's count and revenue across the shards, then
+	 * ranks the merged totals. Each shard's totals come from its own
+	 * rankingCache, so the result may lag by that TTL.
+	 */
+	@Override
+	public List<ProductRanking> retrieveTopProducts(ProductRankingOrder order, Integer category, Date from, Date to, int limit) throws SQLException, DAOException
+	{
+		PurchasePersistenceServiceImpl.checkRanking(order, limit);
+		Map<Long, ProductRanking> merged = new HashMap<>();
+		for (List<ProductRanking> part : ShardFanOut.gather(executor, shards, shard -> shard.retrieveProductTotals(category, from, to))) {
+			for (ProductRanking ranking : part) {
+				ProductRanking total = merged.computeIfAbsent(ranking.productID, productID -> {
+					ProductRanking created = new ProductRanking();
+					created.productID = productID;
+					return created;
+				});
+				total.purchaseCount += ranking.purchaseCount;
+				total.revenueCents = Money.add(total.revenueCents, ranking.revenueCents);
+			}
+		}
+		Comparator<ProductRanking> byValue = order == ProductRankingOrder.REVENUE
+				? Comparator.comparingLong((ProductRanking ranking) -> ranking.revenueCents)
+				: Comparator.comparingLong((ProductRanking ranking) -> ranking.purchaseCount);
+		List<ProductRanking> rankings = new ArrayList<>(merged.values());
+		rankings.sort(byValue.reversed().thenComparingLong(ranking -> ranking.productID));
+		List<ProductRanking> top = new ArrayList<>(rankings.subList(0, Math.min(limit, rankings.size())));
+		for (ProductRanking ranking : top) {
+			ranking.revenue = Money.toDouble(ranking.revenueCents);
+		}
+		return Collections.unmodifiableList(top);
+	}
+
+	@Override
+	public List<RevenueBucket> retrieveDailyRevenue(Long productID, Date from, Date to) throws SQLException, DAOException
+	{
+		if (productID == null) {
+			throw new DAOException("productID must be NON-NULL");
+		}
+		return mergeBuckets(ShardFanOut.gather(executor, shards, shard -> shard.retrieveDailyRevenue(productID, from, to)));
+	}
+
+	@Override
+	public List<RevenueBucket> retrieveMonthlyRevenue(Long productID, Date from, Date to) throws SQLException, DAOException
+	{
+		if (productID == null) {
+			throw new DAOException("productID must be NON-NULL");
+		}
+		return mergeBuckets(ShardFanOut.gather(executor, shards, shard -> shard.retrieveMonthlyRevenue(productID, from, to)));
+	}
+
+	/**
+	 * Compacts every shard; run it for all shards with the same date so
+	 * merged daily results do not mix monthly and daily buckets.
+	 */
+	@Override
+	public int compactRollups(Date before) throws SQLException, DAOException
+	{
+		int rows = 0;
+		for (int folded : ShardFanOut.gather(executor, shards, shard -> shard.compactRollups(before))) {
+			rows += folded;
+		}
+		return rows;
+	}
+
+	/**
+	 * Adds up buckets with the same start and granularity and orders them
+	 * by start, monthly buckets after daily ones on the same day, as the
+	 * single-database query does.
+	 */
+	private static List<RevenueBucket> mergeBuckets(List<List<RevenueBucket>> parts)
+	{
+		Map<String, RevenueBucket> merged = new HashMap<>();
+		for (List<RevenueBucket> part : parts) {
+			for (RevenueBucket bucket : part) {
+				RevenueBucket total = merged.putIfAbsent(bucket.start + "/" + bucket.monthly, bucket);
+				if (total != null) {
+					total.purchaseCount += bucket.purchaseCount;
+					total.revenueCents = Money.add(total.revenueCents, bucket.revenueCents);
+					total.revenue = Money.toDouble(total.revenueCents);
+				}
+			}
+		}
+		List<RevenueBucket> buckets = new ArrayList<>(merged.values());
+		buckets.sort(Comparator.comparing((RevenueBucket bucket) -> bucket.start).thenComparing(bucket -> bucket.monthly));
+		return buckets;
+	}
+}
@@ -0,0 +1,160 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets (HDR style).
+ * Each power of two is split into 32 linear sub-buckets, so recorded
+ * values are reported with roughly 3% precision. Recording a value
+ * never allocates or blocks, which makes it safe to call on hot paths.
+ * Values are nanoseconds by convention.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// Values above ~2^44 ns (about 4.9 hours) are clamped into the last bucket
+	private static final int MAX_VALUE_BITS = 44;
+	private static final long MAX_TRACKABLE = (1L << MAX_VALUE_BITS) - 1;
+	private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalSum = new AtomicLong();
+	private final AtomicLong maxValue = new AtomicLong();
+
+	public void record(long value)
+	{
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucketIndex(value));
+		totalSum.addAndGet(value);
+
+		long max = maxValue.get();
+		while (value > max) {
+			if (maxValue.compareAndSet(max, value)) {
+				break;
+			}
+			max = maxValue.get();
+		}
+	}
+
+	/**
+	 * Clears all recorded values. Values recorded concurrently with
+	 * a reset may be partially lost, which is acceptable for metrics.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		totalSum.set(0);
+		maxValue.set(0);
+	}
+
+	public Snapshot snapshot()
+	{
+		// Count from the copied buckets so it always matches the percentiles
+		long[] copy = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return new Snapshot(copy, count, totalSum.get(), maxValue.get());
+	}
+
+	static int bucketIndex(long value)
+	{
+		if (value > MAX_TRACKABLE) {
+			value = MAX_TRACKABLE;
+		}
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		int mantissa = (int) (value >>> shift);   // in [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT)
+		return (shift + 1) * SUB_BUCKET_COUNT + (mantissa - SUB_BUCKET_COUNT);
+	}
+
+	static long bucketUpperBound(int index)
+	{
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long mantissa = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	/**
+	 * Point-in-time copy of a histogram.
+	 */
+	public static class Snapshot
+	{
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Snapshot(long[] counts, long count, long sum, long max)
+		{
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount()
+		{
+			return count;
+		}
+
+		public long getMax()
+		{
+			return max;
+		}
+
+		public double getMean()
+		{
+			return count == 0 ? 0.0 : (double) sum / count;
+		}
+
+		/**
+		 * Returns the value at the given percentile (0-100), reported as the
+		 * upper bound of the bucket holding it and never above the recorded max.
+		 */
+		public long getValueAtPercentile(double percentile)
+		{
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(percentile / 100.0 * count);
+			if (rank < 1) {
+				rank = 1;
+			}
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(bucketUpperBound(i), max);
+				}
+			}
+			return max;
+		}
+	}
+}
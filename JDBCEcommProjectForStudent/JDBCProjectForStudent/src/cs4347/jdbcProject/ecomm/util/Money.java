@@ -0,0 +1,106 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Fixed-point money helpers. Amounts are carried as long cents, which
+ * matches the two decimal places of purchase_amt exactly, and adding them
+ * never rounds or allocates. BigDecimal is only used at the JDBC and text
+ * boundaries.
+ */
+public final class Money
+{
+	private Money()
+	{
+	}
+
+	/**
+	 * @throws ArithmeticException if the sum does not fit in a long
+	 */
+	public static long add(long cents, long moreCents)
+	{
+		return Math.addExact(cents, moreCents);
+	}
+
+	/**
+	 * Rounds to whole cents, half up.
+	 * @throws ArithmeticException if the amount does not fit in a long
+	 */
+	public static long toCents(BigDecimal amount)
+	{
+		return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+	}
+
+	/**
+	 * Converts through the shortest decimal form of the double, so 0.1
+	 * becomes 10 cents and not 9.
+	 * @throws ArithmeticException if the amount is not finite or does not fit
+	 */
+	public static long toCents(double amount)
+	{
+		if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+			throw new ArithmeticException("Amount is not finite: " + amount);
+		}
+		return toCents(BigDecimal.valueOf(amount));
+	}
+
+	/**
+	 * Parses a plain decimal amount such as "12.34".
+	 * @throws NumberFormatException if text is not a decimal number
+	 */
+	public static long parse(String text)
+	{
+		return toCents(new BigDecimal(text.trim()));
+	}
+
+	public static BigDecimal toDecimal(long cents)
+	{
+		return BigDecimal.valueOf(cents, 2);
+	}
+
+	/**
+	 * Nearest double, for callers that still work in floating point.
+	 */
+	public static double toDouble(long cents)
+	{
+		return cents / 100.0;
+	}
+
+	public static String format(long cents)
+	{
+		return toDecimal(cents).toPlainString();
+	}
+
+	/**
+	 * Reads a DECIMAL column as cents; NULL reads as 0.
+	 */
+	public static long getCents(ResultSet rs, int column) throws SQLException
+	{
+		BigDecimal amount = rs.getBigDecimal(column);
+		return amount == null ? 0 : toCents(amount);
+	}
+
+	/**
+	 * Binds cents to a DECIMAL parameter without going through double.
+	 */
+	public static void setCents(PreparedStatement ps, int index, long cents) throws SQLException
+	{
+		ps.setBigDecimal(index, toDecimal(cents));
+	}
+}
@@ -0,0 +1,35 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a DTO (Data Transfer Object) that is used to return one
+ * page of a keyset-paginated query. Pass nextPageToken back to the
+ * same query to fetch the following page; the token is opaque and
+ * only valid for the query that produced it.
+ */
+public class Page<T>
+{
+	public List<T> items = new ArrayList<>();
+	
+	/** Token for the following page, or null if this is the last page */
+	public String nextPageToken;
+	
+	public boolean hasNext()
+	{
+		return nextPageToken != null;
+	}
+}
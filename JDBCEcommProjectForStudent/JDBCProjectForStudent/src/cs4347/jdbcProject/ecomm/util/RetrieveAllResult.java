@@ -0,0 +1,73 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a DTO (Data Transfer Object) that is used to return the
+ * results of a retrieve-by-ids call. Both lists follow the order of the
+ * requested ids; duplicate and null ids are dropped.
+ */
+public class RetrieveAllResult<T>
+{
+	/** Entities that were found, in request order */
+	public List<T> found = new ArrayList<>();
+
+	/** Requested ids with no matching row, in request order */
+	public List<Long> missingIds = new ArrayList<>();
+
+	private Map<Long, T> byId = new HashMap<>();
+
+	/**
+	 * Orders the loaded entities by the requested ids and collects the
+	 * ids that were not loaded.
+	 */
+	public static <T> RetrieveAllResult<T> of(Collection<Long> ids, Map<Long, T> loaded)
+	{
+		RetrieveAllResult<T> result = new RetrieveAllResult<>();
+		for (Long id : new LinkedHashSet<>(ids)) {
+			if (id == null) {
+				continue;
+			}
+			T entity = loaded.get(id);
+			if (entity != null) {
+				result.found.add(entity);
+				result.byId.put(id, entity);
+			}
+			else {
+				result.missingIds.add(id);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the entity loaded for the given id, or null if it was
+	 * missing or not requested.
+	 */
+	public T get(Long id)
+	{
+		return byId.get(id);
+	}
+
+	public boolean hasMissing()
+	{
+		return !missingIds.isEmpty();
+	}
+}
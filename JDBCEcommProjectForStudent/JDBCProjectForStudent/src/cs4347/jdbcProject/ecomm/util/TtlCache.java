@@ -0,0 +1,151 @@
+/* NOTICE: All materials provided by this project, and materials derived 
+ * from the project, are the property of the University of Texas. 
+ * Project materials, or those derived from the materials, cannot be placed 
+ * into publicly accessible locations on the web. Project materials cannot 
+ * be shared with other project teams. Making project materials publicly 
+ * accessible, or sharing with other project teams will result in the 
+ * failure of the team responsible and any team that uses the shared materials. 
+ * Sharing project materials or using shared materials will also result 
+ * in the reporting of every team member to the Provost Office for academic 
+ * dishonesty. 
+ */ 
+
+package cs4347.jdbcProject.ecomm.util;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small cache whose entries expire a fixed time after they were loaded.
+ * Meant for expensive read-only queries whose result may be a few
+ * seconds stale. Concurrent misses on the same key share one load, so an
+ * expired entry is recomputed once rather than by every caller. A failed
+ * load is not cached.
+ *
+ * When the cache is full, expired entries are dropped first; if that
+ * frees nothing the whole cache is cleared.
+ */
+public class TtlCache<K, V>
+{
+	/**
+	 * Computes the value for a missing or expired key.
+	 */
+	public interface Loader<V>
+	{
+		V load() throws SQLException, DAOException;
+	}
+
+	private static final class Entry<V>
+	{
+		final CompletableFuture<V> value = new CompletableFuture<>();
+		volatile long expiresAt;
+	}
+
+	private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final long ttlNanos;
+	private final int maxSize;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public TtlCache(long ttl, TimeUnit unit, int maxSize)
+	{
+		if (ttl <= 0 || maxSize < 1) {
+			throw new IllegalArgumentException("ttl and maxSize must be positive");
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the cached value for the key, loading it if it is missing or
+	 * expired.
+	 */
+	public V get(K key, Loader<V> loader) throws SQLException, DAOException
+	{
+		Entry<V> mine = new Entry<>();
+		Entry<V> entry = entries.compute(key, (k, current) -> current == null || isExpired(current) ? mine : current);
+		if (entry != mine) {
+			hits.increment();
+			return await(entry);
+		}
+
+		misses.increment();
+		if (entries.size() > maxSize) {
+			evict();
+		}
+		try {
+			V value = loader.load();
+			mine.expiresAt = System.nanoTime() + ttlNanos;
+			mine.value.complete(value);
+			return value;
+		}
+		catch (Throwable ex) {
+			// also on an Error, or waiting callers would block on this entry forever
+			entries.remove(key, mine);
+			mine.value.completeExceptionally(ex);
+			throw ex;
+		}
+	}
+
+	public void invalidateAll()
+	{
+		entries.clear();
+	}
+
+	public int size()
+	{
+		return entries.size();
+	}
+
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/** An entry still loading never expires */
+	private boolean isExpired(Entry<V> entry)
+	{
+		return entry.value.isDone() && System.nanoTime() - entry.expiresAt >= 0;
+	}
+
+	private void evict()
+	{
+		entries.values().removeIf(this::isExpired);
+		if (entries.size() > maxSize) {
+			entries.clear();
+		}
+	}
+
+	private V await(Entry<V> entry) throws SQLException, DAOException
+	{
+		try {
+			return entry.value.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DAOException("Interrupted waiting for a cached value", ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			if (cause instanceof DAOException) {
+				throw (DAOException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw (RuntimeException) cause;
+		}
+	}
+}
@@ -24,7 +24,8 @@ CREATE TABLE IF NOT EXISTS `simple_company`.`CUSTOMER` (
   `gender` CHAR(1) NOT NULL,
   `dob` DATE NOT NULL,
   `email` VARCHAR(45) NOT NULL,
-  PRIMARY KEY (`id`))
+  PRIMARY KEY (`id`),
+  INDEX `idx_CUSTOMER_dob_id` (`dob` ASC, `id` ASC) VISIBLE)
   
 ENGINE = InnoDB;
 
@@ -38,7 +39,8 @@ CREATE TABLE IF NOT EXISTS `simple_company`.`PRODUCT` (
   `prod_desc` VARCHAR(1024) NOT NULL,
   `prod_category` INT NOT NULL,
   `prod_upc` CHAR(12) NOT NULL,
-  PRIMARY KEY (`id`))
+  PRIMARY KEY (`id`),
+  INDEX `idx_PRODUCT_category_name_id` (`prod_category` ASC, `prod_name` ASC, `id` ASC) VISIBLE)
 ENGINE = InnoDB;
 
 
@@ -54,6 +56,7 @@ CREATE TABLE IF NOT EXISTS `simple_company`.`PURCHASE` (
   PRIMARY KEY (`id`),
   INDEX `fk_PURCHASE_CUSTOMER_idx` (`CUSTOMER_id` ASC) VISIBLE,
   INDEX `fk_PURCHASE_PRODUCT1_idx` (`PRODUCT_id` ASC) VISIBLE,
+  INDEX `idx_PURCHASE_date_product_amt` (`purchase_date` ASC, `PRODUCT_id` ASC, `purchase_amt` ASC) VISIBLE,
   CONSTRAINT `fk_PURCHASE_CUSTOMER`
     FOREIGN KEY (`CUSTOMER_id`)
     REFERENCES `simple_company`.`CUSTOMER` (`id`)
@@ -104,6 +107,82 @@ CREATE TABLE IF NOT EXISTS `simple_company`.`CREDITCARD` (
 ENGINE = InnoDB;
 
 
+-- -----------------------------------------------------
+-- Table `simple_company`.`PURCHASE_SUMMARY`
+-- Per-customer purchase aggregates maintained by the
+-- purchase persistence service in the same transaction
+-- as each PURCHASE write.
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `simple_company`.`PURCHASE_SUMMARY` (
+  `CUSTOMER_id` INT NOT NULL,
+  `purchase_count` INT NOT NULL,
+  `purchase_total` DECIMAL(15,2) NOT NULL,
+  `min_purchase_amt` DECIMAL(9,2) NULL,
+  `max_purchase_amt` DECIMAL(9,2) NULL,
+  PRIMARY KEY (`CUSTOMER_id`),
+  CONSTRAINT `fk_PURCHASE_SUMMARY_CUSTOMER1`
+    FOREIGN KEY (`CUSTOMER_id`)
+    REFERENCES `simple_company`.`CUSTOMER` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `simple_company`.`PURCHASE_DAILY_ROLLUP`
+-- Purchase count and total per product and day, maintained
+-- by the purchase persistence service in the same transaction
+-- as each PURCHASE write. The day is DATE(purchase_date) in the
+-- session time zone. Rows of whole past months are folded
+-- into PURCHASE_MONTHLY_ROLLUP by compaction.
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `simple_company`.`PURCHASE_DAILY_ROLLUP` (
+  `PRODUCT_id` INT NOT NULL,
+  `rollup_day` DATE NOT NULL,
+  `purchase_count` INT NOT NULL,
+  `purchase_total` DECIMAL(15,2) NOT NULL,
+  PRIMARY KEY (`PRODUCT_id`, `rollup_day`),
+  INDEX `idx_PURCHASE_DAILY_ROLLUP_day` (`rollup_day` ASC) VISIBLE,
+  CONSTRAINT `fk_PURCHASE_DAILY_ROLLUP_PRODUCT1`
+    FOREIGN KEY (`PRODUCT_id`)
+    REFERENCES `simple_company`.`PRODUCT` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `simple_company`.`PURCHASE_MONTHLY_ROLLUP`
+-- Compacted purchase count and total per product and month;
+-- `rollup_month` is the first day of the month.
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `simple_company`.`PURCHASE_MONTHLY_ROLLUP` (
+  `PRODUCT_id` INT NOT NULL,
+  `rollup_month` DATE NOT NULL,
+  `purchase_count` INT NOT NULL,
+  `purchase_total` DECIMAL(15,2) NOT NULL,
+  PRIMARY KEY (`PRODUCT_id`, `rollup_month`),
+  CONSTRAINT `fk_PURCHASE_MONTHLY_ROLLUP_PRODUCT1`
+    FOREIGN KEY (`PRODUCT_id`)
+    REFERENCES `simple_company`.`PRODUCT` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+-- -----------------------------------------------------
+-- Table `simple_company`.`ID_BLOCK`
+-- Next unreserved id per sequence. Only used in sharded mode, where
+-- CUSTOMER and PURCHASE ids are handed out in blocks from this table on
+-- one designated database instead of by each shard's AUTO_INCREMENT.
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `simple_company`.`ID_BLOCK` (
+  `name` VARCHAR(45) NOT NULL,
+  `next_id` BIGINT NOT NULL,
+  PRIMARY KEY (`name`))
+ENGINE = InnoDB;
+
+INSERT IGNORE INTO `simple_company`.`ID_BLOCK` (`name`, `next_id`) VALUES ('CUSTOMER', 1), ('PURCHASE', 1);
+
 SET SQL_MODE=@OLD_SQL_MODE;
 SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;
 SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;
\ No newline at end of file